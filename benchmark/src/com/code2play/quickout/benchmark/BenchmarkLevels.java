@@ -0,0 +1,82 @@
+package com.code2play.quickout.benchmark;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.code2play.quickout.Assets;
+import com.code2play.quickout.Ball;
+import com.code2play.quickout.BallTable;
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.Level;
+import com.code2play.quickout.headless.HeadlessSimulation;
+import com.code2play.quickout.headless.HeadlessWorldRenderer;
+
+/**
+ * Builds the levels the benchmarks run on. Box2D runs in-process with its real natives,
+ * nothing is drawn.
+ * @author Jitrapon
+ *
+ */
+public class BenchmarkLevels {
+
+	/**
+	 * Creates a NORMAL level with a fixed seed and fixed solver iterations.
+	 * Its round never runs out of time, so that no measurement runs past the end of the round.
+	 * @param seed
+	 */
+	public static Level create(long seed) {
+		HeadlessSimulation.loadNatives();
+		Level level = new Level(GameMode.NORMAL, seed);
+		level.getPhysicsQuality().setAdaptive(false);
+		level.setWorldRenderer(new HeadlessWorldRenderer());
+		level.init();
+		level.setTimeLeft(Float.MAX_VALUE);
+		return level;
+	}
+
+	/**
+	 * Spawns balls at random positions until the level holds the given number of balls.
+	 * {@link Level#spawnBall(com.badlogic.gdx.utils.Array, float, int)} has no cap, unlike the level's own
+	 * respawning which stops at {@link Level#MAX_NUM_OBJECT_ONSCREEN}, so counts above that cap are reached.
+	 * Capping spawnBall would make this loop forever.
+	 * @param level
+	 * @param count
+	 */
+	public static void fill(Level level, int count) {
+		int tag = 0;
+		while (level.getBalls().size() < count) {
+			level.spawnBall(Assets.getBallAnimationSet(tag), -1f, tag);
+			tag = (tag + 1) % Level.NUM_BALL_TYPES;
+		}
+		level.getPhysicsCommands().flush();
+	}
+
+	/**
+	 * Simulates ticks without measuring them, e.g. to let freshly spawned balls settle
+	 * @param level
+	 * @param ticks
+	 */
+	public static void run(Level level, int ticks) {
+		for (int i = 0; i < ticks; i++) level.update(level.getTimeStep());
+	}
+
+	/**
+	 * Moves every ball into a square around the center of the world, at rest, overlapping its neighbours
+	 * @param level
+	 * @param spacing distance between two balls in world units
+	 */
+	public static void pile(Level level, float spacing) {
+		BallTable balls = level.getBalls();
+		int side = (int) Math.ceil(Math.sqrt(balls.size()));
+		float startX = Level.VIRTUAL_WIDTH / 2 - side * spacing / 2;
+		float startY = Level.VIRTUAL_HEIGHT / 2 - side * spacing / 2;
+		for (int row = 0; row < balls.size(); row++) {
+			Ball ball = balls.get(row);
+			Body body = ball.getBody();
+			float x = startX + (row % side) * spacing;
+			float y = startY + (row / side) * spacing;
+			body.setTransform(x * Level.WORLD_TO_BOX, y * Level.WORLD_TO_BOX, 0f);
+			body.setLinearVelocity(0f, 0f);
+			body.setAngularVelocity(0f);
+			body.setAwake(true);
+		}
+	}
+}
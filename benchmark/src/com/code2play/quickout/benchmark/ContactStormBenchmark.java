@@ -0,0 +1,69 @@
+package com.code2play.quickout.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.code2play.quickout.Level;
+
+/**
+ * The tick right after every ball has been piled into one overlapping block: Box2D finds and solves
+ * a contact for every pair of neighbours, the level's CollisionListener queues the new ones and the
+ * level processes them.
+ * @author Jitrapon
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactStormBenchmark {
+
+	/** Distance between piled balls, well under their diameter of 150 */
+	private static final float SPACING = 40f;
+
+	@Param({ "20", "100" })
+	public int balls;
+
+	private Level level;
+	private float step;
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void setUp() {
+		level = BenchmarkLevels.create(2);
+		BenchmarkLevels.fill(level, balls);
+		step = level.getTimeStep();
+	}
+
+	/**
+	 * Piles the balls up again after the last tick pushed them apart
+	 */
+	@Setup(org.openjdk.jmh.annotations.Level.Invocation)
+	public void pile() {
+		BenchmarkLevels.pile(level, SPACING);
+	}
+
+	@TearDown(org.openjdk.jmh.annotations.Level.Trial)
+	public void tearDown() {
+		level.exitGame();
+	}
+
+	@Benchmark
+	public int storm() {
+		level.update(step);
+		return level.getBalls().size();
+	}
+}
@@ -0,0 +1,77 @@
+package com.code2play.quickout.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.code2play.quickout.Item;
+import com.code2play.quickout.ItemSlot;
+import com.code2play.quickout.Level;
+import com.code2play.quickout.Level.ItemType;
+
+/**
+ * Storing items into a full item slot, replacing the oldest one, and taking them out again
+ * @author Jitrapon
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemSlotBenchmark {
+
+	private static final int SLOTS = 3;
+
+	private Level level;
+	private ItemSlot itemSlot;
+	private Item[] items;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		level = BenchmarkLevels.create(4);
+		itemSlot = new ItemSlot(SLOTS);
+		items = new Item[SLOTS + 1];
+		ItemType[] types = ItemType.values();
+		for (int i = 0; i < items.length; i++) {
+			items[i] = level.getItemFactory().obtain(types[i % types.length], 0f, 0f);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		level.exitGame();
+	}
+
+	/**
+	 * Fills the slot until it starts replacing items
+	 */
+	@Benchmark
+	public int addItem() {
+		itemSlot.addItem(items[next]);
+		next = next == SLOTS ? 0 : next + 1;
+		return itemSlot.getSize();
+	}
+
+	/**
+	 * Stores an item and activates one from another slot, keeping the slot one short of full
+	 */
+	@Benchmark
+	public Item addAndRemoveItem() {
+		itemSlot.addItem(items[next]);
+		next = next == SLOTS ? 0 : next + 1;
+		return itemSlot.removeItem(next % SLOTS);
+	}
+}
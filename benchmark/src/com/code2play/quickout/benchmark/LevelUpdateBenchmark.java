@@ -0,0 +1,62 @@
+package com.code2play.quickout.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.code2play.quickout.Level;
+
+/**
+ * One fixed-step tick of a level holding a given number of balls, nobody playing.
+ * Past 20 balls the balls no longer fit side by side on screen, so the larger sizes
+ * also measure a crowded world with many resting contacts.
+ * @author Jitrapon
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelUpdateBenchmark {
+
+	@Param({ "20", "100", "500" })
+	public int balls;
+
+	private Level level;
+	private float step;
+
+	/**
+	 * A fresh level per iteration, so that every iteration starts from the same settled world
+	 */
+	@Setup(org.openjdk.jmh.annotations.Level.Iteration)
+	public void setUp() {
+		level = BenchmarkLevels.create(1);
+		BenchmarkLevels.fill(level, balls);
+		BenchmarkLevels.run(level, 45);
+		step = level.getTimeStep();
+	}
+
+	@TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+	public void tearDown() {
+		level.exitGame();
+	}
+
+	@Benchmark
+	public int update() {
+		level.update(step);
+		return level.getBalls().size();
+	}
+}
@@ -0,0 +1,70 @@
+package com.code2play.quickout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.code2play.quickout.Ball;
+import com.code2play.quickout.Level;
+import com.code2play.quickout.MoveSet;
+
+/**
+ * Validating removed balls against the move set, and drawing a new move set
+ * @author Jitrapon
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveSetBenchmark {
+
+	private static final int MOVES = 1024;
+	private static final int[] STATES = { Ball.TAPPED, Ball.FLINGED, Ball.DRAGGED };
+
+	private MoveSet moveSet;
+	private int[] tags;
+	private int[] states;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(3);
+		moveSet = new MoveSet(random);
+		moveSet.setMoveset(true);
+		tags = new int[MOVES];
+		states = new int[MOVES];
+		for (int i = 0; i < MOVES; i++) {
+			tags[i] = random.nextInt(Level.NUM_BALL_TYPES);
+			states[i] = STATES[random.nextInt(STATES.length)];
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MOVES)
+	public int validate() {
+		int correct = 0;
+		for (int i = 0; i < MOVES; i++) {
+			if (moveSet.validate(tags[i], states[i])) correct++;
+		}
+		return correct;
+	}
+
+	@Benchmark
+	public MoveSet setMoveset() {
+		moveSet.setMoveset(true);
+		return moveSet;
+	}
+}
@@ -0,0 +1,51 @@
+package com.code2play.quickout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.code2play.quickout.Level;
+
+/**
+ * Scoring a removed ball by the time spent on the current move
+ * @author Jitrapon
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark {
+
+	private static final int REMOVALS = 1024;
+
+	private float[] reactionTimes;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(5);
+		reactionTimes = new float[REMOVALS];
+		for (int i = 0; i < REMOVALS; i++) reactionTimes[i] = random.nextFloat() * 6.5f;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REMOVALS)
+	public int getScoreAdderFromTimeLapsed() {
+		int score = 0;
+		for (int i = 0; i < REMOVALS; i++) score += Level.getScoreAdderFromTimeLapsed(reactionTimes[i]);
+		return score;
+	}
+}
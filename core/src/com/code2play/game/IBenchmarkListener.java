@@ -0,0 +1,31 @@
+package com.code2play.game;
+
+import com.code2play.quickout.BenchmarkScenario;
+import com.code2play.quickout.FrameProfiler;
+import com.code2play.quickout.LatencyHistogram;
+import com.code2play.quickout.Level;
+
+/**
+ * Receives the measurements of a benchmark run, e.g. to write a report on the platform it runs on.
+ * @author Jitrapon
+ *
+ */
+public interface IBenchmarkListener {
+
+	/**
+	 * Called once the warm-up frames are over, right before the first measured frame
+	 * @param scenario
+	 */
+	public void started(BenchmarkScenario scenario);
+
+	/**
+	 * Called after the last measured frame
+	 * @param scenario
+	 * @param profiler the phases of every measured frame
+	 * @param frameTimes the time between the starts of two measured frames, buffer swaps included
+	 * @param elapsedNanos wall-clock time of the measured frames
+	 * @param level the level as it is after the last frame
+	 */
+	public void finished(BenchmarkScenario scenario, FrameProfiler profiler, LatencyHistogram frameTimes,
+			long elapsedNanos, Level level);
+}
@@ -2,5 +2,10 @@ package com.code2play.game;
 
 public interface IHud {
 
-	
+	/**
+	 * Switches the score and score effect labels to their highlighted style and back.
+	 * Used to show that the score is currently boosted by an item.
+	 * @param highlighted
+	 */
+	public void setScoreHighlighted(boolean highlighted);
 }
@@ -0,0 +1,27 @@
+package com.code2play.game;
+
+import com.code2play.quickout.Item;
+import com.code2play.quickout.Level;
+
+/**
+ * Builds and recycles the items of one ItemType. Register one creator per type 
+ * with the level's ItemFactory.
+ * @author Jitrapon
+ *
+ */
+public interface IItemCreator {
+
+	/**
+	 * Creates a new item of this type. Only called when the type's pool has no free item.
+	 * @param level
+	 * @return the new item, its physics body is attached by the factory
+	 */
+	public Item create(Level level);
+	
+	/**
+	 * Prepares a freed item of this type for its next spawn.
+	 * Called after the state common to all items has been reset.
+	 * @param item
+	 */
+	public void reset(Item item);
+}
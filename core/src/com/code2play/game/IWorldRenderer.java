@@ -0,0 +1,23 @@
+package com.code2play.game;
+
+import com.code2play.quickout.Ball;
+
+/**
+ * Everything the game rules need from whatever presents a Level to the player.
+ * WorldView is the on-screen implementation, a headless run supplies one that draws nothing.
+ * @author Jitrapon
+ *
+ */
+public interface IWorldRenderer {
+
+	/**
+	 * Returns the HUD that displays this level's scores
+	 */
+	public IHud getHud();
+	
+	/**
+	 * Called once when a ball has been removed from the level
+	 * @param ball the removed ball, its isCorrectMove() and hasCollidedCorrectly() flags are still valid
+	 */
+	public void onBallRemoved(Ball ball);
+}
@@ -1,19 +1,18 @@
 package com.code2play.game.items;
 
-import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.code2play.quickout.Ball;
+import com.code2play.quickout.BallTable;
 import com.code2play.quickout.Item;
 import com.code2play.quickout.Level;
 import com.code2play.quickout.Level.ItemType;
 
 public class VacuumItem extends Item {
 
-	public VacuumItem(Animation animation, float radius, ItemType type,
+	public VacuumItem(float radius, ItemType type,
 			float maxDuration, float lifeTime, Level level) {
-		super(animation, radius, type, maxDuration, lifeTime, level);
-		System.out.println("Spawning Vacuum!");
+		super(radius, type, maxDuration, lifeTime, level);
 	}
 
 	@Override
@@ -26,9 +25,13 @@ public class VacuumItem extends Item {
 	@Override
 	public void applyEffect(float delta) {
 		if (level.itemVacuumActive && level.itemVacuumApplied && 
-				level.getWorldRenderer().getMouseJoint() == null) {
-			for (Ball b : level.getBalls()) {
-				if (!b.removed && b.tag == level.getMoveSet().getMoves().first().ballType) {
+				!level.getDragManager().isDragging()) {
+			BallTable balls = level.getBalls();
+			int ballType = level.getMoveSet().getMoves().first().ballType;
+			for (int i = 0; i < balls.getTagCount(ballType); i++) {
+				int row = balls.getRow(balls.getTagSlot(ballType, i));
+				if ((balls.flags[row] & BallTable.FLAG_REMOVED) == 0) {
+					Ball b = balls.get(row);
 					
 					if (b.getBody().getPosition().epsilonEquals(level.vacuumPos.x*Level.WORLD_TO_BOX, 
 							level.vacuumPos.y*Level.WORLD_TO_BOX, 0.5f)) {
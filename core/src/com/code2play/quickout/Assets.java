@@ -2,6 +2,7 @@ package com.code2play.quickout;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 import com.badlogic.gdx.Audio;
 import com.badlogic.gdx.Gdx;
@@ -12,6 +13,7 @@ import com.badlogic.gdx.graphics.g2d.Animation.PlayMode;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Array;
+import com.code2play.quickout.Level.ItemType;
 
 /**
  * Asset manager handles texture loading, animation, and models. This class initializes all models' constraints.
@@ -130,6 +132,25 @@ public class Assets {
 		itemAnimationList.add(new Animation( 1/15f, ballAtlas.findRegions(ITEM_VACUUM) ));
 	}
 	
+	/**
+	 * Returns the idle, dragged and flinged animations of a ball type, 
+	 * or null if the assets are not loaded (headless runs)
+	 * @param ballType one of the Level ball type constants
+	 */
+	public static Array<Animation> getBallAnimationSet(int ballType) {
+		if (animationList == null) return null;
+		return animationList.get(ballType);
+	}
+	
+	/**
+	 * Returns the animation of an item type, or null if the assets are not loaded (headless runs)
+	 * @param itemType
+	 */
+	public static Animation getItemAnimation(ItemType itemType) {
+		if (itemAnimationList == null) return null;
+		return itemAnimationList.get(itemType.ordinal());				// order of type is specified in loadAnimations()
+	}
+	
 	public static Animation getItemPlaceHolderAnimation() {
 		return itemPlaceHolderAnimation;
 	}
@@ -149,12 +170,18 @@ public class Assets {
 		}
 	}
 	
-	public static Sound getCorrectBallPlopSoundEffect() {
-		return ballCorrectPlopEffectSounds.random();
+	/**
+	 * @param random the level's audio stream, see {@link RandomService#getAudioRandom()}
+	 */
+	public static Sound getCorrectBallPlopSoundEffect(Random random) {
+		return ballCorrectPlopEffectSounds.get(random.nextInt(ballCorrectPlopEffectSounds.size));
 	}
 	
-	public static Sound getWrongBallPlopSoundEffect() {
-		return ballWrongPlopEffectSounds.random();
+	/**
+	 * @param random the level's audio stream, see {@link RandomService#getAudioRandom()}
+	 */
+	public static Sound getWrongBallPlopSoundEffect(Random random) {
+		return ballWrongPlopEffectSounds.get(random.nextInt(ballWrongPlopEffectSounds.size));
 	}
 	
 	public static void dispose() {
@@ -1,70 +1,232 @@
 package com.code2play.quickout;
 
-import java.util.Random;
-
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.badlogic.gdx.physics.box2d.CircleShape;
-import com.badlogic.gdx.physics.box2d.Filter;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.utils.Array;
-import com.code2play.quickout.Level.EntityType;
-
-public class Ball extends Entity {
+import com.badlogic.gdx.utils.Pool.Poolable;
+
+/**
+ * Balls are pooled by {@link BallPool} together with their Box2D body. A removed ball
+ * only deactivates its body, the body is moved and retyped when the ball is reused.
+ *
+ * While a ball is in the level's {@link BallTable}, its position, state, state time and flags
+ * live in its row and the ball only reads and writes them there. Its own fields hold them
+ * while it is out of the table, in the pool or before it is added.
+ * @author Jitrapon
+ *
+ */
+public class Ball extends Entity implements Poolable {
 
 	// physical values
-	public boolean removed = false;						// marked for cleanup
 	private final float mass;
 	public float radius;
 //	public boolean physicsEnabled = true;
 	public String type;									// representation of the ball's type
 	public int tag;
-	public boolean hasCollidedCorrectly = false;		// whether of not the ball is correctly collided of the specified type
-	public boolean correctMove = false;					// whether this ball is correctly eliminated
 	public int score;									// point of this ball if it were to be removed
+	public int slot = -1;								// slot of the ball in the level's ball table, -1 if not in the table
+	private BallTable table;							// table holding the ball's values, null if not in the table
+	private int flags;									// BallTable flag bits while the ball is not in the table
 	public Ball collidedWithBall;						// other ball that this ball has collided with
 	
 	/* Animations */
 	private Array<Animation> animList;
-	private Animation currAnim;							// Current animation
 
 	/* ALL BALL STATE (default idle state */
 	public static final int TAPPED = 0;					// indicates the ball is just being tapped 
 	public static final int LONG_TAPPED = 1;			// indicates the ball is just being long-tapped
 	public static final int DRAGGED = 2;				// indicates the ball is just being dragged
 	public static final int FLINGED = 3;				// indicates the ball is just being let go of drag state
+	
+	/** Fraction of its radius a ball may travel in one step before it becomes a bullet */
+	public static final float BULLET_RADIUS_FRACTION = 0.5f;
 
-	public Ball(Texture texture, float radius, int tag) {
-		super(texture, radius);
-		setType(tag);
-		Random random = new Random();
-		velocity = new Vector2(random.nextInt(50), random.nextInt(50));
-		//		velocity = new Vector2(0, 0);
+	public Ball(float radius) {
+		super(radius);
 		mass = 1;
 		this.radius = radius;
 		score = 0;
 	}
 	
-	public Ball(Array<Animation> animList, float radius, int tag) {
-		super(radius);
+	/**
+	 * Brings a pooled ball back into the level at the specified world coordinate.
+	 * @param animList the ball's animations, null when running without assets
+	 * @param tag the ball's type
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 */
+	public void activate(Array<Animation> animList, int tag, float posX, float posY) {
 		this.animList = animList;
 		setType(tag);
-		mass = 1;
-		this.radius = radius;
-		currAnim = animList.first();
+		
+		body.setTransform(posX * WORLD_TO_BOX, posY * WORLD_TO_BOX, 0.0f);
+		body.setLinearVelocity(0.0f, 0.0f);
+		body.setAngularVelocity(0.0f);
+		level.getPhysicsCommands().activateBody(body);
+		setPosition(posX, posY, posX, posY);
+		bounds.x = posX;
+		bounds.y = posY;
+	}
+	
+	/**
+	 * Called by the pool when this ball is freed
+	 */
+	@Override
+	public void reset() {
+		if (hasFlag(BallTable.FLAG_BULLET)) level.getPhysicsCommands().setBullet(body, false);
+		flags = 0;
+		collidedWithBall = null;
 		score = 0;
+		state = INACTIVE;
+		stateTime = 0.0f;
+		numContacts = 0;
+		collisionCount = 0;
+	}
+	
+	/**
+	 * Called by the table when the ball is added, the table has copied the ball's values into its row
+	 */
+	void attach(BallTable table, int slot) {
+		this.table = table;
+		this.slot = slot;
+	}
+	
+	/**
+	 * Called by the table before the ball's row is removed, copies the row back into the ball
+	 */
+	void detach(int row) {
+		x = table.x[row];
+		y = table.y[row];
+		prevX = table.prevX[row];
+		prevY = table.prevY[row];
+		state = table.state[row];
+		stateTime = table.stateTime[row];
+		flags = table.flags[row];
+		table = null;
+		slot = -1;
+	}
+	
+	/**
+	 * Returns the ball's values as BallTable flag bits
+	 */
+	int getFlags() {
+		return table == null ? flags : table.flags[table.getRow(slot)];
+	}
+	
+	private boolean hasFlag(int flag) {
+		return (getFlags() & flag) != 0;
+	}
+	
+	private void setFlag(int flag, boolean value) {
+		int f = value ? getFlags() | flag : getFlags() & ~flag;
+		if (table == null) flags = f;
+		else table.flags[table.getRow(slot)] = f;
+	}
+	
+	@Override
+	public float getX() {
+		return table == null ? x : table.x[table.getRow(slot)];
+	}
+	
+	@Override
+	public float getY() {
+		return table == null ? y : table.y[table.getRow(slot)];
+	}
+	
+	@Override
+	public float getPrevX() {
+		return table == null ? prevX : table.prevX[table.getRow(slot)];
+	}
+	
+	@Override
+	public float getPrevY() {
+		return table == null ? prevY : table.prevY[table.getRow(slot)];
+	}
+	
+	@Override
+	public void setPosition(float x, float y, float prevX, float prevY) {
+		if (table == null) {
+			super.setPosition(x, y, prevX, prevY);
+			return;
+		}
+		int row = table.getRow(slot);
+		table.x[row] = x;
+		table.y[row] = y;
+		table.prevX[row] = prevX;
+		table.prevY[row] = prevY;
+	}
+	
+	@Override
+	public int getState() {
+		return table == null ? state : table.state[table.getRow(slot)];
+	}
+	
+	@Override
+	public float getStateTime() {
+		return table == null ? stateTime : table.stateTime[table.getRow(slot)];
 	}
 	
+	@Override
+	public void setStateTime(float stateTime) {
+		if (table == null) this.stateTime = stateTime;
+		else table.stateTime[table.getRow(slot)] = stateTime;
+	}
+	
+	/**
+	 * Returns true if the ball has been marked for cleanup
+	 */
+	public boolean isRemoved() {
+		return hasFlag(BallTable.FLAG_REMOVED);
+	}
+	
+	/**
+	 * Returns true if the ball has collided with a ball of the specified type
+	 */
+	public boolean hasCollidedCorrectly() {
+		return hasFlag(BallTable.FLAG_COLLIDED_CORRECTLY);
+	}
+	
+	public void setCollidedCorrectly(boolean collidedCorrectly) {
+		setFlag(BallTable.FLAG_COLLIDED_CORRECTLY, collidedCorrectly);
+	}
+	
+	/**
+	 * Returns true if the ball was removed with a correct move
+	 */
+	public boolean isCorrectMove() {
+		return hasFlag(BallTable.FLAG_CORRECT_MOVE);
+	}
+	
+	public void setCorrectMove(boolean correctMove) {
+		setFlag(BallTable.FLAG_CORRECT_MOVE, correctMove);
+	}
+	
+	/**
+	 * Returns the animation matching this ball's current state
+	 */
 	public Animation getCurrentAnimation() {
-		return currAnim;
+		return getAnimation(getState());
+	}
+	
+	/**
+	 * Returns the animation matching a state, for readers walking the table's state column
+	 * @param state
+	 */
+	public Animation getAnimation(int state) {
+		switch (state) {
+		case DRAGGED:
+			return animList.get(1);										// TODO NOT HARDCODED THIS
+		case FLINGED:
+			return animList.get(2);										// TODO NOT HARDCODED THIS
+		default:
+			return animList.first();
+		}
 	}
 	
 	public void setType(int tag) {
 		this.tag = tag;
+		
+		// keep the level's per-colour index up to date
+		if (slot != -1) level.getBalls().retag(slot, tag);
 
 		switch (tag) {
 		case 0: 
@@ -93,74 +255,22 @@ public class Ball extends Entity {
 	@Override
 	public void setState(int state) {
 		// do nothing if current state equals state
-		if (state != this.state) {
-			this.state = state;
-			stateTime = 0.0f;
+		int current = getState();
+		if (state != current) {
 			
-			if (state == FLINGED) {
-				// get existing fixture and change category bits to filter wall collision out
-				Filter filter = this.getFilterData();
-				filter.maskBits = EntityType.BALL.getCategoryBits();
-				this.setFilterData(filter);
+			// the level's contact filter lets flinged balls pass through the wall
+			if (state == FLINGED || current == FLINGED) {
+				level.getPhysicsCommands().refilter(getFixture());
 			}
+			if (table == null) this.state = state;
+			else table.state[table.getRow(slot)] = state;
+			setStateTime(0.0f);
 		}
 		else {
 			// do what ?
 		}
 	}
 
-	/**
-	 * Attach the Box2D physics body to this entity with the shape of circle and initialize
-	 * certain physical properties
-	 * @param x Initial x position
-	 * @param y Initial y position
-	 */
-	@Override
-	public void attachPhysicsBody(short categoryBits, float radius, float x, float y, float density, float linearDamping, 
-			float friction, float restitution) {
-
-		// First we create a body definition
-		bodyDef = new BodyDef();
-
-		// We set our body to dynamic, for something like ground which doesn't move we would set it to StaticBody
-		bodyDef.type = BodyType.DynamicBody;
-
-		// Set our body's starting position in the world
-		bodyDef.position.set(x * WORLD_TO_BOX, y * WORLD_TO_BOX);
-		this.x = x;
-		this.y = y;
-		bounds.x = x;
-		bounds.y = y;
-
-		// Create our body in the world using our body definition
-		body = level.getPhysicsWorld().createBody(bodyDef);
-		body.setLinearDamping(linearDamping);
-
-		// Create a circle shape and set its radius
-		circle = new CircleShape();
-		circle.setRadius(radius * WORLD_TO_BOX);
-
-		// Create a fixture definition to apply our shape to
-		fixtureDef = new FixtureDef();
-		fixtureDef.shape = circle;
-		fixtureDef.density = density; 
-		fixtureDef.friction = friction;
-		fixtureDef.restitution = restitution; 
-
-		// Default fixture category bits for collision filtering in-game
-		fixtureDef.filter.categoryBits = categoryBits;
-
-		body.createFixture(fixtureDef);
-
-		// Remember to dispose of any shapes after you're done with them!
-		// BodyDef and FixtureDef don't need disposing, but shapes do.
-		circle.dispose();
-
-		// add this object to the body's user data for later reference
-		body.setUserData(this);
-	}
-
-
 	/**
 	 * @deprecated This method is no longer in use, but is kept for reference for collision
 	 * @param other
@@ -182,51 +292,42 @@ public class Ball extends Entity {
 	}
 
 	/**
-	 * Update the ball by each iteration of the world step
+	 * Update the ball by each iteration of the world step. This only decides whether the ball
+	 * leaves the level, the level then advances the position and state time of the balls that stay
+	 * on the table's columns.
 	 */
 	@Override
 	public void update(float delta) {
 
 		// check state
-		switch (state) {
+		switch (getState()) {
 
 		/* the ball is tapped once */
 		case TAPPED:
 			//			moveTo(-1200, -1200);
-			removed = true;
-			dispose();
+			markRemoved();
 			return;
 
 			/* the ball is currently being dragged */
 		case DRAGGED:
-			currAnim = animList.get(1);										// TODO NOT HARDCODED THIS
-			if (hasCollidedCorrectly) {
+			if (hasCollidedCorrectly()) {
 //				Gdx.app.log("DRAGGED COLLISION", "Dragged ball " + type + " has collided correctly!");
-				//TODO set mousejoint in WorldView to null if this ball 
-				// is a dragged ball
-				if (level.getWorldRenderer().mouseJoint != null) {
-					level.getWorldRenderer().draggedBall = null;
-					level.getPhysicsWorld().destroyJoint(level.getWorldRenderer().mouseJoint);
-					level.getWorldRenderer().mouseJoint = null;
-				}
-				removed = true;
-				dispose();
+				markRemoved();
 				return;
 			}
 			
 			break;
 		case LONG_TAPPED:
-			removed = true;
-			dispose();
+			markRemoved();
 			return;
 
 			/* the ball is just released of the drag with certain velocity threshold*/
 		case FLINGED:
-			currAnim = animList.get(2);			// TODO NOT HARDCODED THIS
+			float x = getX();
+			float y = getY();
 			if (x + radius < level.getMinX() || x - radius > level.getMaxX() 
 					|| y + radius < level.getMinY() || y - radius > level.getMaxY()) {
-				removed = true;
-				dispose();
+				markRemoved();
 				return;
 			}
 		
@@ -234,26 +335,24 @@ public class Ball extends Entity {
 			
 		/* default state is INACTIVE */
 		default:
-			currAnim = animList.first();
 			break;
 		}
 		
-		if (hasCollidedCorrectly) {
-			removed = true;
-			dispose();
-			return;
+		if (hasCollidedCorrectly()) {
+			markRemoved();
 		}
-
-		// update state time
-		stateTime += delta;
-
-		x = body.getPosition().x * BOX_TO_WORLD;
-		y = body.getPosition().y * BOX_TO_WORLD;
+	}
+	
+	private void markRemoved() {
+		setFlag(BallTable.FLAG_REMOVED, true);
+		dispose();
 	}
 
+	/**
+	 * Takes the body out of the simulation, the body itself is kept for reuse by the pool
+	 */
 	@Override
 	public void dispose() {
-		level.getPhysicsWorld().destroyBody(body);
-		body = null;
+		level.getPhysicsCommands().deactivateBody(body);
 	}
 }
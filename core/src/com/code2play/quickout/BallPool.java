@@ -0,0 +1,117 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.code2play.quickout.Level.EntityType;
+
+/**
+ * Pool of balls together with their Box2D bodies. Bodies are created once with a shared 
+ * body and fixture definition, and are only deactivated when their ball is freed.
+ * Hit and miss counters tell how often a spawn still had to call createBody, balls created by
+ * {@link #prefill(int)} count as neither.
+ * @author Jitrapon
+ *
+ */
+public class BallPool extends Pool<Ball> {
+
+	private final Level level;
+	private final float radius;
+	
+	/* shared Box2D definitions, every pooled ball has the same shape */
+	private final BodyDef bodyDef;
+	private final FixtureDef fixtureDef;
+	private final CircleShape circle;
+	
+	/* physical values of every ball */
+	private static final float DENSITY = 1.0f;
+	private static final float LINEAR_DAMPING = 1.0f;
+	private static final float FRICTION = 1.0f;
+	private static final float RESTITUTION = 1.0f;
+	
+	private int hits;											// number of spawns served by a pooled ball
+	private int misses;											// number of spawns that had to create a ball (and body)
+	
+	public BallPool(Level level, float radius, int initialCapacity) {
+		super(initialCapacity);
+		this.level = level;
+		this.radius = radius;
+		
+		// bodies start deactivated, they are activated on spawn
+		bodyDef = new BodyDef();
+		bodyDef.type = BodyType.DynamicBody;
+		bodyDef.active = false;
+		bodyDef.linearDamping = LINEAR_DAMPING;
+		
+		circle = new CircleShape();
+		circle.setRadius(radius * Level.WORLD_TO_BOX);
+		
+		fixtureDef = new FixtureDef();
+		fixtureDef.shape = circle;
+		fixtureDef.density = DENSITY;
+		fixtureDef.friction = FRICTION;
+		fixtureDef.restitution = RESTITUTION;
+		
+		// Default fixture category bits for collision filtering in-game
+		fixtureDef.filter.categoryBits = EntityType.BALL.getCategoryBits();
+	}
+	
+	@Override
+	protected Ball newObject() {
+		Ball ball = new Ball(radius);
+		ball.setWorld(level);
+		Body body = level.getPhysicsWorld().createBody(bodyDef);
+		body.createFixture(fixtureDef);
+		ball.setBody(body);
+		level.registerEntity(ball, EntityType.BALL);
+		return ball;
+	}
+	
+	/**
+	 * Returns a ball that is active in the world at the specified world coordinate
+	 * @param animList the ball's animations, null when running without assets
+	 * @param tag the ball's type
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 */
+	public Ball obtain(Array<Animation> animList, int tag, float posX, float posY) {
+		if (getFree() > 0) hits++;
+		else misses++;
+		Ball ball = obtain();
+		ball.activate(animList, tag, posX, posY);
+		return ball;
+	}
+	
+	/**
+	 * Creates inactive balls up front so that spawning never creates bodies mid-game
+	 * @param count the number of free balls to have available
+	 */
+	public void prefill(int count) {
+		Array<Ball> created = new Array<Ball>(count);
+		for (int i = getFree(); i < count; i++) {
+			created.add(newObject());
+		}
+		freeAll(created);
+	}
+	
+	public int getHits() {
+		return hits;
+	}
+	
+	public int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Release the shared shape. Pooled bodies are released together with the world.
+	 */
+	public void dispose() {
+		circle.dispose();
+		clear();
+	}
+}
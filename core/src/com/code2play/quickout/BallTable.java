@@ -0,0 +1,301 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * The balls onscreen in a level, stored as parallel primitive arrays so that per-frame logic
+ * (integration, drawing, picking, searching by type) walks contiguous memory instead of scattered objects.
+ *
+ * Rows are kept dense: removing a ball moves the last row into its place. Every ball is also
+ * given a slot when it is added, which keeps pointing at the ball until it is removed,
+ * however often its row moves.
+ *
+ * Balls are also indexed by tag (colour): the table keeps a count and a list of slots per tag,
+ * so checking whether a colour is onscreen is constant time and colour-targeted effects
+ * only visit the balls of that colour. Tags outside [0, numTags) are not indexed.
+ *
+ * The table is where a ball's position, state, state time and flags are kept while it is onscreen.
+ * A Ball is a handle onto its row: its getters and setters read and write the columns, and
+ * {@link #add(Ball)} and {@link #removeAt(int)} copy the values in and back out. The level advances
+ * positions and state times by walking the columns directly. The tag index is kept up to date
+ * with {@link #retag(int, int)}, so tags change through {@link Ball#setType(int)}.
+ *
+ * The column arrays are replaced when the table grows, so they should not be kept across calls to add().
+ * @author Jitrapon
+ *
+ */
+public class BallTable {
+
+	/* ALL FLAG BITS */
+	public static final int FLAG_REMOVED = 1;					// the ball is flagged for removal
+	public static final int FLAG_COLLIDED_CORRECTLY = 2;		// the ball has hit a ball of the current move's type
+	public static final int FLAG_CORRECT_MOVE = 4;				// the ball was removed with a correct move
+	public static final int FLAG_BULLET = 8;					// continuous collision is enabled on the body, as of the next flush
+
+	/* columns, indexed by row */
+	public float[] x;
+	public float[] y;
+	public float[] prevX;
+	public float[] prevY;
+	public float[] radius;
+	public float[] stateTime;
+	public int[] tag;
+	public int[] state;
+	public int[] flags;
+	public Body[] body;
+	private Ball[] balls;
+	private int[] rowSlots;										// slot of the ball in each row
+	private int size;
+
+	/* slot bookkeeping, indexed by slot */
+	private int[] slotRows;										// row of the ball in each slot, -1 if the slot is free
+	private int[] freeSlots;
+	private int numFreeSlots;
+	
+	/* tag index */
+	private final int numTags;
+	private final int[] tagCounts;								// number of balls of each tag
+	private final int[][] tagSlots;								// slots of the balls of each tag
+	private int[] slotTagPositions;								// position of each slot in its tag's list
+
+	/**
+	 * @param capacity initial number of rows
+	 * @param numTags number of ball tags to index, tags are 0 to numTags - 1
+	 */
+	public BallTable(int capacity, int numTags) {
+		if (capacity < 1) capacity = 1;
+		this.numTags = numTags;
+		tagCounts = new int[numTags];
+		tagSlots = new int[numTags][capacity];
+		slotTagPositions = new int[capacity];
+		x = new float[capacity];
+		y = new float[capacity];
+		prevX = new float[capacity];
+		prevY = new float[capacity];
+		radius = new float[capacity];
+		stateTime = new float[capacity];
+		tag = new int[capacity];
+		state = new int[capacity];
+		flags = new int[capacity];
+		body = new Body[capacity];
+		balls = new Ball[capacity];
+		rowSlots = new int[capacity];
+		slotRows = new int[capacity];
+		freeSlots = new int[capacity];
+
+		// every slot starts free, lowest slots are handed out first
+		for (int i = 0; i < capacity; i++) {
+			slotRows[i] = -1;
+			freeSlots[i] = capacity - 1 - i;
+		}
+		numFreeSlots = capacity;
+	}
+
+	/**
+	 * Adds a ball as the last row and copies its values, the ball reads and writes them in the row from then on
+	 * @param ball
+	 * @return the slot given to the ball, also stored in {@link Ball#slot}
+	 */
+	public int add(Ball ball) {
+		if (size == balls.length) grow();
+
+		int slot = freeSlots[--numFreeSlots];
+		slotRows[slot] = size;
+		rowSlots[size] = slot;
+		balls[size] = ball;
+		x[size] = ball.getX();
+		y[size] = ball.getY();
+		prevX[size] = ball.getPrevX();
+		prevY[size] = ball.getPrevY();
+		radius[size] = ball.radius;
+		stateTime[size] = ball.getStateTime();
+		tag[size] = ball.tag;
+		state[size] = ball.getState();
+		flags[size] = ball.getFlags();
+		body[size] = ball.getBody();
+		ball.attach(this, slot);
+		size++;
+		indexTag(slot, ball.tag);
+		return slot;
+	}
+	
+	/**
+	 * Moves a ball to another tag's list, called when the type of a ball in the table changes
+	 * @param slot
+	 * @param newTag
+	 */
+	public void retag(int slot, int newTag) {
+		int row = getRow(slot);
+		if (row == -1 || tag[row] == newTag) return;
+		
+		unindexTag(slot, tag[row]);
+		tag[row] = newTag;
+		indexTag(slot, newTag);
+	}
+	
+	private void indexTag(int slot, int ballTag) {
+		if (ballTag < 0 || ballTag >= numTags) return;
+		int position = tagCounts[ballTag]++;
+		tagSlots[ballTag][position] = slot;
+		slotTagPositions[slot] = position;
+	}
+	
+	private void unindexTag(int slot, int ballTag) {
+		if (ballTag < 0 || ballTag >= numTags) return;
+		
+		// the last slot of the list takes the removed slot's position
+		int[] slots = tagSlots[ballTag];
+		int position = slotTagPositions[slot];
+		int last = --tagCounts[ballTag];
+		slots[position] = slots[last];
+		slotTagPositions[slots[position]] = position;
+	}
+
+	/**
+	 * Removes the ball in the row and copies its values back into it. The last row is moved
+	 * into its place, so a loop removing while it iterates should visit the same row again.
+	 * @param row
+	 * @return the removed ball
+	 */
+	public Ball removeAt(int row) {
+		Ball removed = balls[row];
+		removed.detach(row);
+		int slot = rowSlots[row];
+		unindexTag(slot, tag[row]);
+		int last = --size;
+
+		if (row != last) {
+			x[row] = x[last];
+			y[row] = y[last];
+			prevX[row] = prevX[last];
+			prevY[row] = prevY[last];
+			radius[row] = radius[last];
+			stateTime[row] = stateTime[last];
+			tag[row] = tag[last];
+			state[row] = state[last];
+			flags[row] = flags[last];
+			body[row] = body[last];
+			balls[row] = balls[last];
+			rowSlots[row] = rowSlots[last];
+			slotRows[rowSlots[row]] = row;
+		}
+		balls[last] = null;
+		body[last] = null;
+
+		slotRows[slot] = -1;
+		freeSlots[numFreeSlots++] = slot;
+		return removed;
+	}
+
+	private void grow() {
+		int capacity = balls.length;
+		int newCapacity = capacity << 1;
+		x = copyOf(x, newCapacity);
+		y = copyOf(y, newCapacity);
+		prevX = copyOf(prevX, newCapacity);
+		prevY = copyOf(prevY, newCapacity);
+		radius = copyOf(radius, newCapacity);
+		stateTime = copyOf(stateTime, newCapacity);
+		tag = copyOf(tag, newCapacity);
+		state = copyOf(state, newCapacity);
+		flags = copyOf(flags, newCapacity);
+		rowSlots = copyOf(rowSlots, newCapacity);
+
+		Body[] newBody = new Body[newCapacity];
+		System.arraycopy(body, 0, newBody, 0, size);
+		body = newBody;
+		Ball[] newBalls = new Ball[newCapacity];
+		System.arraycopy(balls, 0, newBalls, 0, size);
+		balls = newBalls;
+
+		for (int i = 0; i < numTags; i++) {
+			tagSlots[i] = copyOf(tagSlots[i], newCapacity);
+		}
+		slotTagPositions = copyOf(slotTagPositions, newCapacity);
+
+		// the table is full, so every existing slot is in use and the new ones are all free
+		slotRows = copyOf(slotRows, newCapacity);
+		freeSlots = new int[newCapacity];
+		numFreeSlots = 0;
+		for (int slot = newCapacity - 1; slot >= capacity; slot--) {
+			slotRows[slot] = -1;
+			freeSlots[numFreeSlots++] = slot;
+		}
+	}
+
+	private static float[] copyOf(float[] array, int length) {
+		float[] copy = new float[length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	private static int[] copyOf(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	/**
+	 * Returns the ball in the row
+	 * @param row
+	 */
+	public Ball get(int row) {
+		return balls[row];
+	}
+
+	/**
+	 * Returns the current row of the ball in a slot, or -1 if the slot is free
+	 * @param slot
+	 */
+	public int getRow(int slot) {
+		return slot >= 0 && slot < slotRows.length ? slotRows[slot] : -1;
+	}
+
+	public int getSlot(int row) {
+		return rowSlots[row];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return balls.length;
+	}
+
+	/**
+	 * Returns true if any ball in the table is of the type
+	 * @param ballType
+	 */
+	public boolean containsTag(int ballType) {
+		return getTagCount(ballType) > 0;
+	}
+	
+	/**
+	 * Returns the number of balls of the type in the table
+	 * @param ballType
+	 */
+	public int getTagCount(int ballType) {
+		if (ballType < 0 || ballType >= numTags) return 0;
+		return tagCounts[ballType];
+	}
+	
+	/**
+	 * Returns the slot of the n-th ball of the type, in no particular order.
+	 * Use {@link #getRow(int)} to read its columns.
+	 * @param ballType
+	 * @param n from 0 to getTagCount(ballType) - 1
+	 */
+	public int getTagSlot(int ballType, int n) {
+		return tagSlots[ballType][n];
+	}
+
+	/**
+	 * Removes every ball, without freeing them
+	 */
+	public void clear() {
+		while (size > 0) {
+			removeAt(size - 1);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.Level.ItemType;
+
+/**
+ * A repeatable load for {@link BenchmarkScreen}: the round to play, how many balls it starts with,
+ * how fast balls respawn, and the taps, flings and item activations scripted for given frames.
+ *
+ * Scenario files are JSON, every value but frames is optional:
+ * <pre>
+ * { "name": "crowded", "mode": "NORMAL", "seed": 42, "frames": 3600, "warmupFrames": 300,
+ *   "balls": 20, "respawnTime": 0.1,
+ *   "actions": [
+ *     { "type": "tap", "frame": 0, "every": 30 },
+ *     { "type": "fling", "frame": 15, "every": 45 },
+ *     { "type": "tap", "frame": 100, "x": 540, "y": 900 },
+ *     { "type": "item", "frame": 600, "every": 900, "item": "VACUUM" },
+ *     { "type": "slot", "frame": 650, "every": 900, "slot": 0 } ] }
+ * </pre>
+ * Frames count from the first warm-up frame. Taps and flings without x and y aim at a ball of the
+ * current move, a fling then heads for another ball of that colour unless speedX or speedY is given.
+ * An item action spawns an item and activates it at once, a slot action taps a slot of the item slot.
+ * @author Jitrapon
+ *
+ */
+public class BenchmarkScenario {
+
+	/* ALL ACTION TYPES */
+	public static final int TAP = 0;
+	public static final int FLING = 1;
+	public static final int ITEM = 2;
+	public static final int SLOT = 3;
+	private static final String[] ACTION_NAMES = { "tap", "fling", "item", "slot" };
+
+	/** Pointer used for every scripted gesture */
+	private static final int POINTER = 0;
+
+	/** Time between the samples of a fling, in nanoseconds */
+	private static final long FLING_SAMPLE_NANOS = 10000000L;
+
+	/** Number of drag samples of a fling */
+	private static final int FLING_SAMPLES = 5;
+
+	/** Release speed of flings that aim at another ball, in world units per second */
+	private static final float FLING_SPEED = 2500f;
+
+	/**
+	 * One scripted action, repeated every so many frames if every is above 0
+	 */
+	private static class Action {
+		int type;
+		int frame;
+		int every;
+		boolean aimed;								// true if x and y were given
+		float x;
+		float y;
+		float speedX;
+		float speedY;
+		ItemType item;
+		int slot;
+	}
+
+	private final String name;
+	private final GameMode gameMode;
+	private final long seed;
+	private final int frames;
+	private final int warmupFrames;
+	private final int balls;
+	private final float respawnTime;				// below 0 keeps the level's own
+	private final Array<Action> actions = new Array<Action>();
+	private int skippedActions;
+
+	/**
+	 * Reads a scenario file
+	 * @param file
+	 * @throws GdxRuntimeException if the file cannot be read or a value is invalid
+	 */
+	public static BenchmarkScenario load(FileHandle file) {
+		JsonValue root;
+		try {
+			root = new JsonReader().parse(file);
+		}
+		catch (RuntimeException e) {
+			throw new GdxRuntimeException("Cannot read benchmark scenario " + file.path(), e);
+		}
+		return new BenchmarkScenario(root, file.nameWithoutExtension());
+	}
+
+	private BenchmarkScenario(JsonValue root, String defaultName) {
+		name = root.getString("name", defaultName);
+		gameMode = GameMode.valueOf(root.getString("mode", GameMode.NORMAL.name()));
+		seed = root.getLong("seed", 0);
+		frames = root.getInt("frames", 0);
+		warmupFrames = root.getInt("warmupFrames", 0);
+		balls = root.getInt("balls", 0);
+		respawnTime = root.getFloat("respawnTime", -1f);
+		if (frames <= 0) throw new GdxRuntimeException("Benchmark scenario " + name + " needs a positive frame count");
+		if (warmupFrames < 0) throw new GdxRuntimeException("Benchmark scenario " + name + " has negative warm-up frames");
+
+		JsonValue list = root.get("actions");
+		if (list == null) return;
+		for (JsonValue value = list.child; value != null; value = value.next) {
+			Action action = new Action();
+			action.type = getActionType(value.getString("type"));
+			action.frame = value.getInt("frame", 0);
+			action.every = value.getInt("every", 0);
+			action.aimed = value.has("x") && value.has("y");
+			action.x = value.getFloat("x", 0f);
+			action.y = value.getFloat("y", 0f);
+			action.speedX = value.getFloat("speedX", 0f);
+			action.speedY = value.getFloat("speedY", 0f);
+			action.slot = value.getInt("slot", 0);
+			if (action.type == ITEM) action.item = ItemType.valueOf(value.getString("item"));
+			actions.add(action);
+		}
+	}
+
+	private static int getActionType(String type) {
+		for (int i = 0; i < ACTION_NAMES.length; i++) {
+			if (ACTION_NAMES[i].equals(type)) return i;
+		}
+		throw new GdxRuntimeException("Unknown benchmark action " + type);
+	}
+
+	/**
+	 * Applies the balancing values of this scenario and spawns its starting balls.
+	 * Called once the level has been initialized.
+	 * @param level
+	 */
+	public void setUp(Level level) {
+		if (respawnTime >= 0f) level.setBalancing(respawnTime, level.getMoveChangeTime(), level.getItemComboInterval());
+		int count = Math.min(balls, level.getMaxNumObject());
+		for (int i = 0; i < count; i++) {
+			int ballType = i % Level.NUM_BALL_TYPES;
+			level.spawnBall(level.getAnimationSet(ballType), -1.0f, ballType);
+		}
+	}
+
+	/**
+	 * Queues the actions scripted for a frame. Aimless taps and flings are skipped and counted
+	 * when no ball of the current move is onscreen.
+	 * @param level
+	 * @param frame counted from the first warm-up frame
+	 * @param timeNanos the level's time at this frame
+	 */
+	public void act(Level level, int frame, long timeNanos) {
+		for (int i = 0; i < actions.size; i++) {
+			Action action = actions.get(i);
+			if (frame < action.frame) continue;
+			if (action.every > 0 ? (frame - action.frame) % action.every != 0 : frame != action.frame) continue;
+
+			switch (action.type) {
+			case TAP:
+			case FLING:
+				if (!touch(level, action, timeNanos)) skippedActions++;
+				break;
+			case ITEM:
+				Item item = level.spawnItem(action.item);
+				if (item != null) item.setActive(true);
+				else skippedActions++;
+				break;
+			case SLOT:
+				level.getTouchEvents().push(TouchEventQueue.ITEM_SLOT, action.slot, 0f, 0f, timeNanos);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Queues a tap or a fling as complete touch sequences
+	 * @return false if there was nothing to aim at
+	 */
+	private boolean touch(Level level, Action action, long timeNanos) {
+		float x = action.x;
+		float y = action.y;
+		float speedX = action.speedX;
+		float speedY = action.speedY;
+		if (!action.aimed) {
+			BallTable table = level.getBalls();
+			int ballType = level.getMoveSet().getMoves().first().ballType;
+			int count = table.getTagCount(ballType);
+			if (count == 0) return false;
+			int row = table.getRow(table.getTagSlot(ballType, 0));
+			x = table.x[row];
+			y = table.y[row];
+			if (action.type == FLING && speedX == 0f && speedY == 0f && count >= 2) {
+				int other = table.getRow(table.getTagSlot(ballType, 1));
+				float dx = table.x[other] - x;
+				float dy = table.y[other] - y;
+				float length = (float) Math.sqrt(dx * dx + dy * dy);
+				if (length > 0) {
+					speedX = dx / length * FLING_SPEED;
+					speedY = dy / length * FLING_SPEED;
+				}
+			}
+		}
+
+		TouchEventQueue events = level.getTouchEvents();
+		events.push(TouchEventQueue.TOUCH_DOWN, POINTER, x, y, timeNanos);
+		if (action.type == FLING) {
+			float stepX = speedX * FLING_SAMPLE_NANOS / 1000000000f;
+			float stepY = speedY * FLING_SAMPLE_NANOS / 1000000000f;
+			for (int i = 1; i <= FLING_SAMPLES; i++) {
+				events.push(TouchEventQueue.TOUCH_DRAGGED, POINTER, x + stepX * i, y + stepY * i,
+						timeNanos + FLING_SAMPLE_NANOS * i);
+			}
+			x += stepX * FLING_SAMPLES;
+			y += stepY * FLING_SAMPLES;
+		}
+		events.push(TouchEventQueue.TOUCH_UP, POINTER, x, y,
+				timeNanos + FLING_SAMPLE_NANOS * (action.type == FLING ? FLING_SAMPLES : 1));
+		return true;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public GameMode getGameMode() {
+		return gameMode;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the number of measured frames
+	 */
+	public int getFrames() {
+		return frames;
+	}
+
+	public int getWarmupFrames() {
+		return warmupFrames;
+	}
+
+	/**
+	 * Returns the number of taps and flings skipped because no ball of the current move was onscreen,
+	 * and of items that could not be spawned
+	 */
+	public int getSkippedActions() {
+		return skippedActions;
+	}
+}
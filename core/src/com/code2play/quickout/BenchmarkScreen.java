@@ -0,0 +1,103 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.code2play.game.IBenchmarkListener;
+
+/**
+ * Plays a {@link BenchmarkScenario} end to end, simulation and rendering, as fast as the platform allows.
+ * Every frame advances the level by exactly one tick, so that each run does the same work whatever its
+ * frame rate. The player's input and the adaptive physics quality are off, and the round lasts at least as
+ * long as the scenario. The profiler is only attached after the warm-up frames.
+ * @author Jitrapon
+ *
+ */
+public class BenchmarkScreen implements Screen {
+
+	private Level level;
+	private WorldView worldView;
+	private BenchmarkScenario scenario;
+	private IBenchmarkListener listener;
+	private FrameProfiler profiler;
+	private LatencyHistogram frameTimes = new LatencyHistogram();
+	private float step;
+	private long stepNanos;
+	private int frame;									// counted from the first warm-up frame
+	private long frameStart;
+	private long measureStart;
+	private boolean finished;
+
+	public BenchmarkScreen(BenchmarkScenario scenario, IBenchmarkListener listener) {
+		this.scenario = scenario;
+		this.listener = listener;
+		level = new Level(scenario.getGameMode(), scenario.getSeed());
+		level.getPhysicsQuality().setAdaptive(false);
+		worldView = new WorldView(level);
+		level.setWorldRenderer(worldView);
+		worldView.setInputEnabled(false);
+		step = level.getTimeStep();
+		stepNanos = (long) (step * 1000000000.0);
+		level.setTimeLeft(Math.max(level.getTimeLeft(), (scenario.getWarmupFrames() + scenario.getFrames() + 1) * step));
+		scenario.setUp(level);
+	}
+
+	@Override
+	public void render(float delta) {
+		if (finished) return;
+
+		long now = TimeUtils.nanoTime();
+		if (frame > scenario.getWarmupFrames()) frameTimes.record(now - frameStart);
+		frameStart = now;
+
+		if (frame == scenario.getWarmupFrames()) {
+			profiler = new FrameProfiler();
+			level.setProfiler(profiler);
+			measureStart = now;
+			listener.started(scenario);
+		}
+		else if (frame == scenario.getWarmupFrames() + scenario.getFrames()) {
+			finished = true;
+			if (level.getExitCode() != Level.DEFAULT_EXIT) {
+				Gdx.app.log("BENCHMARK", "The round ended before the last frame, exit code " + level.getExitCode());
+			}
+			listener.finished(scenario, profiler, frameTimes, now - measureStart, level);
+			return;
+		}
+
+		if (profiler != null) profiler.beginFrame();
+		scenario.act(level, frame, frame * stepNanos);
+		level.update(step);
+		worldView.render(step);
+		if (profiler != null) profiler.endFrame();
+		frame++;
+	}
+
+	@Override
+	public void resize(int width, int height) {
+		worldView.resize(width, height);
+	}
+
+	@Override
+	public void show() {
+	}
+
+	@Override
+	public void hide() {
+	}
+
+	@Override
+	public void pause() {
+	}
+
+	@Override
+	public void resume() {
+	}
+
+	@Override
+	public void dispose() {
+		// never called automatically
+		worldView.dispose();
+		level.exitGame();
+	}
+}
@@ -0,0 +1,120 @@
+package com.code2play.quickout;
+
+/**
+ * Ring buffer of contact events recorded by the collision listener during world.step.
+ * Events only hold entity ids, so recording them never allocates, and game state is changed
+ * when Level drains the queue after the step instead of in the middle of it.
+ *
+ * The buffer doubles its capacity when it is full, so no event is ever dropped.
+ * @author Jitrapon
+ *
+ */
+public class ContactEventQueue {
+
+	/* ALL EVENT TYPES */
+	public static final int BEGIN_CONTACT = 0;
+	public static final int END_CONTACT = 1;
+
+	private int[] types;
+	private int[] entitiesA;
+	private int[] entitiesB;
+	private int head;									// index of the next event to be polled
+	private int size;									// number of events waiting to be polled
+
+	/* the event returned by the last poll */
+	private int type;
+	private int entityA;
+	private int entityB;
+
+	private int peakSize;								// the most events that were ever waiting at once
+
+	/**
+	 * @param capacity initial capacity, rounded up to a power of two
+	 */
+	public ContactEventQueue(int capacity) {
+		int pot = 1;
+		while (pot < capacity) pot <<= 1;
+		types = new int[pot];
+		entitiesA = new int[pot];
+		entitiesB = new int[pot];
+	}
+
+	/**
+	 * Records an event between two entities
+	 * @param type BEGIN_CONTACT or END_CONTACT
+	 * @param entityA id of the first entity
+	 * @param entityB id of the second entity
+	 */
+	public void push(int type, int entityA, int entityB) {
+		if (size == types.length) grow();
+		int tail = (head + size) & (types.length - 1);
+		types[tail] = type;
+		entitiesA[tail] = entityA;
+		entitiesB[tail] = entityB;
+		size++;
+		if (size > peakSize) peakSize = size;
+	}
+
+	/**
+	 * Removes the oldest event, its values are then available from
+	 * {@link #getType()}, {@link #getEntityA()} and {@link #getEntityB()}
+	 * @return false if there was no event to poll
+	 */
+	public boolean poll() {
+		if (size == 0) return false;
+		type = types[head];
+		entityA = entitiesA[head];
+		entityB = entitiesB[head];
+		head = (head + 1) & (types.length - 1);
+		size--;
+		return true;
+	}
+
+	private void grow() {
+		int capacity = types.length;
+		int[] newTypes = new int[capacity << 1];
+		int[] newEntitiesA = new int[capacity << 1];
+		int[] newEntitiesB = new int[capacity << 1];
+
+		// unwrap the ring so that the oldest event is at index 0
+		for (int i = 0; i < size; i++) {
+			int index = (head + i) & (capacity - 1);
+			newTypes[i] = types[index];
+			newEntitiesA[i] = entitiesA[index];
+			newEntitiesB[i] = entitiesB[index];
+		}
+		types = newTypes;
+		entitiesA = newEntitiesA;
+		entitiesB = newEntitiesB;
+		head = 0;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public int getEntityA() {
+		return entityA;
+	}
+
+	public int getEntityB() {
+		return entityB;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return types.length;
+	}
+
+	public int getPeakSize() {
+		return peakSize;
+	}
+}
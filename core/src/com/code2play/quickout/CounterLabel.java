@@ -1,8 +1,6 @@
 package com.code2play.quickout;
 
-import com.badlogic.gdx.scenes.scene2d.ui.Label;
-
-public class CounterLabel extends Label {
+public class CounterLabel extends IntLabel {
 	
 	private Level level;
 	
@@ -13,7 +11,7 @@ public class CounterLabel extends Label {
 	
 	@Override
     public void act(final float delta) {
-        this.setText( Integer.toString(level.getBallCount()) );
+        this.setInt( level.getBallCount() );
         super.act(delta);
     }
 }
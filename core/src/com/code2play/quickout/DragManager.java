@@ -0,0 +1,240 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.joints.MouseJoint;
+import com.badlogic.gdx.physics.box2d.joints.MouseJointDef;
+import com.code2play.quickout.PhysicsCommandBuffer.JointCallback;
+
+/**
+ * Keeps one drag per touch pointer, so several fingers can hold and fling entities at the same time.
+ * Every drag pulls its entity with its own mouse joint, created and destroyed through the
+ * level's physics command buffer. All drag state is preallocated per pointer.
+ *
+ * Each drag also tracks the pointer's recent positions. When the pointer is lifted, the entity is
+ * thrown with the pointer's estimated velocity instead of whatever speed the joint left it with.
+ * @author Jitrapon
+ *
+ */
+public class DragManager {
+
+	/** Maximum number of pointers that can drag at the same time */
+	public static final int MAX_POINTERS = 5;
+
+	private static final float MAX_FORCE_PER_MASS = 500.0f;
+	
+	/** Fastest release speed in Box2D units per second */
+	private static final float MAX_FLING_SPEED = 60.0f;
+	
+	/** Slowest release speed that still throws the entity, in Box2D units per second */
+	private static final float MIN_FLING_SPEED = 2.0f;
+
+	private final Level level;
+	private final Drag[] drags;
+	private final Vector2 releaseVelocity = new Vector2();
+
+	/**
+	 * The drag of a single pointer
+	 */
+	private class Drag implements JointCallback {
+
+		Entity entity;									// the dragged entity, null if the pointer is not dragging
+		MouseJoint joint;								// null until the queued joint has been created
+		final MouseJointDef jointDef = new MouseJointDef();
+		final VelocityTracker tracker = new VelocityTracker();
+
+		@Override
+		public void onJointCreated(Joint created) {
+			// the drag may have ended or moved on to another entity while the joint was queued
+			if (joint == null && entity != null && created.getBodyB() == entity.getBody()) {
+				joint = (MouseJoint) created;
+			}
+			else {
+				level.getPhysicsCommands().destroyJoint(created);
+			}
+		}
+
+		void destroyJoint() {
+			if (joint != null) {
+				level.getPhysicsCommands().destroyJoint(joint);
+				joint = null;
+			}
+			entity = null;
+		}
+	}
+
+	public DragManager(Level level) {
+		this.level = level;
+		drags = new Drag[MAX_POINTERS];
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			drags[i] = new Drag();
+		}
+	}
+
+	/**
+	 * Starts dragging the item or ball under the world coordinate with the pointer.
+	 * Items are preferred over balls, and entities already dragged by another pointer are ignored.
+	 * @param pointer
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 * @param timeNanos when the pointer was at this position
+	 * @return true if the pointer is now dragging an entity
+	 */
+	public boolean startDrag(int pointer, float posX, float posY, long timeNanos) {
+		if (pointer < 0 || pointer >= MAX_POINTERS) return false;
+		if (drags[pointer].entity != null) return true;
+
+		// slotted items and items whose effect is running are never picked
+		Item item = level.getPicker().pickItem(posX, posY);
+		if (item != null && !isDragging(item)) {
+			item.setState(Item.FLINGED);
+			attach(drags[pointer], item, posX, posY, timeNanos);
+			return true;
+		}
+
+		Ball ball = level.getPicker().pickBall(posX, posY);
+		if (ball != null && !isDragging(ball)) {
+			ball.setState(Ball.DRAGGED);
+			attach(drags[pointer], ball, posX, posY, timeNanos);
+			return true;
+		}
+		return false;
+	}
+
+	private void attach(Drag drag, Entity entity, float posX, float posY, long timeNanos) {
+		drag.entity = entity;
+		drag.joint = null;
+		drag.tracker.reset();
+		drag.tracker.addSample(posX, posY, timeNanos);
+
+		MouseJointDef jointDef = drag.jointDef;
+		jointDef.bodyA = level.getGroundBody();
+		jointDef.bodyB = entity.getBody();
+		jointDef.dampingRatio = 0.0f;
+		jointDef.collideConnected = true;
+		jointDef.target.set(posX * Level.WORLD_TO_BOX, posY * Level.WORLD_TO_BOX);
+		jointDef.maxForce = MAX_FORCE_PER_MASS * entity.getBody().getMass();
+
+		level.getPhysicsCommands().createJoint(jointDef, drag);
+		entity.getBody().setAwake(true);
+	}
+
+	/**
+	 * Moves the target of the pointer's drag
+	 * @param pointer
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 * @param timeNanos when the pointer was at this position
+	 */
+	public void moveDrag(int pointer, float posX, float posY, long timeNanos) {
+		if (pointer < 0 || pointer >= MAX_POINTERS) return;
+		Drag drag = drags[pointer];
+		if (drag.entity == null) return;
+		drag.tracker.addSample(posX, posY, timeNanos);
+
+		// the queued definition still picks up the new target if the joint is not created yet
+		if (drag.joint != null)
+			drag.joint.setTarget(drag.jointDef.target.set(posX * Level.WORLD_TO_BOX, posY * Level.WORLD_TO_BOX));
+		else
+			drag.jointDef.target.set(posX * Level.WORLD_TO_BOX, posY * Level.WORLD_TO_BOX);
+	}
+
+	/**
+	 * Lets go of the pointer's entity, which is flinged with the pointer's velocity.
+	 * A release slower than {@link #MIN_FLING_SPEED} only puts the entity down, it goes back to INACTIVE.
+	 * @param pointer
+	 * @param posX World's x coordinate where the pointer was lifted
+	 * @param posY World's y coordinate where the pointer was lifted
+	 * @param timeNanos when the pointer was lifted
+	 */
+	public void endDrag(int pointer, float posX, float posY, long timeNanos) {
+		if (pointer < 0 || pointer >= MAX_POINTERS) return;
+		Drag drag = drags[pointer];
+		if (drag.entity == null) return;
+
+		drag.tracker.addSample(posX, posY, timeNanos);
+		boolean hasVelocity = drag.tracker.getVelocity(releaseVelocity);
+		if (hasVelocity) releaseVelocity.scl(Level.WORLD_TO_BOX).limit(MAX_FLING_SPEED);
+		
+		if (hasVelocity && releaseVelocity.len2() >= MIN_FLING_SPEED * MIN_FLING_SPEED)
+			drag.entity.setState(drag.entity instanceof Ball ? Ball.FLINGED : Item.FLINGED);
+		else
+			drag.entity.setState(Entity.INACTIVE);
+		
+		// the joint is only destroyed after the next step, it must not hold the entity back until then
+		if (drag.joint != null) drag.joint.setMaxForce(0.0f);
+		
+		if (hasVelocity) drag.entity.getBody().setLinearVelocity(releaseVelocity);
+		drag.destroyJoint();
+	}
+
+	/**
+	 * Releases the drag (and its joint) holding the entity, if any, without changing the entity's state.
+	 * Called by the level for every entity it removes, before the entity goes back to its pool.
+	 * @param entity
+	 */
+	public void release(Entity entity) {
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			if (drags[i].entity == entity) {
+				drags[i].destroyJoint();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Releases every drag, used when the round is over
+	 */
+	public void releaseAll() {
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			drags[i].destroyJoint();
+		}
+	}
+
+	/**
+	 * Returns true if any pointer is dragging
+	 */
+	public boolean isDragging() {
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			if (drags[i].entity != null) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if any pointer is dragging the entity
+	 * @param entity
+	 */
+	public boolean isDragging(Entity entity) {
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			if (drags[i].entity == entity) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the entity dragged by the pointer, or null
+	 * @param pointer
+	 */
+	public Entity getDraggedEntity(int pointer) {
+		if (pointer < 0 || pointer >= MAX_POINTERS) return null;
+		return drags[pointer].entity;
+	}
+
+	/**
+	 * Returns the joint of the pointer's drag, or null if there is none yet
+	 * @param pointer
+	 */
+	public MouseJoint getJoint(int pointer) {
+		if (pointer < 0 || pointer >= MAX_POINTERS) return null;
+		return drags[pointer].joint;
+	}
+
+	public int getDragCount() {
+		int count = 0;
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			if (drags[i].entity != null) count++;
+		}
+		return count;
+	}
+}
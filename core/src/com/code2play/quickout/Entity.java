@@ -1,16 +1,10 @@
 package com.code2play.quickout;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.math.Circle;
-import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.Filter;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.physics.box2d.Fixture;
 
 /**
  * All game objects are entities. Different behaviors are specified by extending this class 
@@ -32,6 +26,12 @@ public class Entity {
 	/** This game object's y coordinate in world space. */
 	public float y;
 
+	/** This game object's x coordinate in world space at the previous simulation tick. */
+	public float prevX;
+
+	/** This game object's y coordinate in world space at the previous simulation tick. */
+	public float prevY;
+
 	/** This game object's width in world units. */
 	public float width;
 
@@ -47,33 +47,27 @@ public class Entity {
 	/** The number of fixtures that this entity is in contact with */
 	public int numContacts;
 	
-	/** This game object's texture to be drawn */
-	public Texture texture;
-	
 	/** Holds this game object's bounding rectangle in world space */
 	protected Circle bounds;
 	
 	/** holds the current velocity magnitude in x,y direction of the object */
 	public Vector2 velocity;				
 	
+	/** This game object's index in the level's entity table, -1 if not registered **/
+	public int id = -1;
+	
 	/** This game object's unique tag id **/
 	public int tag;
 	
 	/** Number of collided objects **/
 	public int collisionCount = 0;
 	
-	/** Box2D Physical Body */
-	protected BodyDef bodyDef;
-	
 	/** Box2D Body */
 	protected Body body;
 	
-	/** Box2D Fixture **/
-	protected FixtureDef fixtureDef;
+	/** Returned by {@link #getPosition()}, reused on every call */
+	private final Vector2 position = new Vector2();
 	
-	/** Box2D Shape **/
-	protected CircleShape circle;
-
 	public static final float WORLD_TO_BOX = 1/75f;		
 	public static final float BOX_TO_WORLD = 75.0f;		
 	
@@ -93,18 +87,28 @@ public class Entity {
 		height = radius;
 	}
 	
-	public Entity(Texture text, float radius) {
-		this();
-		bounds.radius = radius;
-		width = radius;
-		height = radius;
-		texture = text;
-	}
-	
 	public Body getBody() {
 		return body;
 	}
 	
+	/**
+	 * Attaches an already created Box2D body to this entity
+	 * @param body
+	 */
+	public void setBody(Body body) {
+		this.body = body;
+		
+		// add this object to the body's user data for later reference
+		body.setUserData(this);
+	}
+	
+	/**
+	 * Returns the fixture of this entity's body
+	 */
+	public Fixture getFixture() {
+		return body.getFixtureList().first();
+	}
+	
 	public void setFilterData(Filter filter) {
 		body.getFixtureList().get(0).setFilterData(filter);
 	}
@@ -122,8 +126,94 @@ public class Entity {
 			float friction, float restitution) {
 	}
 	
+	/**
+	 * Remembers the current position as the previous tick's position.
+	 * Call this before the position is updated from the physics body.
+	 */
+	public void savePreviousPosition() {
+		setPosition(getX(), getY(), getX(), getY());
+	}
+	
+	/**
+	 * Returns the x coordinate blended between the previous and the current tick
+	 * @param alpha interpolation factor in the range [0, 1]
+	 */
+	public float getInterpolatedX(float alpha) {
+		float prevX = getPrevX();
+		return prevX + (getX() - prevX) * alpha;
+	}
+	
+	/**
+	 * Returns the y coordinate blended between the previous and the current tick
+	 * @param alpha interpolation factor in the range [0, 1]
+	 */
+	public float getInterpolatedY(float alpha) {
+		float prevY = getPrevY();
+		return prevY + (getY() - prevY) * alpha;
+	}
+	
+	/**
+	 * Returns the x coordinate in world space. Override this to keep the position
+	 * somewhere other than the {@link #x} field, every other method reads it through here.
+	 */
+	public float getX() {
+		return x;
+	}
+	
+	/**
+	 * Returns the y coordinate in world space
+	 */
+	public float getY() {
+		return y;
+	}
+	
+	/**
+	 * Returns the x coordinate in world space at the previous simulation tick
+	 */
+	public float getPrevX() {
+		return prevX;
+	}
+	
+	/**
+	 * Returns the y coordinate in world space at the previous simulation tick
+	 */
+	public float getPrevY() {
+		return prevY;
+	}
+	
+	/**
+	 * Sets the current and previous coordinates in world space, without moving the body
+	 */
+	public void setPosition(float x, float y, float prevX, float prevY) {
+		this.x = x;
+		this.y = y;
+		this.prevX = prevX;
+		this.prevY = prevY;
+	}
+	
+	/**
+	 * Returns this game object's current state
+	 */
+	public int getState() {
+		return state;
+	}
+	
+	/**
+	 * Returns how long this game object has been in its current state (in seconds)
+	 */
+	public float getStateTime() {
+		return stateTime;
+	}
+	
+	public void setStateTime(float stateTime) {
+		this.stateTime = stateTime;
+	}
+	
+	/**
+	 * Returns the body's position in Box2D units. The vector is reused by the next call, copy it to keep it.
+	 */
 	public Vector2 getPosition() {
-		return new Vector2(body.getPosition().x , body.getPosition().y);
+		return position.set(body.getPosition());
 	}
 	
 	/**
@@ -139,8 +229,8 @@ public class Entity {
 	/** Returns this <code>GameObject</code>'s bounding rectangle.
 	 * @return the bounding rectangle. */
 	public Circle bounds() {
-		bounds.x = x;
-		bounds.y = y;
+		bounds.x = getX();
+		bounds.y = getY();
 		bounds.radius = width;
 		return bounds;
 	}
@@ -158,6 +248,10 @@ public class Entity {
 		body.setLinearVelocity(v.scl(1));
 	}
 	
+	public void setVelocity(float vx, float vy) {
+		body.setLinearVelocity(vx, vy);
+	}
+	
 	/**
 	 * Instantly moves the entity to the specified coordinate world's space
 	 * This method uses body.setTransform() which may cause unexpected physical
@@ -168,10 +262,9 @@ public class Entity {
 	public void moveTo(float posX, float posY) {
 //		body.setAwake(true);
 		body.setTransform(posX * WORLD_TO_BOX, posY * WORLD_TO_BOX, body.getAngle());
-		x = posX;
-		y = posY;
-		bounds.x = x;
-		bounds.y = y;
+		setPosition(posX, posY, posX, posY);
+		bounds.x = posX;
+		bounds.y = posY;
 	}
 	
 	/**
@@ -180,9 +273,10 @@ public class Entity {
 	 * @param stepY
 	 */
 	public void moveBy(float stepX, float stepY) {
-		x += stepX;
-		y += stepY;
-		bodyDef.position.set(x * WORLD_TO_BOX, y * WORLD_TO_BOX);
+		float x = getX() + stepX;
+		float y = getY() + stepY;
+		setPosition(x, y, getPrevX(), getPrevY());
+		body.setTransform(x * WORLD_TO_BOX, y * WORLD_TO_BOX, body.getAngle());
 		bounds.x += stepX;
 		bounds.y += stepY;
 	}
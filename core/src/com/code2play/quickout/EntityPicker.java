@@ -0,0 +1,133 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
+import com.code2play.quickout.Level.EntityType;
+
+/**
+ * Finds the ball or item under a touch point by querying the Box2D world, so picking only looks at
+ * fixtures near the point instead of every entity onscreen. The query callback is this object itself
+ * and no state is allocated per pick.
+ *
+ * When several entities contain the point, the nearest one (by distance to its center) or the
+ * topmost one (drawn last) is picked. Remaining ties go to the lowest entity id.
+ * @author Jitrapon
+ *
+ */
+public class EntityPicker implements QueryCallback {
+
+	/* ALL PICK MODES */
+	public static final int NEAREST = 0;
+	public static final int TOPMOST = 1;
+
+	/** Half size of the queried box around the touch point, in Box2D units */
+	private static final float QUERY_HALF_SIZE = 0.01f;
+
+	private final Level level;
+	private int mode = NEAREST;
+
+	/* state of the pick in progress */
+	private EntityType pickType;
+	private float pointX;
+	private float pointY;
+	private Entity picked;
+	private float pickedScore;
+	private int candidateCount;							// pickable entities containing the point in the last pick
+
+	public EntityPicker(Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * Sets how ties between overlapping entities are resolved
+	 * @param mode NEAREST or TOPMOST
+	 */
+	public void setMode(int mode) {
+		this.mode = mode;
+	}
+
+	public int getMode() {
+		return mode;
+	}
+
+	/**
+	 * Returns the ball under the world coordinate, or null if there is none
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 */
+	public Ball pickBall(float posX, float posY) {
+		return (Ball) pick(EntityType.BALL, posX, posY);
+	}
+
+	/**
+	 * Returns the item under the world coordinate that can still be touched
+	 * (not slotted and not running its effect), or null if there is none
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 */
+	public Item pickItem(float posX, float posY) {
+		return (Item) pick(EntityType.SPECIAL, posX, posY);
+	}
+
+	private Entity pick(EntityType type, float posX, float posY) {
+		pickType = type;
+		pointX = posX * Level.WORLD_TO_BOX;
+		pointY = posY * Level.WORLD_TO_BOX;
+		picked = null;
+		candidateCount = 0;
+		level.getPhysicsWorld().QueryAABB(this, pointX - QUERY_HALF_SIZE, pointY - QUERY_HALF_SIZE,
+				pointX + QUERY_HALF_SIZE, pointY + QUERY_HALF_SIZE);
+
+		Entity result = picked;
+		picked = null;
+		return result;
+	}
+
+	@Override
+	public boolean reportFixture(Fixture fixture) {
+		FixtureData data = (FixtureData) fixture.getUserData();
+		if (data == null || data.type != pickType || !isPickable(data.entity)) return true;
+		if (!fixture.testPoint(pointX, pointY)) return true;
+
+		candidateCount++;
+		float score = getScore(data.entity);
+		if (picked == null || score < pickedScore ||
+				(score == pickedScore && data.entityId < picked.id)) {
+			picked = data.entity;
+			pickedScore = score;
+		}
+
+		// keep looking, a better candidate may follow
+		return true;
+	}
+
+	/**
+	 * Returns how many pickable entities contained the point in the last pick
+	 */
+	public int getCandidateCount() {
+		return candidateCount;
+	}
+
+	private boolean isPickable(Entity entity) {
+		if (pickType == EntityType.BALL) {
+			return !((Ball) entity).isRemoved();
+		}
+		Item item = (Item) entity;
+		return !item.isActive() && !item.slotted && item.state != Item.SLOTTED;
+	}
+
+	/**
+	 * Lower scores win. Topmost uses the negated draw order, entities later in their list are drawn on top.
+	 */
+	private float getScore(Entity entity) {
+		if (mode == TOPMOST) {
+			if (pickType == EntityType.BALL)
+				return -level.getBalls().getRow(((Ball) entity).slot);
+			return -level.getItems().indexOf((Item) entity, true);
+		}
+
+		float dx = entity.getBody().getPosition().x - pointX;
+		float dy = entity.getBody().getPosition().y - pointY;
+		return dx * dx + dy * dy;
+	}
+}
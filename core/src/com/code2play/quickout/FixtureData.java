@@ -0,0 +1,29 @@
+package com.code2play.quickout;
+
+import com.code2play.quickout.Level.EntityType;
+
+/**
+ * Typed user data attached to every fixture in the level's world, so that contact callbacks
+ * can tell what they touch by comparing the entity type instead of running instanceof checks.
+ * @author Jitrapon
+ *
+ */
+public class FixtureData {
+
+	/** Entity id of fixtures that do not belong to an entity, such as the wall boundary */
+	public static final int NO_ENTITY = -1;
+
+	public final EntityType type;						// what kind of object this fixture belongs to
+	public final int entityId;							// index of the entity in the level's entity table
+	public final Entity entity;							// the entity itself, null when entityId is NO_ENTITY
+
+	public FixtureData(EntityType type, int entityId, Entity entity) {
+		this.type = type;
+		this.entityId = entityId;
+		this.entity = entity;
+	}
+
+	public FixtureData(EntityType type) {
+		this(type, NO_ENTITY, null);
+	}
+}
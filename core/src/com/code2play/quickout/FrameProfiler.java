@@ -0,0 +1,164 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Times every phase of a rendered frame into its own {@link LatencyHistogram}, so that a stutter
+ * can be traced to the phase that spiked. Phases that run more than once in a frame, like the
+ * simulation phases of several ticks, are summed into one duration per frame. A phase that did not
+ * run in a frame records nothing.
+ *
+ * Percentiles are shown over windows of {@link #WINDOW_FRAMES} frames: when a window is complete its
+ * p50, p95, p99 and max are computed once and the overlay text is rebuilt. The whole run is also
+ * kept in a second histogram per phase. Nothing is allocated once the profiler is created.
+ * @author Jitrapon
+ *
+ */
+public class FrameProfiler {
+
+	/* ALL PHASES */
+	public static final int FRAME = 0;									// the whole of GameScreen.render
+	public static final int STEP = 1;									// world.step
+	public static final int ENTITIES = 2;								// the ball update loop of a tick
+	public static final int ITEMS = 3;									// the item update loop of a tick
+	public static final int DRAW_BALLS = 4;
+	public static final int DRAW_ITEMS = 5;
+	public static final int HUD = 6;									// stage.act and stage.draw
+	public static final int NUM_PHASES = 7;
+	private static final String[] PHASE_NAMES = { "frame", "step", "entities", "items", "draw balls", "draw items", "hud" };
+
+	public static final int WINDOW_FRAMES = 300;
+
+	private final LatencyHistogram[] window = new LatencyHistogram[NUM_PHASES];
+	private final LatencyHistogram[] run = new LatencyHistogram[NUM_PHASES];
+	private final long[] starts = new long[NUM_PHASES];
+	private final long[] frameNanos = new long[NUM_PHASES];
+	private final boolean[] ran = new boolean[NUM_PHASES];
+	private int windowFrames;
+
+	/* the last complete window */
+	private final long[] p50 = new long[NUM_PHASES];
+	private final long[] p95 = new long[NUM_PHASES];
+	private final long[] p99 = new long[NUM_PHASES];
+	private final long[] max = new long[NUM_PHASES];
+	private final StringBuilder overlayText = new StringBuilder(512);
+	private boolean overlayVisible;
+
+	public FrameProfiler() {
+		for (int i = 0; i < NUM_PHASES; i++) {
+			window[i] = new LatencyHistogram();
+			run[i] = new LatencyHistogram();
+		}
+		overlayText.append("profiling ").append(WINDOW_FRAMES).append(" frames...");
+	}
+
+	public void beginFrame() {
+		begin(FRAME);
+	}
+
+	/**
+	 * Records the duration of every phase that ran in this frame
+	 */
+	public void endFrame() {
+		end(FRAME);
+		for (int i = 0; i < NUM_PHASES; i++) {
+			if (!ran[i]) continue;
+			window[i].record(frameNanos[i]);
+			run[i].record(frameNanos[i]);
+			frameNanos[i] = 0;
+			ran[i] = false;
+		}
+		if (++windowFrames >= WINDOW_FRAMES) endWindow();
+	}
+
+	public void begin(int phase) {
+		starts[phase] = TimeUtils.nanoTime();
+	}
+
+	public void end(int phase) {
+		add(phase, TimeUtils.nanoTime() - starts[phase]);
+	}
+
+	/**
+	 * Adds a duration measured elsewhere to a phase of this frame
+	 * @param phase
+	 * @param nanos
+	 */
+	public void add(int phase, long nanos) {
+		frameNanos[phase] += nanos;
+		ran[phase] = true;
+	}
+
+	private void endWindow() {
+		for (int i = 0; i < NUM_PHASES; i++) {
+			p50[i] = window[i].getPercentile(0.50);
+			p95[i] = window[i].getPercentile(0.95);
+			p99[i] = window[i].getPercentile(0.99);
+			max[i] = window[i].getMax();
+			window[i].reset();
+		}
+		windowFrames = 0;
+
+		overlayText.setLength(0);
+		overlayText.append("us            p50    p95    p99    max\n");
+		for (int i = 0; i < NUM_PHASES; i++) {
+			overlayText.append(PHASE_NAMES[i]);
+			for (int pad = PHASE_NAMES[i].length(); pad < 10; pad++) overlayText.append(' ');
+			appendMicros(p50[i]);
+			appendMicros(p95[i]);
+			appendMicros(p99[i]);
+			appendMicros(max[i]);
+			overlayText.append('\n');
+		}
+	}
+
+	/**
+	 * Appends a duration as whole microseconds, right-aligned in 7 columns
+	 * @param nanos
+	 */
+	private void appendMicros(long nanos) {
+		long micros = (nanos + 500) / 1000;
+		int digits = 1;
+		for (long v = micros / 10; v > 0; v /= 10) digits++;
+		for (int pad = digits; pad < 7; pad++) overlayText.append(' ');
+		overlayText.append(micros);
+	}
+
+	/**
+	 * Returns a percentile of a phase over the last complete window
+	 * @param phase
+	 * @param quantile 0.5, 0.95 or 0.99
+	 */
+	public long getWindowPercentile(int phase, double quantile) {
+		if (quantile >= 0.99) return p99[phase];
+		if (quantile >= 0.95) return p95[phase];
+		return p50[phase];
+	}
+
+	/**
+	 * Returns the histogram of a phase over every frame since the profiler was created
+	 * @param phase
+	 */
+	public LatencyHistogram getRunHistogram(int phase) {
+		return run[phase];
+	}
+
+	public static String getPhaseName(int phase) {
+		return PHASE_NAMES[phase];
+	}
+
+	/**
+	 * Returns the overlay text, rebuilt once per window
+	 */
+	public CharSequence getOverlayText() {
+		return overlayText;
+	}
+
+	public boolean isOverlayVisible() {
+		return overlayVisible;
+	}
+
+	public void setOverlayVisible(boolean visible) {
+		overlayVisible = visible;
+	}
+}
@@ -5,8 +5,6 @@ import static com.badlogic.gdx.scenes.scene2d.actions.Actions.parallel;
 import static com.badlogic.gdx.scenes.scene2d.actions.Actions.scaleTo;
 import static com.badlogic.gdx.scenes.scene2d.actions.Actions.sequence;
 
-import java.util.Iterator;
-
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.math.Interpolation;
@@ -18,6 +16,9 @@ import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.code2play.game.IHud;
 import com.code2play.quickout.Level.ScoreIndicator;
@@ -38,6 +39,7 @@ public class GameHud implements IHud {
 	// score
 	private ScoreLabel score;										// displays current game level score
 	private LabelStyle scoreStyle;
+	private LabelStyle highlightedScoreStyle;						// score style while the score is boosted
 	private BitmapFont scoreFont;
 	
 	// combo score
@@ -62,7 +64,10 @@ public class GameHud implements IHud {
 	
 	// score
 	private Group scoreEffectGroup;
+	private Pool<ScoreEffectLabel> scoreEffectPool;					// recycles score labels once their effect is done
 	private LabelStyle style;
+	private LabelStyle defaultStyle;
+	private LabelStyle highlightedStyle;
 	private LabelStyle penaltyStyle;
 	private BitmapFont font;
 	
@@ -110,12 +115,19 @@ public class GameHud implements IHud {
 		this.style = style;
 	}
 	
+	@Override
+	public void setScoreHighlighted(boolean highlighted) {
+		setScoreStyle(highlighted ? highlightedScoreStyle : scoreStyle);
+		setScoreEffectStyle(highlighted ? highlightedStyle : defaultStyle);
+	}
+	
 	/** fill content of the stage **/
 	private void fillContent() {
 		// create a score label
 		scoreFont = new BitmapFont();
 		scoreFont.getData().setScale(1.7f);
 		scoreStyle = new LabelStyle(scoreFont, Color.WHITE);
+		highlightedScoreStyle = new LabelStyle(scoreFont, Color.BLUE);
 		
 		score = new ScoreLabel(level, "undefined", scoreStyle);
 		score.setPosition(stage.getWidth()-100, stage.getHeight()-130);
@@ -211,9 +223,17 @@ public class GameHud implements IHud {
 		
 		// score indicators
 		scoreEffectGroup = new Group();
+		scoreEffectPool = new Pool<ScoreEffectLabel>(16) {
+			@Override
+			protected ScoreEffectLabel newObject() {
+				return new ScoreEffectLabel(style);
+			}
+		};
 		font = new BitmapFont();
 		font.getData().setScale(1.5f);
-		style = new LabelStyle(font, Color.ORANGE);
+		defaultStyle = new LabelStyle(font, Color.ORANGE);
+		highlightedStyle = new LabelStyle(font, Color.BLUE);
+		style = defaultStyle;
 		penaltyStyle = new LabelStyle(font, Color.RED);
 		
 		//TODO time progress bar, preferrably circular
@@ -229,10 +249,7 @@ public class GameHud implements IHud {
 						 //TODO
 					      public boolean touchDown (InputEvent event, float x, float y, int pointer, int button) {
 					    	 int index = (Integer) event.getListenerActor().getUserObject();
-					    	 Item item = level.getItemSlot().removeItem(index);
-					    	 if (item != null) {
-					    		 item.setActive(true);
-					    	 }
+					    	 level.getTouchEvents().push(TouchEventQueue.ITEM_SLOT, index, x, y, TimeUtils.nanoTime());
 					         return true; //or false
 					      }
 					   }
@@ -270,12 +287,10 @@ public class GameHud implements IHud {
 	}
 	
 	private void setScoreIndicators(Array<ScoreIndicator> scores) {
-		Iterator<ScoreIndicator> iter = scores.iterator();
-		while(iter.hasNext()) {
-			ScoreIndicator score = iter.next();
-			if (score.isPenalty) scoreEffectGroup.addActor(new ScoreEffectLabel(stage, score, penaltyStyle));
-			else scoreEffectGroup.addActor(new ScoreEffectLabel(stage, score, style));
-			iter.remove();
+		for (int i = 0; i < scores.size; i++) {
+			ScoreIndicator score = scores.get(i);
+			ScoreEffectLabel label = scoreEffectPool.obtain();
+			scoreEffectGroup.addActor(label.init(stage, score, score.isPenalty ? penaltyStyle : style));
 		}
 	}
 	
@@ -383,19 +398,27 @@ public class GameHud implements IHud {
 		
 		// update score indicators
 		setScoreIndicators(level.getScoreIndicators());
+		level.freeScoreIndicators();
 		
-		for (Actor label : scoreEffectGroup.getChildren()) {
+		SnapshotArray<Actor> labels = scoreEffectGroup.getChildren();
+		for (int i = labels.size - 1; i >= 0; i--) {
+			ScoreEffectLabel label = (ScoreEffectLabel) labels.get(i);
 			if (label.getActions().size == 0) {
 				scoreEffectGroup.removeActor(label);
+				scoreEffectPool.free(label);
 			}
 		}
+		if (level.getMetrics() != null) level.getMetrics().set(Metrics.SCORE_LABELS, labels.size);
 		
 		// update item slots
 		setItemSlot(level.getItemSlot());
 		
 		// stage update
+		FrameProfiler profiler = level.getProfiler();
+		if (profiler != null) profiler.begin(FrameProfiler.HUD);
 	    stage.act(delta);
 	    stage.draw();
+		if (profiler != null) profiler.end(FrameProfiler.HUD);
 	}
 	
 	public void dispose() {
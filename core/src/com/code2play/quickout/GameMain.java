@@ -2,6 +2,7 @@ package com.code2play.quickout;
 
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.code2play.game.IBenchmarkListener;
 
 /**
  * Main application entry to the game
@@ -10,7 +11,22 @@ import com.badlogic.gdx.Gdx;
  */
 public class GameMain extends Game {
 	
+	/** Where the gameplay events are streamed, relative to the local storage */
+	public static final String TELEMETRY_DIRECTORY = "telemetry";
+	
+	/** Where the metrics snapshots are exported, relative to the local storage */
+	public static final String METRICS_DIRECTORY = "metrics";
+	
 	MainMenuScreen mainMenuScreen;
+	ResultStore results;
+	Telemetry telemetry;
+	Metrics metrics;
+	MetricsExporter metricsExporter;
+	
+	/* benchmark runs only */
+	private BenchmarkScenario benchmark;
+	private IBenchmarkListener benchmarkListener;
+	private BenchmarkScreen benchmarkScreen;
 	
 	/* all the game modes */
 	public enum GameMode {
@@ -25,9 +41,32 @@ public class GameMain extends Game {
 									// within the allocated time
 	}
 
+	public GameMain() {
+	}
+	
+	/**
+	 * Starts straight into a benchmark run instead of the main menu. Nothing is saved
+	 * and no telemetry is recorded.
+	 * @param benchmark
+	 * @param listener receives the measurements
+	 */
+	public GameMain(BenchmarkScenario benchmark, IBenchmarkListener listener) {
+		this.benchmark = benchmark;
+		benchmarkListener = listener;
+	}
+
 	@Override
 	public void create () {
 		Assets.load();
+		if (benchmark != null) {
+			benchmarkScreen = new BenchmarkScreen(benchmark, benchmarkListener);
+			this.setScreen(benchmarkScreen);
+			return;
+		}
+		results = new ResultStore(Gdx.files.local(ResultStore.RESULTS_FILE));
+		telemetry = new Telemetry(Gdx.files.local(TELEMETRY_DIRECTORY), Telemetry.DEFAULT_CAPACITY);
+		metrics = new Metrics();
+		metricsExporter = new MetricsExporter(metrics, Gdx.files.local(METRICS_DIRECTORY));
 		mainMenuScreen = new MainMenuScreen(this);
 		this.setScreen(mainMenuScreen);
 	}
@@ -41,7 +80,15 @@ public class GameMain extends Game {
 	public void dispose() {
 		// dispose of all the native resources
 		Assets.dispose();
-		mainMenuScreen.dispose();
+		if (benchmarkScreen != null) {
+			benchmarkScreen.dispose();
+		}
+		else {
+			mainMenuScreen.dispose();
+			results.dispose();
+			telemetry.dispose();
+			metricsExporter.dispose();
+		}
 		Gdx.app.log("DISPOSING", "Released all assets resources");
 	}
 
@@ -0,0 +1,79 @@
+package com.code2play.quickout;
+
+import com.code2play.quickout.GameMain.GameMode;
+
+/**
+ * The result of one finished round, as kept by {@link ResultStore}
+ * @author Jitrapon
+ *
+ */
+public class GameResult {
+
+	private final GameMode gameMode;
+	private final int exitCode;
+	private final int score;
+	private final int ballCount;
+	private final int maxComboScore;
+	private final float timeLeft;
+	private final long timestamp;												// when the round ended, in milliseconds since the epoch
+
+	public GameResult(GameMode gameMode, int exitCode, int score, int ballCount, int maxComboScore,
+			float timeLeft, long timestamp) {
+		this.gameMode = gameMode;
+		this.exitCode = exitCode;
+		this.score = score;
+		this.ballCount = ballCount;
+		this.maxComboScore = maxComboScore;
+		this.timeLeft = timeLeft;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Returns the result of a level that has just ended
+	 * @param level
+	 */
+	public static GameResult of(Level level) {
+		return new GameResult(level.getGameMode(), level.getExitCode(), level.getScore(), level.getBallCount(),
+				level.getMaxComboScore(), Math.max(level.getTimeLeft(), 0f), System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns true if this result ranks above the other one: higher score first, then more balls,
+	 * then a higher combo, then the earlier round
+	 * @param other
+	 */
+	public boolean ranksAbove(GameResult other) {
+		if (score != other.score) return score > other.score;
+		if (ballCount != other.ballCount) return ballCount > other.ballCount;
+		if (maxComboScore != other.maxComboScore) return maxComboScore > other.maxComboScore;
+		return timestamp < other.timestamp;
+	}
+
+	public GameMode getGameMode() {
+		return gameMode;
+	}
+
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public int getBallCount() {
+		return ballCount;
+	}
+
+	public int getMaxComboScore() {
+		return maxComboScore;
+	}
+
+	public float getTimeLeft() {
+		return timeLeft;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
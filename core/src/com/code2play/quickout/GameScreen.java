@@ -1,5 +1,7 @@
 package com.code2play.quickout;
 
+import java.io.IOException;
+
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
@@ -7,10 +9,16 @@ import com.code2play.quickout.GameMain.GameMode;
 
 public class GameScreen implements Screen {
 
+	/** Every session is recorded here, replacing the previous one **/
+	public static final String REPLAY_FILE = "replays/last.replay";
+
 	private GameMain game;
 	private Level level;
 	private WorldView worldView;
 	private GameMode gameMode;
+	private ReplayRecorder recorder;
+	private boolean resultSaved;
+	private FrameProfiler profiler = new FrameProfiler();
 
 	public GameScreen(GameMain g, GameMode mode) {
 		// game instance is the same one as the first created
@@ -19,6 +27,46 @@ public class GameScreen implements Screen {
 		level = new Level(mode);
 		worldView = new WorldView(level);
 		level.setWorldRenderer(worldView);
+		level.setTelemetry(game.telemetry);
+		level.setProfiler(profiler);
+		level.setMetrics(game.metrics);
+		startRecording();
+	}
+	
+	/**
+	 * Resumes a saved round. Resumed rounds are not recorded, their replay would have to start 
+	 * from the beginning of the round.
+	 * @param g
+	 * @param snapshot
+	 */
+	public GameScreen(GameMain g, LevelSnapshot snapshot) {
+		gameMode = snapshot.getGameMode();
+		game = g;
+		level = new Level(gameMode, snapshot.getSeed());
+		worldView = new WorldView(level);
+		level.setWorldRenderer(worldView);
+		long start = System.nanoTime();
+		snapshot.restore(level);
+		level.setTelemetry(game.telemetry);
+		level.setProfiler(profiler);
+		level.setMetrics(game.metrics);
+		Gdx.app.log("SNAPSHOT", "Resumed in " + (System.nanoTime() - start) / 1000 + " us");
+	}
+	
+	/**
+	 * Records the session so that it can be replayed, the game runs unrecorded if the file cannot be written
+	 */
+	private void startRecording() {
+		try {
+			recorder = ReplayRecorder.create(Gdx.files.local(REPLAY_FILE));
+		}
+		catch (IOException e) {
+			Gdx.app.error("REPLAY", "Cannot record the session", e);
+			return;
+		}
+		level.setStateHashing(true);
+		recorder.begin(level);
+		level.setReplayRecorder(recorder);
 	}
 
 	@Override
@@ -27,11 +75,25 @@ public class GameScreen implements Screen {
 	 * renders them by WorldView
 	 */
 	public void render(float delta) {
+		profiler.beginFrame();
+		
 		// If we're not paused then update the world and the subsystems.
 		level.update(delta);
 		
+		// keep the result once the round has ended
+		if (!resultSaved && level.getExitCode() != Level.DEFAULT_EXIT) {
+			resultSaved = true;
+			game.results.add(GameResult.of(level));
+		}
+		
 		// Clear the screen and draw the views.
 		worldView.render(delta);
+		profiler.endFrame();
+		
+		// P on desktop, MENU on Android toggles the profiler's overlay
+		if (Gdx.input.isKeyJustPressed(Input.Keys.P) || Gdx.input.isKeyJustPressed(Input.Keys.MENU)) {
+			profiler.setOverlayVisible(!profiler.isOverlayVisible());
+		}
 		
 		// return to main menu 
 		// release all resources
@@ -49,28 +111,44 @@ public class GameScreen implements Screen {
 	@Override
 	public void show() {
 		Gdx.input.setCatchBackKey(true);
+		Gdx.input.setCatchMenuKey(true);
 	}
 
 	@Override
 	public void hide() {
 		Gdx.input.setCatchBackKey(false);
+		Gdx.input.setCatchMenuKey(false);
 	}
 
+	/**
+	 * The app may be killed while it is in the background, so the round is saved to be resumed
+	 * from the main menu
+	 */
 	@Override
 	public void pause() {
-		// TODO Auto-generated method stub
-
+		level.saveGame();
+		LevelSnapshot snapshot = level.getSnapshot();
+		Gdx.app.log("SNAPSHOT", "Captured " + snapshot.getSize() + " bytes in " 
+				+ snapshot.getCaptureNanos() / 1000 + " us");
 	}
 
 	@Override
 	public void resume() {
-		// TODO Auto-generated method stub
-
+		// the level is still in memory, the saved round is only needed if the app was killed
 	}
 
 	@Override
 	public void dispose() {
 		// never called automatically
+		if (recorder != null) {
+			recorder.finish(level);
+			if (recorder.getError() != null) Gdx.app.error("REPLAY", "Recording failed", recorder.getError());
+			else Gdx.app.log("REPLAY", "Recorded " + level.getTickCount() + " ticks in " 
+					+ recorder.getBytesWritten() + " bytes");
+		}
+		// the round is over, there is nothing left to resume
+		if (level.getSnapshot() != null) level.getSnapshot().waitForWrite();
+		Gdx.files.local(LevelSnapshot.SAVE_FILE).delete();
 		worldView.dispose();
 		level.exitGame();
 	}
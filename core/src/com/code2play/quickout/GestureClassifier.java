@@ -0,0 +1,203 @@
+package com.code2play.quickout;
+
+/**
+ * Turns the raw touch events of a {@link TouchEventQueue} into taps, drags and vacuum movement.
+ * Level runs it at the start of every simulation tick, so gestures change the game state
+ * at a fixed point of the simulation instead of in the middle of a frame.
+ *
+ * A tap normally resolves on touch-up, when the pointer stayed within the tap slop. It resolves
+ * right on touch-down when exactly one ball is under the finger and a drag could not do anything
+ * a tap does not: no other ball of its colour is onscreen to collide with, and the current
+ * move does not ask for a fling. Pointers that move past the slop start a drag instead.
+ * @author Jitrapon
+ *
+ */
+public class GestureClassifier {
+
+	/** distance in world units a pointer may move and still tap */
+	private static final float TAP_SLOP = 25f;
+
+	/** longest press in seconds that still counts as a tap */
+	private static final float MAX_TAP_DURATION = 1.0f;
+
+	private final Level level;
+
+	/* state of each pointer */
+	private final boolean[] down;
+	private final boolean[] resolved;					// the pointer's tap has already been applied on touch-down
+	private final boolean[] dragging;
+	private final float[] downX;
+	private final float[] downY;
+	private final long[] downTime;
+
+	/* counters, for profiling */
+	private int instantTaps;
+	private int taps;
+	private int drags;
+
+	public GestureClassifier(Level level) {
+		this.level = level;
+		int pointers = DragManager.MAX_POINTERS;
+		down = new boolean[pointers];
+		resolved = new boolean[pointers];
+		dragging = new boolean[pointers];
+		downX = new float[pointers];
+		downY = new float[pointers];
+		downTime = new long[pointers];
+	}
+
+	/**
+	 * Consumes every event in the queue
+	 * @param events
+	 */
+	public void process(TouchEventQueue events) {
+		while (events.poll()) {
+			int pointer = events.getPointer();
+			if (events.getType() == TouchEventQueue.ITEM_SLOT) {
+				level.activateSlotItem(pointer);
+				continue;
+			}
+			if (pointer < 0 || pointer >= down.length) continue;
+
+			switch (events.getType()) {
+			case TouchEventQueue.TOUCH_DOWN:
+				touchDown(pointer, events.getX(), events.getY(), events.getTime());
+				break;
+			case TouchEventQueue.TOUCH_DRAGGED:
+				touchDragged(pointer, events.getX(), events.getY(), events.getTime());
+				break;
+			case TouchEventQueue.TOUCH_UP:
+				touchUp(pointer, events.getX(), events.getY(), events.getTime());
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private void touchDown(int pointer, float x, float y, long time) {
+		down[pointer] = true;
+		resolved[pointer] = false;
+		dragging[pointer] = false;
+		downX[pointer] = x;
+		downY[pointer] = y;
+		downTime[pointer] = time;
+
+		if (level.itemVacuumActive) {
+			if (!level.isOutOfBounds(x, y)) {
+				level.itemVacuumApplied = true;
+				level.vacuumPos.set(x, y, 0);
+			}
+		}
+
+		// items always wait for touch-up, they may be dragged into the item slot
+		EntityPicker picker = level.getPicker();
+		if (picker.pickItem(x, y) != null) return;
+
+		Ball ball = picker.pickBall(x, y);
+		if (ball != null && picker.getCandidateCount() == 1 && canTapOnTouchDown(ball)) {
+			ball.setState(Ball.TAPPED);
+			resolved[pointer] = true;
+			instantTaps++;
+		}
+	}
+
+	private boolean canTapOnTouchDown(Ball ball) {
+		if (level.getDragManager().isDragging(ball)) return false;
+		if (level.getOnscreenBallCount(ball.tag) != 1) return false;
+		return level.getMoveSet().getMoves().first().moveType != MoveType.FLING;
+	}
+
+	private void touchDragged(int pointer, float x, float y, long time) {
+		if (!down[pointer] || resolved[pointer]) return;
+
+		// the vacuum effect takes over dragging while it is applied
+		if (level.itemVacuumActive && level.itemVacuumApplied) {
+			if (!level.isOutOfBounds(x, y)) {
+				level.vacuumPos.set(x, y, 0);
+			}
+			return;
+		}
+
+		DragManager dragManager = level.getDragManager();
+		if (dragging[pointer]) {
+			dragManager.moveDrag(pointer, x, y, time);
+		}
+		else if (Math.abs(x - downX[pointer]) > TAP_SLOP || Math.abs(y - downY[pointer]) > TAP_SLOP) {
+			if (dragManager.startDrag(pointer, x, y, time)) {
+				dragging[pointer] = true;
+				drags++;
+			}
+		}
+	}
+
+	private void touchUp(int pointer, float x, float y, long time) {
+		if (!down[pointer]) return;
+		down[pointer] = false;
+
+		// the vacuum only pulls while a finger is on the screen
+		if (!isAnyPointerDown()) level.itemVacuumApplied = false;
+
+		if (dragging[pointer]) {
+			dragging[pointer] = false;
+			level.getDragManager().endDrag(pointer, x, y, time);
+			return;
+		}
+		if (resolved[pointer]) return;
+
+		// too far or too long for a tap
+		if (Math.abs(x - downX[pointer]) > TAP_SLOP || Math.abs(y - downY[pointer]) > TAP_SLOP) return;
+		if ((time - downTime[pointer]) / 1000000000f > MAX_TAP_DURATION) return;
+
+		// another pointer may be dragging what is under this one, only its drag may release it
+		DragManager dragManager = level.getDragManager();
+		Item item = level.getPicker().pickItem(x, y);
+		if (item != null && !dragManager.isDragging(item)) {
+			item.setActive(true);
+			taps++;
+			return;
+		}
+
+		Ball ball = level.getPicker().pickBall(x, y);
+		if (ball != null && !dragManager.isDragging(ball)) {
+			ball.setState(Ball.TAPPED);
+			taps++;
+		}
+	}
+
+	private boolean isAnyPointerDown() {
+		for (int i = 0; i < down.length; i++) {
+			if (down[i]) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Forgets every pointer, used when the round is over
+	 */
+	public void reset() {
+		for (int i = 0; i < down.length; i++) {
+			down[i] = false;
+			resolved[i] = false;
+			dragging[i] = false;
+		}
+	}
+
+	/**
+	 * Returns the number of taps resolved on touch-down
+	 */
+	public int getInstantTaps() {
+		return instantTaps;
+	}
+
+	/**
+	 * Returns the number of taps resolved on touch-up
+	 */
+	public int getTaps() {
+		return taps;
+	}
+
+	public int getDrags() {
+		return drags;
+	}
+}
@@ -0,0 +1,119 @@
+package com.code2play.quickout;
+
+/**
+ * Turns noisy accelerometer readings into gravity changes worth applying to the world.
+ * Readings go through a low-pass filter, then a dead zone (with hysteresis) that snaps small
+ * tilts on each axis to zero. A new gravity is only reported when it differs from the last
+ * reported one by more than a threshold, so sensor noise never reaches Box2D and sleeping
+ * bodies are only woken by a real tilt. Nothing is allocated.
+ * @author Jitrapon
+ *
+ */
+public class GravityFilter {
+
+	/* configuration */
+	private float timeConstant = 0.1f;					// low-pass time constant in seconds, 0 disables filtering
+	private float deadZone = 0.5f;						// filtered values below this are treated as zero
+	private float hysteresis = 0.25f;					// extra value needed to leave the dead zone again
+	private float threshold = 0.3f;						// smallest change of the reported gravity
+
+	/* filter state */
+	private boolean primed;								// whether the filter has seen a reading yet
+	private float filteredX;
+	private float filteredY;
+	private boolean zeroX;								// whether each axis is currently in its dead zone
+	private boolean zeroY;
+
+	/* the last reported gravity */
+	private float gravityX;
+	private float gravityY;
+
+	/* counters */
+	private int samples;
+	private int changes;
+
+	/**
+	 * @param timeConstant low-pass time constant in seconds, 0 disables filtering
+	 * @param deadZone filtered values below this are treated as zero
+	 * @param hysteresis extra value needed to leave the dead zone again
+	 * @param threshold smallest change of the reported gravity
+	 */
+	public void configure(float timeConstant, float deadZone, float hysteresis, float threshold) {
+		this.timeConstant = timeConstant;
+		this.deadZone = deadZone;
+		this.hysteresis = hysteresis;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Feeds a new reading
+	 * @param x gravity on the x axis derived from the sensor
+	 * @param y gravity on the y axis derived from the sensor
+	 * @param delta time in seconds since the last reading
+	 * @return true if the gravity changed enough to be applied, see {@link #getGravityX()}, {@link #getGravityY()}
+	 */
+	public boolean update(float x, float y, float delta) {
+		samples++;
+		if (!primed) {
+			filteredX = x;
+			filteredY = y;
+			primed = true;
+		}
+		else {
+			float a = timeConstant <= 0 ? 1.0f : delta / (timeConstant + delta);
+			filteredX += (x - filteredX) * a;
+			filteredY += (y - filteredY) * a;
+		}
+
+		zeroX = inDeadZone(filteredX, zeroX);
+		zeroY = inDeadZone(filteredY, zeroY);
+		float newX = zeroX ? 0 : filteredX;
+		float newY = zeroY ? 0 : filteredY;
+
+		float dx = newX - gravityX;
+		float dy = newY - gravityY;
+		if (changes > 0 && dx * dx + dy * dy <= threshold * threshold) return false;
+
+		gravityX = newX;
+		gravityY = newY;
+		changes++;
+		return true;
+	}
+
+	private boolean inDeadZone(float value, boolean wasInDeadZone) {
+		float limit = wasInDeadZone ? deadZone + hysteresis : deadZone;
+		return Math.abs(value) < limit;
+	}
+
+	/**
+	 * Forgets every reading, the next one is reported as it is
+	 */
+	public void reset() {
+		primed = false;
+		zeroX = false;
+		zeroY = false;
+		changes = 0;
+	}
+
+	public float getGravityX() {
+		return gravityX;
+	}
+
+	public float getGravityY() {
+		return gravityY;
+	}
+
+	/**
+	 * Returns the number of readings fed since the filter was created
+	 */
+	public int getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Returns the number of gravity changes reported since the last reset
+	 */
+	public int getChanges() {
+		return changes;
+	}
+}
@@ -0,0 +1,44 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * Label that shows a number. The text is only rebuilt when the number changes, 
+ * and is written into the label's own buffer so that no String is created.
+ * @author Jitrapon
+ *
+ */
+public class IntLabel extends Label {
+	
+	private int value;									// the number shown
+	private boolean valueSet;							// false while the label shows text instead
+	
+	public IntLabel(CharSequence text, LabelStyle style) {
+		super(text, style);
+	}
+	
+	/**
+	 * Shows a number in place of the current text
+	 * @param value
+	 */
+	public void setInt(int value) {
+		if (valueSet && this.value == value) return;
+		this.value = value;
+		valueSet = true;
+		StringBuilder text = getText();
+		text.setLength(0);
+		text.append(value);
+		invalidateHierarchy();
+	}
+	
+	public int getInt() {
+		return value;
+	}
+	
+	@Override
+	public void setText(CharSequence newText) {
+		valueSet = false;
+		super.setText(newText);
+	}
+}
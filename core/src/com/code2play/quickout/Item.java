@@ -1,21 +1,18 @@
 package com.code2play.quickout;
 
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.badlogic.gdx.physics.box2d.CircleShape;
-import com.badlogic.gdx.physics.box2d.Filter;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.code2play.game.IGameItem;
 import com.code2play.quickout.Level.ItemType;
 
 /**
  * Items are enhancements in a level to boost bonus gold and scores.
- * Items can be stored in slots.
+ * Items can be stored in slots. Items are pooled per type by {@link ItemFactory} together with
+ * their Box2D body, which is only deactivated while the item is not in the world.
  * @author Jitrapon
  *
  */
-public abstract class Item extends Entity implements IGameItem {
+public abstract class Item extends Entity implements IGameItem, Poolable {
 	
 	// physical values
 	public boolean slotted;								// whether this item has been slotted
@@ -27,10 +24,12 @@ public abstract class Item extends Entity implements IGameItem {
 	private Animation animation;						// Current animation
 
 	/* item values */
-	private final float MAX_DURATION;					// item's effect duration in seconds
+	private float maxDuration;							// item's effect duration in seconds
 	private boolean active;								// whether or not the item's effect are currently active
 	private float lifeTime;								// item's lifetime before it disappears
-
+	private float initialLifeTime;						// item's lifetime when spawned
+	private boolean bodyActive;							// whether the body is (or is about to be) in the simulation
+	
 	/* ALL ITEM STATE (default idle state) */
 	public static final int ACTIVE = 0;					// indicates the item is just being tapped and active
 	public static final int FLINGED = 1;				// indicates the item is just being flinged
@@ -39,25 +38,85 @@ public abstract class Item extends Entity implements IGameItem {
 	/* other properties */
 
 	/**
-	 * Initializes a generic item.
-	 * @param animList
+	 * Initializes a generic item. Items are created by the ItemFactory only.
 	 * @param radius
+	 * @param type
+	 * @param maxDuration
+	 * @param lifeTime
 	 * @param level 
-	 * @param tag
 	 */
-	public Item(Animation animation, float radius, ItemType type, 
-			float maxDuration, float lifeTime, Level level) {
+	public Item(float radius, ItemType type, float maxDuration, float lifeTime, Level level) {
 		super(radius);
 		this.level = level;
-		this.animation = animation;
 		this.type = type;
 		this.radius = radius;
-		MAX_DURATION = maxDuration;
-		this.lifeTime = lifeTime;
+		setDuration(maxDuration, lifeTime);
 		active = false;
 		slotted = false;
 	}
 	
+	/**
+	 * Sets how long the effect lasts and how long the item stays onscreen before it disappears
+	 * @param maxDuration effect duration in seconds
+	 * @param lifeTime lifetime in seconds
+	 */
+	public void setDuration(float maxDuration, float lifeTime) {
+		this.maxDuration = maxDuration;
+		this.lifeTime = lifeTime;
+		initialLifeTime = lifeTime;
+	}
+	
+	/**
+	 * Brings a pooled item back into the level at the specified world coordinate.
+	 * @param animation the item's animation, null when running without assets
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 */
+	public void activate(Animation animation, float posX, float posY) {
+		this.animation = animation;
+		
+		body.setTransform(posX * WORLD_TO_BOX, posY * WORLD_TO_BOX, 0.0f);
+		body.setLinearVelocity(0.0f, 0.0f);
+		body.setAngularVelocity(0.0f);
+		level.getPhysicsCommands().activateBody(body);
+		bodyActive = true;
+		x = posX;
+		y = posY;
+		prevX = posX;
+		prevY = posY;
+		bounds.x = posX;
+		bounds.y = posY;
+	}
+	
+	/**
+	 * Resets the state common to all items, called by the pool when this item is freed
+	 */
+	@Override
+	public void reset() {
+		slotted = false;
+		removed = false;
+		active = false;
+		beginActive = true;
+		lifeTime = initialLifeTime;
+		state = INACTIVE;
+		stateTime = 0.0f;
+		numContacts = 0;
+	}
+	
+	/**
+	 * Restores the state of a freshly obtained item from a level snapshot. Items whose effect
+	 * is running or that wait in the item slot are taken out of the simulation.
+	 */
+	public void restore(int state, float stateTime, float lifeTime, boolean beginActive, boolean slotted) {
+		setState(state);
+		active = state == ACTIVE;
+		this.stateTime = stateTime;
+		this.lifeTime = lifeTime;
+		this.beginActive = beginActive;
+		this.slotted = slotted;
+		if (state == ACTIVE || state == SLOTTED) dispose();
+	}
+	
 	public boolean isActive() {
 		return active;
 	}
@@ -85,71 +144,19 @@ public abstract class Item extends Entity implements IGameItem {
 	public void setState(int state) {
 		// do nothing if current state equals state
 		if (state != this.state) {
+			
+			// the level's contact filter lets flinged items pass through everything
+			if (state == FLINGED || this.state == FLINGED) {
+				level.getPhysicsCommands().refilter(getFixture());
+			}
 			this.state = state;
 			stateTime = 0.0f;
-
-			if (state == FLINGED) {
-				// get existing fixture and change category bits to filter every collision out
-				Filter filter = this.getFilterData();
-				filter.maskBits = 0x0;
-				this.setFilterData(filter);
-			}
 		}
 		else {
 			// do what ?
 		}
 	}
 
-	/**
-	 * Attach the Box2D physics body to this entity with the shape of circle and initialize
-	 * certain physical properties
-	 * @param x Initial x position
-	 * @param y Initial y position
-	 */
-	public void attachPhysicsBody(short categoryBits, float x, float y, float density, float linearDamping, 
-			float friction, float restitution) {
-
-		// First we create a body definition
-		bodyDef = new BodyDef();
-
-		// We set our body to dynamic, for something like ground which doesn't move we would set it to StaticBody
-		bodyDef.type = BodyType.DynamicBody;
-
-		// Set our body's starting position in the world
-		bodyDef.position.set(x * WORLD_TO_BOX, y * WORLD_TO_BOX);
-		this.x = x;
-		this.y = y;
-		bounds.x = x;
-		bounds.y = y;
-
-		// Create our body in the world using our body definition
-		body = level.getPhysicsWorld().createBody(bodyDef);
-		body.setLinearDamping(linearDamping);
-
-		// Create a circle shape and set its radius
-		circle = new CircleShape();
-		circle.setRadius(this.radius * WORLD_TO_BOX);
-
-		// Create a fixture definition to apply our shape to
-		fixtureDef = new FixtureDef();
-		fixtureDef.shape = circle;
-		fixtureDef.density = density; 
-		fixtureDef.friction = friction;
-		fixtureDef.restitution = restitution; 
-
-		// Default fixture category bits for collision filtering in-game
-		fixtureDef.filter.categoryBits = categoryBits;
-
-		body.createFixture(fixtureDef);
-
-		// Remember to dispose of any shapes after you're done with them!
-		// BodyDef and FixtureDef don't need disposing, but shapes do.
-		circle.dispose();
-
-		// add this object to the body's user data for later reference
-		body.setUserData(this);
-	}
-
 	/**
 	 * Update the item bubble by each iteration of the world step
 	 */
@@ -159,17 +166,7 @@ public abstract class Item extends Entity implements IGameItem {
 		
 		// out of time
 		if (lifeTime <= 0f) {
-			
-			// get rid of mousejoint
-			if (level.getWorldRenderer().mouseJoint != null) {
-				level.getWorldRenderer().draggedItem = null;
-				level.getPhysicsWorld().destroyJoint(level.getWorldRenderer().mouseJoint);
-				level.getWorldRenderer().mouseJoint = null;
-			} 
-			
-			if (body != null) 
-				dispose();
-			
+			dispose();
 			removed = true;
 			return;
 		}
@@ -182,8 +179,7 @@ public abstract class Item extends Entity implements IGameItem {
 
 		/* the item is tapped and now its effect is active */
 		case ACTIVE:
-			if (body != null) 
-				dispose();
+			dispose();
 			
 			if (level.resetItemEffectDuration(this)) {
 				removed = true;
@@ -192,12 +188,13 @@ public abstract class Item extends Entity implements IGameItem {
 			
 			// called in the beginning of the effect
 			if (beginActive) {
+				level.record(Telemetry.ITEM_ACTIVATED, type.ordinal(), slotted ? 1 : 0, 0, 0f);
 				onEffectStarted(delta);
 				beginActive = false;
 			}
 			
 			// while still in duration, call active effect
-			if (stateTime > MAX_DURATION) {
+			if (stateTime > maxDuration) {
 				this.removed = true;
 				onEffectFinished(delta);
 			}
@@ -214,11 +211,7 @@ public abstract class Item extends Entity implements IGameItem {
 					|| y + radius < level.getMinY() || y - radius > level.getMaxY()) {
 				
 				// get rid of mousejoint
-				if (level.getWorldRenderer().mouseJoint != null) {
-					level.getWorldRenderer().draggedItem = null;
-					level.getPhysicsWorld().destroyJoint(level.getWorldRenderer().mouseJoint);
-					level.getWorldRenderer().mouseJoint = null;
-				} 
+				level.getDragManager().release(this);
 				
 				// get rid of item physics stuff
 				dispose();
@@ -250,13 +243,19 @@ public abstract class Item extends Entity implements IGameItem {
 			break;
 		}
 
+		savePreviousPosition();
 		x = body.getPosition().x * BOX_TO_WORLD;
 		y = body.getPosition().y * BOX_TO_WORLD;
 	}
 
+	/**
+	 * Takes the body out of the simulation, the body itself is kept for reuse by the pool
+	 */
 	@Override
 	public void dispose() {
-		level.getPhysicsWorld().destroyBody(body);
-		body = null;
+		if (bodyActive) {
+			level.getPhysicsCommands().deactivateBody(body);
+			bodyActive = false;
+		}
 	}
 }
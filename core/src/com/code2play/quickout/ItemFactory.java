@@ -0,0 +1,169 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+import com.code2play.game.IItemCreator;
+import com.code2play.quickout.Level.EntityType;
+import com.code2play.quickout.Level.ItemType;
+
+/**
+ * Registry of all item types available in a level. Each ItemType registers a creator, 
+ * and items of that type are pooled together with their Box2D bodies. 
+ * Adding a new item only requires registering its creator.
+ * @author Jitrapon
+ *
+ */
+public class ItemFactory {
+	
+	private final Level level;
+	private final ObjectMap<ItemType, ItemPool> pools;
+	private final Array<ItemType> types;						// registered types, in order of registration
+	
+	/* shared Box2D definitions, every item has the same shape */
+	private final BodyDef bodyDef;
+	private final FixtureDef fixtureDef;
+	private final CircleShape circle;
+	
+	/* physical values of every item */
+	private static final float DENSITY = 1.0f;
+	private static final float LINEAR_DAMPING = 1.0f;
+	private static final float FRICTION = 1.0f;
+	private static final float RESTITUTION = 1.0f;
+	
+	/**
+	 * Pool of a single item type
+	 */
+	private class ItemPool extends Pool<Item> {
+		
+		private final IItemCreator creator;
+		
+		ItemPool(IItemCreator creator) {
+			this.creator = creator;
+		}
+
+		@Override
+		protected Item newObject() {
+			Item item = creator.create(level);
+			Body body = level.getPhysicsWorld().createBody(bodyDef);
+			body.createFixture(fixtureDef);
+			item.setBody(body);
+			level.registerEntity(item, EntityType.SPECIAL);
+			return item;
+		}
+		
+		@Override
+		protected void reset(Item item) {
+			item.reset();
+			creator.reset(item);
+		}
+	}
+	
+	public ItemFactory(Level level, float radius) {
+		this.level = level;
+		pools = new ObjectMap<ItemType, ItemPool>();
+		types = new Array<ItemType>();
+		
+		// bodies start deactivated, they are activated on spawn
+		bodyDef = new BodyDef();
+		bodyDef.type = BodyType.DynamicBody;
+		bodyDef.active = false;
+		bodyDef.linearDamping = LINEAR_DAMPING;
+		
+		circle = new CircleShape();
+		circle.setRadius(radius * Level.WORLD_TO_BOX);
+		
+		fixtureDef = new FixtureDef();
+		fixtureDef.shape = circle;
+		fixtureDef.density = DENSITY;
+		fixtureDef.friction = FRICTION;
+		fixtureDef.restitution = RESTITUTION;
+		
+		// Default fixture category bits for collision filtering in-game
+		fixtureDef.filter.categoryBits = EntityType.SPECIAL.getCategoryBits();
+	}
+	
+	/**
+	 * Registers the creator of an item type. Registering a type again replaces its creator.
+	 * @param type
+	 * @param creator
+	 */
+	public void register(ItemType type, IItemCreator creator) {
+		if (!pools.containsKey(type)) types.add(type);
+		pools.put(type, new ItemPool(creator));
+	}
+	
+	/**
+	 * Returns all registered item types
+	 */
+	public Array<ItemType> getTypes() {
+		return types;
+	}
+	
+	/**
+	 * Returns an item of the specified type that is active in the world at the specified world coordinate
+	 * @param type a registered item type
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 * @return the item, or null if the type is not registered
+	 */
+	public Item obtain(ItemType type, float posX, float posY) {
+		ItemPool pool = pools.get(type);
+		if (pool == null) return null;
+		
+		Item item = pool.obtain();
+		item.activate(Assets.getItemAnimation(type), posX, posY);
+		return item;
+	}
+	
+	/**
+	 * Creates inactive items of every registered type up front so that spawning never creates bodies mid-game
+	 * @param count the number of free items to have available per type
+	 */
+	public void prefill(int count) {
+		Array<Item> created = new Array<Item>(count);
+		for (int i = 0; i < types.size; i++) {
+			ItemPool pool = pools.get(types.get(i));
+			created.clear();
+			for (int j = pool.getFree(); j < count; j++) {
+				created.add(pool.newObject());
+			}
+			pool.freeAll(created);
+		}
+	}
+	
+	/**
+	 * Returns the number of pooled items of every type, whose bodies are inactive
+	 */
+	public int getFree() {
+		int free = 0;
+		for (int i = 0; i < types.size; i++) {
+			free += pools.get(types.get(i)).getFree();
+		}
+		return free;
+	}
+	
+	/**
+	 * Returns a removed item to its type's pool
+	 * @param item
+	 */
+	public void free(Item item) {
+		item.dispose();
+		pools.get(item.type).free(item);
+	}
+	
+	/**
+	 * Release the shared shape. Pooled bodies are released together with the world.
+	 */
+	public void dispose() {
+		circle.dispose();
+		for (ItemPool pool : pools.values()) {
+			pool.clear();
+		}
+	}
+}
@@ -129,6 +129,25 @@ public class ItemSlot {
 			fillIndex++;
 	}
 
+	/**
+	 * Puts an item straight into a slot, used when restoring a level snapshot
+	 * @param index
+	 * @param item
+	 */
+	public void setItemAt(int index, Item item) {
+		if (slots[index] == null && item != null) size++;
+		else if (slots[index] != null && item == null) size--;
+		slots[index] = item;
+	}
+	
+	/**
+	 * Sets the slot the next stored item goes into, used when restoring a level snapshot
+	 * @param index
+	 */
+	public void setNextFillSlotIndex(int index) {
+		fillIndex = index;
+	}
+
 	/**
 	 * Determines whether the slots are full. By default, full slots can still 
 	 * store items, but they will replace the existing ones.
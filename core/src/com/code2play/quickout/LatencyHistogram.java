@@ -0,0 +1,87 @@
+package com.code2play.quickout;
+
+/**
+ * Histogram of durations in nanoseconds with fixed log-linear buckets: every power of two is split
+ * into 8 buckets, so any recorded value is known within 12.5%. The buckets are allocated once,
+ * recording and reading percentiles never allocate.
+ * Durations past {@link #MAX_NANOS} fall into the last bucket.
+ * @author Jitrapon
+ *
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 34;
+	public static final long MAX_NANOS = 1L << MAX_EXPONENT;				// about 17 seconds
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long max;
+
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts[bucketOf(nanos)]++;
+		count++;
+		if (nanos > max) max = nanos;
+	}
+
+	/**
+	 * Returns the duration below which the given fraction of the recorded durations fall,
+	 * as the upper bound of its bucket, 0 if nothing was recorded
+	 * @param quantile between 0 and 1
+	 */
+	public long getPercentile(double quantile) {
+		if (count == 0) return 0;
+		long rank = (long) Math.ceil(quantile * count);
+		if (rank < 1) rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS - 1; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(lowerBoundOf(i + 1) - 1, max);
+		}
+		
+		// the last bucket has no upper bound
+		return max;
+	}
+
+	/**
+	 * Adds every duration recorded by another histogram
+	 * @param other
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+		count += other.count;
+		if (other.max > max) max = other.max;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) counts[i] = 0;
+		count = 0;
+		max = 0;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	private static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS) return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent >= MAX_EXPONENT) return BUCKETS - 1;
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long lowerBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		int sub = bucket % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+}
@@ -1,10 +1,11 @@
 package com.code2play.quickout;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Random;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
@@ -13,15 +14,23 @@ import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Contact;
 import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactFilter;
 import com.badlogic.gdx.physics.box2d.ContactListener;
 import com.badlogic.gdx.physics.box2d.EdgeShape;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Array.ArrayIterator;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Pool.Poolable;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.code2play.game.IGameManager;
+import com.code2play.game.IItemCreator;
+import com.code2play.game.IWorldRenderer;
 import com.code2play.game.items.GoldenTouchItem;
 import com.code2play.game.items.VacuumItem;
 import com.code2play.quickout.GameMain.GameMode;
@@ -36,15 +45,36 @@ import com.code2play.quickout.GameMain.GameMode;
 public class Level implements IGameManager {
 
 	/* Reference to WorldView */
-	private WorldView worldView;
+	private IWorldRenderer worldView;
 
 	/* Box2D World constants */
 	private World world;
 	private CollisionListener bListener;
+	private CollisionFilter bFilter;
+	private ContactEventQueue contactEvents;									// contacts recorded during the step, drained after it
+	private Array<Entity> entities;												// every entity with a body, indexed by entity id
+	private EntityPicker picker;												// finds entities under a touch point
+	private DragManager dragManager;											// one drag per touch pointer
+	private TouchEventQueue touchEvents;										// raw touch input, consumed at the start of each tick
+	private GestureClassifier gestures;											// turns touch input into taps and drags
+	private PhysicsCommandBuffer physicsCommands;								// world mutations applied once per tick
 	private Vector2 gravity = new Vector2();
-	private float timeStep = 1/45f;
-	private int velocityIterations = 6;
-	private int positionIterations = 2;
+	private float timeStep = 1/45f;												// fixed simulation step in seconds
+	private PhysicsQualityController physicsQuality;							// solver iterations, adjusted to the measured step time
+	private static final int MAX_SUBSTEPS = 5;									// maximum simulation ticks run per rendered frame
+	private static final float MAX_FRAME_TIME = 0.25f;							// longest frame delta that will be simulated
+	private float accumulator = 0.0f;											// unsimulated time carried over to the next frame
+	private float alpha = 0.0f;													// interpolation factor between the last two ticks
+	private RandomService random;												// every random number of this level session
+	private long tickCount;														// number of ticks simulated since the level started
+	private StateHasher stateHasher;											// hashes the simulation state after each tick, null when off
+	private long stateHash;														// hash chained over every tick so far
+	private ReplayRecorder replayRecorder;										// records the input of every tick, null when off
+	private ReplayPlayer replayPlayer;											// feeds recorded input into every tick, null when off
+	private LevelSnapshot snapshot;												// reused by saveGame, created on the first save
+	private Telemetry telemetry;													// gameplay event stream, null when off
+	private FrameProfiler profiler;												// times the phases of each tick, null when off
+	private Metrics metrics;														// runtime counters and gauges, null when off
 
 	public static final float WORLD_TO_BOX = 1/75f;		
 	public static final float BOX_TO_WORLD = 75.0f;	
@@ -62,6 +92,8 @@ public class Level implements IGameManager {
 	public boolean gravityEnabled = true;
 	private static final float BALL_RADIUS = 75.0f;
 	public static final float ITEM_RADIUS = 50.0f;
+	private static final float ITEM_DURATION = 7.0f;							// duration of an item's effect in seconds
+	private static final float ITEM_LIFE_TIME = 5.0f;							// time in seconds before an unused item disappears
 	public static final int MAX_NUM_OBJECT_ONSCREEN = 20;						// maximum number of spawnable objects onscreen at this level
 	public static final int VIRTUAL_WIDTH = 900;								// the screen width in world's coordinate
 	public static final int VIRTUAL_HEIGHT = 1600;								// the screen height in world's coordinate
@@ -72,6 +104,10 @@ public class Level implements IGameManager {
 	private float timeLeft;														// time left in this level round
 	private static final float RESPAWN_TIME = 0.2f;								// time in seconds before the next respawn
 	private static final float MOVE_CHANGE_TIME = 6.5f;							// if used, indicates the time in seconds before the next moveset is changed
+	private static final int ITEM_COMBO_INTERVAL = 7;							// an item is spawned every this many combos
+	private float respawnTime = RESPAWN_TIME;									// tunable copies of the constants above, for balancing runs
+	private float moveChangeTime = MOVE_CHANGE_TIME;
+	private int itemComboInterval = ITEM_COMBO_INTERVAL;
 	public boolean spawnMoreBalls = true;										// indicates whether to continue spawning more balls
 	private static final int MAX_NUM_ITEMS = 3;									// maximum number of item slots
 	public static final int TIME_MODE_MAX_COUNT = 150;							// time mode max ball count
@@ -86,12 +122,16 @@ public class Level implements IGameManager {
 	private float time = 0;														// current time elapsed since the start of the level
 	private int score = 0;														// current level's score
 	private int comboScore = 0;													// current level's combo score
+	private int maxComboScore = 0;												// highest combo score reached in this level
 	private int ballCount = 0;													// current level's ball collected!!!
 	private float spawnTime = 0.0f;												// keep tracks of current time in seconds (for next respawn)
-	private Array<Ball> balls;													// contains the list of balls onscreen at this level
+	private BallTable balls;													// contains the balls onscreen at this level
+	private BallPool ballPool;													// recycles balls and their bodies
 	private Array<ScoreIndicator> ballPoints;									// contains the list of points worth of all balls 
 																				// to be used for rendering
+	private Pool<ScoreIndicator> scoreIndicatorPool;							// recycles ballPoints once a frame has shown them
 	private ItemSlot itemSlot;													// storing items
+	private ItemFactory itemFactory;											// creates and recycles items of every type
 	private Array<Item> items;
 	private ArrayIterator<Item> itemIter1;
 	private ArrayIterator<Item> itemIter2;
@@ -106,6 +146,7 @@ public class Level implements IGameManager {
 	public static final int RED = 2;
 	public static final int YELLOW = 3;
 	public static final int ANY = 4;
+	public static final int NUM_BALL_TYPES = 4;
 	
 	/* Item Type Constants */
 	public enum ItemType {
@@ -130,40 +171,74 @@ public class Level implements IGameManager {
 	}
 	
 	/** Score indicator on every points taken used in the game HUD **/
-	class ScoreIndicator {
+	class ScoreIndicator implements Poolable {
 		float posX;
 		float posY;
 		int score;
 		boolean isPenalty;
 		
-		public ScoreIndicator(float posX, float posY, int score) {
+		ScoreIndicator set(float posX, float posY, int score, boolean isPenalty) {
 			this.posX = posX;
 			this.posY = posY;
 			this.score = score;
-			this.isPenalty = false;
+			this.isPenalty = isPenalty;
+			return this;
 		}
 		
-		public ScoreIndicator(float posX, float posY, int score, boolean isPenalty) {
-			this(posX, posY, score);
-			this.isPenalty = true;
+		@Override
+		public void reset() {
+			posX = 0;
+			posY = 0;
+			score = 0;
+			isPenalty = false;
 		}
 	}
 
 	/**
-	 * Default ctor
+	 * Default ctor, the level's randomness is seeded from the current time
 	 * @param mode 
 	 */
 	public Level(GameMode mode) {
+		this(mode, TimeUtils.nanoTime());
+	}
+	
+	/**
+	 * Creates a level whose randomness starts from the seed. Two levels with the same seed
+	 * and the same input play out identically.
+	 * @param mode
+	 * @param seed
+	 */
+	public Level(GameMode mode, long seed) {
 		// construct the world object. this object contains all physics objects/bodies and simulates
 		// interactions between them. 
 		gameMode = mode;
-		world = new World(gravity, false);
+		random = new RandomService(seed);
+		world = new World(gravity, true);
+		physicsQuality = new PhysicsQualityController(6, 2);
 		bListener = new CollisionListener();
 		world.setContactListener(bListener);
-		balls = new Array<Ball>(MAX_NUM_OBJECT_ONSCREEN);
+		bFilter = new CollisionFilter();
+		world.setContactFilter(bFilter);
+		contactEvents = new ContactEventQueue(MAX_NUM_OBJECT_ONSCREEN * 4);
+		entities = new Array<Entity>(MAX_NUM_OBJECT_ONSCREEN * 2);
+		picker = new EntityPicker(this);
+		dragManager = new DragManager(this);
+		touchEvents = new TouchEventQueue(64);
+		gestures = new GestureClassifier(this);
+		physicsCommands = new PhysicsCommandBuffer(world);
+		balls = new BallTable(MAX_NUM_OBJECT_ONSCREEN, NUM_BALL_TYPES);
+		ballPool = new BallPool(this, BALL_RADIUS, MAX_NUM_OBJECT_ONSCREEN);
 		items = new Array<Item>();
+		itemFactory = new ItemFactory(this, ITEM_RADIUS);
+		registerItemTypes();
 		activeItemEffects = new Array<ItemType>();
 		ballPoints = new Array<ScoreIndicator>(MAX_NUM_OBJECT_ONSCREEN);
+		scoreIndicatorPool = new Pool<ScoreIndicator>(MAX_NUM_OBJECT_ONSCREEN) {
+			@Override
+			protected ScoreIndicator newObject() {
+				return new ScoreIndicator();
+			}
+		};
 		itemSlot = new ItemSlot(MAX_NUM_ITEMS);
 		itemIter1 = new ArrayIterator<Item>(items);
 		itemIter2 = new ArrayIterator<Item>(items);
@@ -186,18 +261,22 @@ public class Level implements IGameManager {
 	 * @param viewRenderer
 	 */
 	@Override
-	public void setWorldRenderer(WorldView viewRenderer) {
+	public void setWorldRenderer(IWorldRenderer viewRenderer) {
 		worldView = viewRenderer;
 	}
 
 	@Override
-	public WorldView getWorldRenderer() {
+	public IWorldRenderer getWorldRenderer() {
 		return worldView;
 	}
 
-	public Array<Ball> getBalls() {
+	public BallTable getBalls() {
 		return balls;
 	}
+	
+	public BallPool getBallPool() {
+		return ballPool;
+	}
 
 	public int getMaxNumObject() {
 		return MAX_NUM_OBJECT_ONSCREEN;
@@ -218,38 +297,91 @@ public class Level implements IGameManager {
 	public int getMinY() {
 		return (int) GROUND_HEIGHT;
 	}
+	
+	/**
+	 * Returns true if the world coordinate is outside of the playing area
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 */
+	public boolean isOutOfBounds(float posX, float posY) {
+		return posX < getMinX() || posX > getMaxX() || posY < getMinY() || posY > getMaxY();
+	}
 
 	@Override
 	public World getPhysicsWorld() {
 		return world;
 	}
+	
+	public PhysicsQualityController getPhysicsQuality() {
+		return physicsQuality;
+	}
+	
+	public Vector2 getGravity() {
+		return gravity;
+	}
+	
+	/**
+	 * Changes the world's gravity. Bodies are allowed to sleep, so every body 
+	 * is woken up when the gravity actually changes.
+	 * @param x
+	 * @param y
+	 */
+	public void setGravity(float x, float y) {
+		if (gravity.x == x && gravity.y == y) return;
+		gravity.set(x, y);
+		world.setGravity(gravity);
+		wakeAllBodies();
+	}
+	
+	/**
+	 * Wakes up every ball and item in the world
+	 */
+	public void wakeAllBodies() {
+		for (int i = 0; i < balls.size(); i++) {
+			balls.get(i).getBody().setAwake(true);
+		}
+		for (int i = 0; i < items.size; i++) {
+			items.get(i).getBody().setAwake(true);
+		}
+	}
+	
+	/**
+	 * Returns the buffer that every change to bodies, joints and filters must go through
+	 */
+	public PhysicsCommandBuffer getPhysicsCommands() {
+		return physicsCommands;
+	}
 
 	/**
 	 * Returns the next animation set after the previous set.
 	 * The ordering is specified by the Assets class. 
-	 * @return
+	 * @return the animation set, null if the assets are not loaded
 	 */
 	public Array<Animation> getNextAnimationSet() {
 		currBallType++;
-		if (currBallType >= Assets.animationList.size) 
+		if (currBallType >= NUM_BALL_TYPES) 
 			currBallType = 0;
-		return Assets.animationList.get(currBallType);
+		return Assets.getBallAnimationSet(currBallType);
 	}
 
 	/**
 	 * Returns the specified animation set.
 	 * The ordering is specified by the Assets class.
 	 * @param index
-	 * @return
+	 * @return the animation set, null if the assets are not loaded
 	 */
 	public Array<Animation> getAnimationSet(int index) {
-		if (index >= Assets.animationList.size)  return null;
+		if (index >= NUM_BALL_TYPES)  return null;
 		else  {
 			currBallType = index;
-			return Assets.animationList.get(index);
+			return Assets.getBallAnimationSet(index);
 		}
 	}
 	
+	public GameMode getGameMode() {
+		return gameMode;
+	}
+	
 	public int getExitCode() {
 		return exitCode;
 	}
@@ -262,6 +394,8 @@ public class Level implements IGameManager {
 	public void init() {
 		createGroundBody();
 		createWallBoundary();
+		ballPool.prefill(MAX_NUM_OBJECT_ONSCREEN);
+		itemFactory.prefill(MAX_NUM_ITEMS);
 
 		//		float vel = 1.1f; // min
 //		float vel = 3.5f;
@@ -290,7 +424,7 @@ public class Level implements IGameManager {
 //				(float)(0.25*VIRTUAL_HEIGHT), -1.0f, currBallType);
 //		b.setVelocity(new Vector2(0, vel));
 		
-		moveSet = new MoveSet();
+		moveSet = new MoveSet(random.getMoveRandom());
 		moveSet.setMoveset(true);
 		
 		timeLeft = MAX_LEVEL_TIME;
@@ -301,6 +435,97 @@ public class Level implements IGameManager {
 	public MoveSet getMoveSet() {
 		return moveSet;
 	}
+	
+	/**
+	 * Returns the random streams of this level session
+	 */
+	public RandomService getRandom() {
+		return random;
+	}
+	
+	/**
+	 * Turns hashing of the simulation state after every tick on or off.
+	 * Turning it on restarts the hash chain.
+	 * @param enabled
+	 */
+	public void setStateHashing(boolean enabled) {
+		stateHasher = enabled ? new StateHasher() : null;
+		stateHash = 0;
+	}
+	
+	/**
+	 * Returns the state hash chained over every tick since hashing was turned on. Two runs 
+	 * have the same hash at a tick only if their states were identical at every hashed tick.
+	 */
+	public long getStateHash() {
+		return stateHash;
+	}
+	
+	/**
+	 * Records the input consumed by every following tick, null stops recording
+	 * @param recorder a recorder that has already written its header
+	 */
+	public void setReplayRecorder(ReplayRecorder recorder) {
+		replayRecorder = recorder;
+	}
+	
+	/**
+	 * Plays recorded input into every following tick, null stops playing. The level must have been
+	 * created with the replay's game mode and seed, and the solver iterations follow the recording.
+	 * @param player
+	 */
+	public void setReplayPlayer(ReplayPlayer player) {
+		replayPlayer = player;
+		physicsQuality.setAdaptive(player == null);
+	}
+	
+	/**
+	 * Streams the gameplay events of this level, null turns it off
+	 * @param telemetry
+	 */
+	public void setTelemetry(Telemetry telemetry) {
+		this.telemetry = telemetry;
+		long seed = random.getSeed();
+		record(Telemetry.SESSION_STARTED, gameMode.ordinal(), (int) (seed >>> 32), (int) seed, 0f);
+	}
+	
+	/**
+	 * Times the simulation phases of every tick into the profiler's current frame, null turns it off
+	 * @param profiler
+	 */
+	public void setProfiler(FrameProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+	
+	/**
+	 * Counts spawns, removals and contacts and samples the world's size every tick, null turns it off
+	 * @param metrics
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	public Metrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Records a gameplay event at the current tick, if telemetry is on
+	 */
+	void record(int type, int a, int b, int c, float value) {
+		if (telemetry != null) telemetry.record(type, tickCount, a, b, c, value);
+	}
+	
+	/**
+	 * Returns the number of ticks simulated since the level was created
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
 
 	/**
 	 * Debug function
@@ -318,95 +543,73 @@ public class Level implements IGameManager {
 	 * @param lifeTime This ball's lifetime in seconds before it disappears
 	 */
 	public Ball spawnBall(Array<Animation> animList, float posX, float posY, float lifeTime, int tag) {
-		Ball ball = new Ball(animList, BALL_RADIUS, tag);
-		ball.setWorld(this);
-		ball.attachPhysicsBody(EntityType.BALL.categoryBits, ball.radius, posX, posY, 1.0f, 1.0f, 1.0f, 1.0f);
+		Ball ball = ballPool.obtain(animList, tag, posX, posY);
 		addBall(ball);
+		if (metrics != null) metrics.increment(Metrics.BALLS_SPAWNED);
 		return ball;
 	}
 
 	/**
 	 * Spawn a ball on a random world coordinate within the camera
-	 * @param t The ball's texture
+	 * @param animList The ball's animations
 	 * @param lifeTime This ball's lifetime in seconds before it disappears
 	 * @return
 	 */
 	public Ball spawnBall(Array<Animation> animList, float lifeTime, int tag) {
-		Ball ball = new Ball(animList, BALL_RADIUS, tag);
-		ball.setWorld(this);
-		float posX = getRandomCoordinate(ball.radius, VIRTUAL_WIDTH-ball.radius);
-		float posY = getRandomCoordinate(ball.radius + GROUND_HEIGHT, VIRTUAL_HEIGHT-ball.radius);
-		ball.attachPhysicsBody(EntityType.BALL.categoryBits, ball.radius, posX, posY, 1.0f, 1.0f, 1.0f, 1.0f);
-		addBall(ball);
-		return ball;
+		Random spawnRandom = random.getSpawnRandom();
+		float posX = getRandomCoordinate(spawnRandom, BALL_RADIUS, VIRTUAL_WIDTH-BALL_RADIUS);
+		float posY = getRandomCoordinate(spawnRandom, BALL_RADIUS + GROUND_HEIGHT, VIRTUAL_HEIGHT-BALL_RADIUS);
+		return spawnBall(animList, posX, posY, lifeTime, tag);
 	}
 	
 	/**
 	 * Creates an item at a random position onscreen, spawning at the top of the screen.
-	 * @param animation
-	 * @param maxDuration
-	 * @param lifeTime
-	 * @return
+	 * @param type
+	 * @return the item, or null if no creator is registered for the type
 	 */
-	public Item spawnItem(Animation animation) {
-		Item item = getItem(animation, ITEM_RADIUS, this);
-		float posX = getRandomCoordinate(item.radius, VIRTUAL_WIDTH-item.radius);
-//		float posY = getRandomCoordinate(item.radius + GROUND_HEIGHT, VIRTUAL_HEIGHT-item.radius);
+	public Item spawnItem(ItemType type) {
+		float posX = getRandomCoordinate(random.getItemRandom(), ITEM_RADIUS, VIRTUAL_WIDTH-ITEM_RADIUS);
+//		float posY = getRandomCoordinate(ITEM_RADIUS + GROUND_HEIGHT, VIRTUAL_HEIGHT-ITEM_RADIUS);
 		float posY = VIRTUAL_HEIGHT;
-		item.attachPhysicsBody(EntityType.SPECIAL.categoryBits, posX, posY, 1.0f, 1.0f, 1.0f, 1.0f);
-		addItem(item);
+		Item item = itemFactory.obtain(type, posX, posY);
+		if (item != null) addItem(item);
 		return item;
 	}
 	
 	/**
-	 * Returns a specific implementation of an Item based on the specified tag.
-	 * @param animation
-	 * @param radius
-	 * @param tag
-	 * @param maxDuration
-	 * @param lifeTime
-	 * @return
+	 * Registers every item type that can spawn in this level.
+	 * New item types only need to be registered here.
 	 */
-	private Item getItem(Animation animation, float radius, Level level) {
-		if (animation.equals(Assets.itemAnimationList.get(0)))
-			return new GoldenTouchItem(animation, radius, ItemType.GOLDEN_TOUCH, 7f, 5f, level);
-		else if (animation.equals(Assets.itemAnimationList.get(1)))
-			return new VacuumItem(animation, radius, ItemType.VACUUM, 7f, 5f, level);
-		else 
-			return null;
+	private void registerItemTypes() {
+		itemFactory.register(ItemType.GOLDEN_TOUCH, new IItemCreator() {
+			@Override
+			public Item create(Level level) {
+				return new GoldenTouchItem(ITEM_RADIUS, ItemType.GOLDEN_TOUCH, ITEM_DURATION, ITEM_LIFE_TIME, level);
+			}
+
+			@Override
+			public void reset(Item item) {
+				item.setDuration(ITEM_DURATION, ITEM_LIFE_TIME);
+			}
+		});
+		
+		itemFactory.register(ItemType.VACUUM, new IItemCreator() {
+			@Override
+			public Item create(Level level) {
+				return new VacuumItem(ITEM_RADIUS, ItemType.VACUUM, ITEM_DURATION, ITEM_LIFE_TIME, level);
+			}
+
+			@Override
+			public void reset(Item item) {
+				item.setDuration(ITEM_DURATION, ITEM_LIFE_TIME);
+			}
+		});
 	}
 	
-	/**
-	 * Spawn a ball on a specified world coordinate
-	 * @param texture The ball's texture
-	 * @param posX	World's x coordinate
-	 * @param posY World's y coordinate
-	 * @param lifeTime This ball's lifetime in seconds before it disappears
-	 */
-	public Ball spawnBall(Texture t, float posX, float posY, float lifeTime, int tag) {
-		Ball ball = new Ball(t, t.getHeight()/2f, tag);
-		ball.setWorld(this);
-		ball.attachPhysicsBody(EntityType.BALL.categoryBits, ball.radius, posX, posY, 1.0f, 1.0f, 1.0f, 1.0f);
-		addBall(ball);
-		return ball;
-	}
-
-	/**
-	 * Spawn a ball on a random world coordinate within the camera
-	 * @param t The ball's texture
-	 * @param lifeTime This ball's lifetime in seconds before it disappears
-	 * @return
-	 */
-	public Ball spawnBall(Texture t, float lifeTime, int tag) {
-		Ball ball = new Ball(t, t.getHeight()/2f, tag);
-		ball.setWorld(this);
-		float posX = getRandomCoordinate(ball.radius, VIRTUAL_WIDTH-ball.radius);
-		float posY = getRandomCoordinate(ball.radius + GROUND_HEIGHT, VIRTUAL_HEIGHT-ball.radius);
-		ball.attachPhysicsBody(EntityType.BALL.categoryBits, ball.radius, posX, posY, 1.0f, 1.0f, 1.0f, 1.0f);
-		addBall(ball);
-		return ball;
+	public ItemFactory getItemFactory() {
+		return itemFactory;
 	}
-
+	
 	/**
 	 * Create a joint-anchor ground body for mousejoint events
 	 */
@@ -479,7 +682,31 @@ public class Level implements IGameManager {
 
 		borderShape.dispose();
 
-		wallBody.setUserData("wall");				// TODO assign the boundary an instance of Entity
+		// every wall fixture shares the same typed user data
+		FixtureData wallData = new FixtureData(EntityType.WALL);
+		for (Fixture fixture : wallBody.getFixtureList()) {
+			fixture.setUserData(wallData);
+		}
+	}
+	
+	/**
+	 * Gives a pooled entity its id and tags its fixture with typed user data.
+	 * Entities are registered once, when their body is created.
+	 * @param entity
+	 * @param type
+	 */
+	public void registerEntity(Entity entity, EntityType type) {
+		entity.id = entities.size;
+		entities.add(entity);
+		entity.getFixture().setUserData(new FixtureData(type, entity.id, entity));
+	}
+	
+	/**
+	 * Returns the entity registered with the specified id
+	 * @param id
+	 */
+	public Entity getEntity(int id) {
+		return entities.get(id);
 	}
 
 
@@ -503,10 +730,23 @@ public class Level implements IGameManager {
 		return BOX_TO_WORLD;
 	}
 	
+	/**
+	 * Returns the score indicators added since they were last freed. 
+	 * They are recycled by {@link #freeScoreIndicators()} or the next call to {@link #update(float)}, 
+	 * read them before then and do not keep them.
+	 */
 	public Array<ScoreIndicator> getScoreIndicators() {
 		return ballPoints;
 	}
 	
+	/**
+	 * Recycles the score indicators once they have been shown, so that no later frame shows them again
+	 */
+	public void freeScoreIndicators() {
+		scoreIndicatorPool.freeAll(ballPoints);
+		ballPoints.clear();
+	}
+	
 	public Array<Item> getItems() {
 		return items;
 	}
@@ -514,9 +754,38 @@ public class Level implements IGameManager {
 	public float getTimeLeft() {
 		return timeLeft;
 	}
+	
+	/**
+	 * Overrides the time left in the round, e.g. for benchmark runs that outlast a round
+	 * @param timeLeft in seconds
+	 */
+	public void setTimeLeft(float timeLeft) {
+		this.timeLeft = timeLeft;
+	}
+	
+	/**
+	 * Sets the fixed simulation step. Larger steps lower the physics rate on weak devices,
+	 * rendering stays smooth because entities are interpolated between ticks.
+	 * @param timeStep the step in seconds
+	 */
+	public void setTimeStep(float timeStep) {
+		this.timeStep = timeStep;
+		accumulator = 0.0f;
+	}
+	
+	public float getTimeStep() {
+		return timeStep;
+	}
+	
+	/**
+	 * Returns how far the rendered frame is between the previous and the current tick,
+	 * in the range [0, 1). Used by WorldView to interpolate entity positions.
+	 * @return the interpolation factor
+	 */
+	public float getInterpolationAlpha() {
+		return alpha;
+	}
 
-	Random random = new Random();
-	Texture texture = null;
 	Ball b = null;
 	Array<Animation> anim = null;
 	float moveChangeTimer = 0.0f;
@@ -526,55 +795,105 @@ public class Level implements IGameManager {
 	boolean hasNotSpawnedItem = false;
 	Array<Ball> collidedBalls = new Array<Ball>();
 	
-	int itemSize = -1;
-	
 	/** Called when the World is to be updated.
+	 * The simulation is advanced in fixed ticks of {@link #timeStep}, the leftover time is carried over 
+	 * to the next frame and used to interpolate rendering.
 	 * @param delta the time in seconds since the last render. */
 	@Override
 	public void update(float delta) {
 		
+		// never try to catch up more than a few ticks, otherwise a slow frame 
+		// causes even slower frames (spiral of death)
+		if (delta > MAX_FRAME_TIME) delta = MAX_FRAME_TIME;
+		accumulator += delta;
+		
+		// the last frame has shown its score indicators, if anything showed them at all
+		freeScoreIndicators();
+		
+		int substeps = 0;
+		while (accumulator >= timeStep && substeps < MAX_SUBSTEPS) {
+			tick(timeStep);
+			accumulator -= timeStep;
+			substeps++;
+		}
+		
+		// still behind after the maximum substeps, drop the time we cannot simulate
+		if (accumulator >= timeStep) accumulator = 0.0f;
+		
+		alpha = accumulator / timeStep;
+	}
+	
+	/**
+	 * Advances the game rules and physics by exactly one fixed step
+	 * @param delta the fixed step in seconds
+	 */
+	private void tick(float delta) {
+		
+		// replays feed the recorded input of this tick, recordings save it before it is consumed
+		if (replayPlayer != null) {
+			replayPlayer.playTick(this);
+			
+			// the recording ended before this tick, stepping on would leave the recorded end state behind
+			if (replayPlayer.hasEnded()) return;
+		}
+		if (replayRecorder != null) replayRecorder.recordTick(this);
+		
+		// apply the touch input recorded since the last tick
+		if (exitCode == DEFAULT_EXIT) {
+			gestures.process(touchEvents);
+		}
+		else {
+			touchEvents.clear();
+			gestures.reset();
+			dragManager.releaseAll();
+		}
+		
 		// check goal conditions depending on game mode
+		int previousExitCode = exitCode;
 		switch (gameMode) {
 		case NORMAL:
-			if (timeLeft <= 0f) {
-				System.out.println("Time is up!");
-				exitCode = NORMAL_MODE_EXIT;
-			}
+			if (timeLeft <= 0f) exitCode = NORMAL_MODE_EXIT;
 			break;
 		case TIMED:
-			if (timeLeft <= 0f) {
-				System.out.println("Time is up! Game Over!");
-				exitCode = TIME_MODE_TIMEOUT;
-			}
-			else 
-				if (ballCount >= TIME_MODE_MAX_COUNT) {
-					System.out.println("You have reached " + TIME_MODE_MAX_COUNT + " balls!");
-					exitCode = TIME_MODE_ACHIEVED;
-				}
+			if (timeLeft <= 0f) exitCode = TIME_MODE_TIMEOUT;
+			else if (ballCount >= TIME_MODE_MAX_COUNT) exitCode = TIME_MODE_ACHIEVED;
 			break;
 		default:
 			exitCode = FORCED_EXIT;
 			break;
 		}
+		if (previousExitCode == DEFAULT_EXIT && exitCode != DEFAULT_EXIT) {
+			record(Telemetry.ROUND_ENDED, exitCode, score, ballCount, timeLeft);
+			debug("ROUND", "Round ended with exit code " + exitCode);
+		}
 		
 		// step through the physics framework to calculate the next frame
-		world.step(timeStep, velocityIterations, positionIterations);
+		long stepStart = TimeUtils.nanoTime();
+		world.step(timeStep, physicsQuality.getVelocityIterations(), physicsQuality.getPositionIterations());
+		long stepNanos = TimeUtils.nanoTime() - stepStart;
+		physicsQuality.recordStep(stepNanos);
+		if (profiler != null) profiler.add(FrameProfiler.STEP, stepNanos);
+		int contacts = processContactEvents();
+		if (metrics != null) {
+			metrics.record(Metrics.STEP_TIME, stepNanos);
+			metrics.record(Metrics.CONTACTS_PER_STEP, contacts);
+		}
+		if (profiler != null) profiler.begin(FrameProfiler.ENTITIES);
 
 		// update all the entities accordingly
 		// remove balls that are taken away
-		Iterator<Ball> iter = balls.iterator();
-		numBall = balls.size;
-		while (iter.hasNext()) {
-			Ball ball = iter.next();
+		numBall = balls.size();
+		int row = 0;
+		while (row < balls.size()) {
+			Ball ball = balls.get(row);
 			ball.update(delta);
 			if (ball.collidedWithBall != null) 
 				collidedBalls.add(ball.collidedWithBall);
 
 			// remove objects that are flagged as removed
-			if (ball.removed) {
+			if (ball.isRemoved()) {
 				numBall--;
-//				iter.remove();													//TODO this may have to be moved to WorldView.render()
-				if (spawnTime > RESPAWN_TIME) spawnTime = 0.0f;					// reset spawn timer
+				if (spawnTime > respawnTime) spawnTime = 0.0f;					// reset spawn timer
 				
 				// calculate score based on input quickness
 				scoreAdder = getScoreAdderFromTimeLapsed(moveChangeTimer);
@@ -585,25 +904,29 @@ public class Level implements IGameManager {
 				if (itemGoldenTouchActive) scoreAdder *= 2;
 				
 				// no need to validate action on collision hits
-				if (!ball.hasCollidedCorrectly) {
+				if (!ball.hasCollidedCorrectly()) {
 					
 					// correct move!
 					if (validateAction(ball)) {
 						score += scoreAdder * 1.5;
 						ballCount+=1;											// use 1 because it is a variable!
-						ball.correctMove = true;
-						ballPoints.add(new ScoreIndicator(ball.x, ball.y, (int) (scoreAdder*1.5)));
+						ball.setCorrectMove(true);
+						ballPoints.add(scoreIndicatorPool.obtain().set(ball.getX(), ball.getY(), (int) (scoreAdder*1.5), false));
 						comboScore+=1;
 						comboTimer = 0f;
 						hasNotSpawnedItem = true;
+						if (comboScore > maxComboScore) maxComboScore = comboScore;
+						record(Telemetry.BALL_REMOVED, Telemetry.CORRECT_MOVE, ball.tag, (int) (scoreAdder*1.5), moveChangeTimer);
 					}
 					
 					// wrong move!
 					// penalize the player
 					else {
-						ball.correctMove = false;
+						ball.setCorrectMove(false);
 						ballCount = ballCount-3 < 0? 0 : ballCount-3;
-						ballPoints.add(new ScoreIndicator(ball.x, ball.y, -3, true));
+						ballPoints.add(scoreIndicatorPool.obtain().set(ball.getX(), ball.getY(), -3, true));
+						record(Telemetry.BALL_REMOVED, Telemetry.WRONG_MOVE, ball.tag, 0, moveChangeTimer);
+						if (comboScore > 0) record(Telemetry.COMBO_RESET, Telemetry.RESET_WRONG_MOVE, comboScore, 0, 0f);
 						comboScore = 0;
 						comboTimer = 0f;
 					}
@@ -613,10 +936,12 @@ public class Level implements IGameManager {
 				else {
 					score += scoreAdder * 2;
 					ballCount+=1;												// use 1 because it is a variable!
-					ballPoints.add(new ScoreIndicator(ball.x, ball.y, scoreAdder*2));
+					ballPoints.add(scoreIndicatorPool.obtain().set(ball.getX(), ball.getY(), scoreAdder*2, false));
 					comboScore+=1;
 					comboTimer = 0f;
 					hasNotSpawnedItem = true;
+					if (comboScore > maxComboScore) maxComboScore = comboScore;
+					record(Telemetry.BALL_REMOVED, Telemetry.CORRECT_COLLISION, ball.tag, scoreAdder*2, moveChangeTimer);
 //					moveSet.setCorrect(true);
 					
 					if (collidedBalls.contains(ball, true)) {
@@ -627,20 +952,31 @@ public class Level implements IGameManager {
 //						numBall++;
 					}
 				}
+				
+				// the last row takes this row's place and is visited next
+				balls.removeAt(row);
+				worldView.onBallRemoved(ball);
+				dragManager.release(ball);					// however it was removed, no drag may outlive it
+				ballPool.free(ball);
+				if (metrics != null) metrics.increment(Metrics.BALLS_REMOVED);
 			}
+			else row++;
 		}
 		collidedBalls.clear();
+		integrateBalls(delta);
+		if (profiler != null) profiler.end(FrameProfiler.ENTITIES);
 
 		// spawn entities if current num is less than max value
 		if (numBall < MAX_NUM_OBJECT_ONSCREEN && spawnMoreBalls
 				&& exitCode == DEFAULT_EXIT) {
-			if (spawnTime > RESPAWN_TIME) {
+			if (spawnTime > respawnTime) {
 				//spawn the current one in the moveset
 				anim = getNextAnimationSet();
 				b = spawnBall(anim, -1.0f, currBallType);
 //				anim = getAnimationSet(moveSet.getMoves().first().ballType);
 //				b = spawnBall(anim, -1.0f, moveSet.getMoves().first().ballType);
-				b.setVelocity( new Vector2( (random.nextFloat()*MAX_SPEED) - 5.0f, (random.nextFloat()*MAX_SPEED) - 5.0f) );
+				Random spawnRandom = random.getSpawnRandom();
+				b.setVelocity( (spawnRandom.nextFloat()*MAX_SPEED) - 5.0f, (spawnRandom.nextFloat()*MAX_SPEED) - 5.0f );
 				spawnTime = 0.0f;					// reset spawn timer
 			}
 		}
@@ -653,40 +989,53 @@ public class Level implements IGameManager {
 		//TODO set current level's objective if the timer is up
 		// SET LEVEL's current ball indicator here
 		if (
-				(moveChangeTimer > MOVE_CHANGE_TIME 
+				(moveChangeTimer > moveChangeTime 
 //				|| moveSet.isCorrect()
 				|| !ballsContainsType(moveSet.getMoves().first().ballType)
 				|| moveSet.getLastCorrectMoveType() == Ball.FLINGED)
 				&& exitCode == DEFAULT_EXIT
 				) {
-			if (moveChangeTimer > MOVE_CHANGE_TIME) {
+			if (moveChangeTimer > moveChangeTime) {
 				ballCount = ballCount-3 < 0? 0 : ballCount-3;
 			}
+			record(Telemetry.MOVE_CHANGED, moveChangeTimer > moveChangeTime ? 1 : 0, 0, 0, moveChangeTimer);
 			moveSet.setMoveset(true);
 			moveChangeTimer = 0.0f;
 		}
 		
 		// Update items and their effects
 		//TODO end item's effect prematurely when another item of the same type is active
+		if (profiler != null) profiler.begin(FrameProfiler.ITEMS);
+		int itemsActive = 0;
 		while (itemIter1.hasNext()) {
 			Item item = itemIter1.next();
-			item.update(delta);
+			
+			// slotted items may have been replaced while waiting in the item slot
+			if (!item.removed) 
+				item.update(delta);
+			if (!item.removed && item.isActive()) itemsActive++;
 			
 			// remove objects that are flagged as removed
 			if (item.removed) {
+				itemIter1.remove();
+				dragManager.release(item);
+				itemFactory.free(item);
 			}
 		}
 		itemIter1.reset();
+		if (profiler != null) profiler.end(FrameProfiler.ITEMS);
 		
 		//TODO Spawn new items based on combo
 		//reset combo if inactive for a period of time
 		if (comboTimer > 4.5f && exitCode == DEFAULT_EXIT) {
+			if (comboScore > 0) record(Telemetry.COMBO_RESET, Telemetry.RESET_TIMEOUT, comboScore, 0, 0f);
 			comboScore = 0;
 			comboTimer = 0f;
 		}
 		
-		if (comboScore > 0 && comboScore % 7 == 0 && hasNotSpawnedItem) {
-			spawnItem(Assets.itemAnimationList.random());
+		if (comboScore > 0 && comboScore % itemComboInterval == 0 && hasNotSpawnedItem) {
+			Item item = spawnItem(itemFactory.getTypes().get(random.getItemRandom().nextInt(itemFactory.getTypes().size)));
+			if (item != null) record(Telemetry.ITEM_SPAWNED, item.type.ordinal(), comboScore, 0, 0f);
 			hasNotSpawnedItem = false;
 		}
 		
@@ -700,10 +1049,26 @@ public class Level implements IGameManager {
 		// update level timeleft
 		if (exitCode == DEFAULT_EXIT) timeLeft -= delta;
 		
-		// debug print
-		if (itemSize != items.size) {
-			System.out.println(items.size);
-			itemSize = items.size;
+		// apply the world mutations queued by collisions, entity updates and input
+		physicsCommands.flush();
+		tickCount++;
+		if (stateHasher != null) hashState();
+		
+		if (metrics != null) {
+			metrics.set(Metrics.ITEMS_ACTIVE, itemsActive);
+			// pooled bodies stay in the world, deactivated
+			metrics.set(Metrics.BODIES, world.getBodyCount() - ballPool.getFree() - itemFactory.getFree());
+		}
+	}
+	
+	/**
+	 * Activates the item waiting in a slot of the item slot, if there is one
+	 * @param index slot index
+	 */
+	public void activateSlotItem(int index) {
+		Item item = itemSlot.removeItem(index);
+		if (item != null) {
+			item.setActive(true);
 		}
 	}
 	
@@ -726,8 +1091,8 @@ public class Level implements IGameManager {
 				
 				// if we don't find itself first, that means this item is a duplicate
 				else  {
-					System.out.println("Reset item timer of item " + i.hashCode());
 					i.stateTime = 0f;
+					if (metrics != null) metrics.increment(Metrics.ITEMS_RENEWED);
 					return true;
 				}
 			}
@@ -754,17 +1119,49 @@ public class Level implements IGameManager {
 	}
 	
 	private boolean ballsContainsType(int ballType) {
-		for (Ball b : balls) {
-			if (b.tag == ballType) 
-				return true;
-		}
-		return false;
+		return balls.containsTag(ballType);
+	}
+	
+	/**
+	 * Returns the number of balls of a type currently onscreen
+	 * @param ballType one of the ball type constants
+	 */
+	public int getOnscreenBallCount(int ballType) {
+		return balls.getTagCount(ballType);
 	}
 	
 	public int getComboScore() {
 		return comboScore;
 	}
 	
+	public int getMaxComboScore() {
+		return maxComboScore;
+	}
+	
+	public float getRespawnTime() {
+		return respawnTime;
+	}
+	
+	public float getMoveChangeTime() {
+		return moveChangeTime;
+	}
+	
+	public int getItemComboInterval() {
+		return itemComboInterval;
+	}
+	
+	/**
+	 * Overrides the balancing values of this level, used by balancing runs
+	 * @param respawnTime time in seconds before the next respawn
+	 * @param moveChangeTime time in seconds before the next moveset is forced
+	 * @param itemComboInterval an item is spawned every this many combos
+	 */
+	public void setBalancing(float respawnTime, float moveChangeTime, int itemComboInterval) {
+		this.respawnTime = respawnTime;
+		this.moveChangeTime = moveChangeTime;
+		this.itemComboInterval = itemComboInterval;
+	}
+	
 	/**
 	 * Get the elapsed time in seconds since the start of the level
 	 * @return the elapsed time in sec
@@ -779,7 +1176,7 @@ public class Level implements IGameManager {
 	 * 10 (5.0 sec)
 	 * @return  max value is 100, min is 10
 	 */
-	private int getScoreAdderFromTimeLapsed(float delta) {
+	public static int getScoreAdderFromTimeLapsed(float delta) {
 		int minScore = 10;
 		int maxScore = 100;
 		float minDelta = 0.2f;
@@ -794,6 +1191,44 @@ public class Level implements IGameManager {
 		return score < minScore ? minScore : (int)score;
 	}
 
+	/**
+	 * Advances the state time and position of every ball left in the table by one tick, walking
+	 * the table's columns rather than the balls. Runs after the balls have been updated and removed,
+	 * and before new balls are spawned.
+	 * @param delta
+	 */
+	private void integrateBalls(float delta) {
+		float[] x = balls.x;
+		float[] y = balls.y;
+		float[] prevX = balls.prevX;
+		float[] prevY = balls.prevY;
+		float[] radius = balls.radius;
+		float[] stateTime = balls.stateTime;
+		int[] state = balls.state;
+		int[] flags = balls.flags;
+		Body[] bodies = balls.body;
+		for (int row = 0, n = balls.size(); row < n; row++) {
+			Body body = bodies[row];
+			Vector2 position = body.getPosition();
+			stateTime[row] += delta;
+			prevX[row] = x[row];
+			prevY[row] = y[row];
+			x[row] = position.x * BOX_TO_WORLD;
+			y[row] = position.y * BOX_TO_WORLD;
+			
+			// only thrown balls move fast enough to tunnel, they use continuous collision while they do
+			boolean bullet = false;
+			if (state[row] == Ball.FLINGED || state[row] == Ball.DRAGGED) {
+				float maxSpeed = radius[row] * WORLD_TO_BOX * Ball.BULLET_RADIUS_FRACTION / timeStep;
+				bullet = body.getLinearVelocity().len2() > maxSpeed * maxSpeed;
+			}
+			if (bullet != ((flags[row] & BallTable.FLAG_BULLET) != 0)) {
+				physicsCommands.setBullet(body, bullet);
+				flags[row] ^= BallTable.FLAG_BULLET;
+			}
+		}
+	}
+
 	/**
 	 * TODO
 	 * Check to validate if the current move done to the ball fits the condition given
@@ -803,7 +1238,7 @@ public class Level implements IGameManager {
 	 */
 	private boolean validateAction(Ball ball) {
 //		Gdx.app.log("ACTION", "Move type: " + ball.state + " on " + ball.getType());
-		return moveSet.validate(ball.tag, ball.state);
+		return moveSet.validate(ball.tag, ball.getState());
 	}
 	
 	/**
@@ -811,63 +1246,144 @@ public class Level implements IGameManager {
 	 * Usually for spawning purposes
 	 * @return
 	 */
-	private float getRandomCoordinate(float min, float max) {
+	private float getRandomCoordinate(Random random, float min, float max) {
 		float rand = random.nextFloat() * (max - min) + min;
 		return rand;
 	}
-
+	
 	/**
-	 * Listener callbacks for ball collisions
-	 * @author Jitrapon
+	 * Chains the state at the end of this tick into the state hash: ball and item transforms,
+	 * score, counters and the moveset
 	 */
-	class CollisionListener implements ContactListener {
+	private void hashState() {
+		StateHasher h = stateHasher;
+		h.reset();
+		h.add(stateHash);
+		h.add(tickCount);
+		h.add(score);
+		h.add(comboScore);
+		h.add(ballCount);
+		h.add(timeLeft);
+		h.add(exitCode);
+		h.add(balls.size());
+		for (int row = 0; row < balls.size(); row++) {
+			Body body = balls.get(row).getBody();
+			h.add(balls.tag[row]);
+			h.add(balls.state[row]);
+			h.add(balls.x[row]);
+			h.add(balls.y[row]);
+			h.add(body.getAngle());
+			h.add(body.getLinearVelocity().x);
+			h.add(body.getLinearVelocity().y);
+		}
+		h.add(items.size);
+		for (int i = 0; i < items.size; i++) {
+			Item item = items.get(i);
+			h.add(item.type.ordinal());
+			h.add(item.state);
+			h.add(item.x);
+			h.add(item.y);
+		}
+		Array<Move> moves = moveSet.getMoves();
+		for (int i = 0; i < moves.size; i++) {
+			h.add(moves.get(i).ballType);
+			h.add(moves.get(i).moveType.ordinal());
+		}
+		Array<Move> nextMoves = moveSet.getNextMoves();
+		for (int i = 0; i < nextMoves.size; i++) {
+			h.add(nextMoves.get(i).ballType);
+			h.add(nextMoves.get(i).moveType.ordinal());
+		}
+		stateHash = h.getHash();
+	}
 
-		@Override
-		public void beginContact(Contact contact) {
-			// make sure that this collision is that of two balls
-			if (contact.getFixtureA().getBody().getUserData() instanceof Ball 
-					&& contact.getFixtureB().getBody().getUserData() instanceof Ball) {
-				Ball ballA = (Ball) contact.getFixtureA().getBody().getUserData();
-				Ball ballB = (Ball) contact.getFixtureB().getBody().getUserData();
-				if (ballA.tag == moveSet.getMoves().first().ballType &&
-						ballB.tag == moveSet.getMoves().first().ballType) {
+	/**
+	 * Applies the contacts recorded during the last world step to the balls
+	 * @return the number of contacts that began during the step
+	 */
+	private int processContactEvents() {
+		if (contactEvents.size() == 0) return 0;
+		
+		int began = 0;
+		int moveBallType = moveSet.getMoves().first().ballType;
+		while (contactEvents.poll()) {
+			Ball ballA = (Ball) entities.get(contactEvents.getEntityA());
+			Ball ballB = (Ball) entities.get(contactEvents.getEntityB());
+			
+			if (contactEvents.getType() == ContactEventQueue.BEGIN_CONTACT) {
+				if (ballA.tag == moveBallType && ballB.tag == moveBallType) {
 //				if (ballA.tag == ballB.tag) {
-					ballA.hasCollidedCorrectly = true;
+					ballA.setCollidedCorrectly(true);
 					ballA.collidedWithBall = ballB;
-					ballB.hasCollidedCorrectly = true;
+					ballB.setCollidedCorrectly(true);
 					ballB.collidedWithBall = ballA;
 //					Gdx.app.log("COLLISION", "Ball " + ballA.getType() + " is colliding with " + ballB.getType());
 					//TODO increase the score
 				}
 				ballA.startContact();
 				ballB.startContact();
+				began++;
+			}
+			else {
+				ballA.endContact();
+				ballB.endContact();
 			}
 		}
+		return began;
+	}
+	
+	public TouchEventQueue getTouchEvents() {
+		return touchEvents;
+	}
+	
+	public GestureClassifier getGestures() {
+		return gestures;
+	}
+	
+	public DragManager getDragManager() {
+		return dragManager;
+	}
+	
+	public EntityPicker getPicker() {
+		return picker;
+	}
+	
+	public ContactEventQueue getContactEvents() {
+		return contactEvents;
+	}
+	
+	/**
+	 * Records contacts between two balls, the game state is only changed 
+	 * once the step is over in processContactEvents()
+	 */
+	class CollisionListener implements ContactListener {
 
 		@Override
-		public void endContact(Contact contact) {
+		public void beginContact(Contact contact) {
 			// make sure that this collision is that of two balls
-			if (contact.getFixtureA() != null && contact.getFixtureB() != null) {
-				if (contact.getFixtureA().getBody().getUserData().equals("wall") ||
-						contact.getFixtureB().getBody().getUserData().equals("wall")) 
-					return;
-			}
-
-			Ball ball = null;
-			if (contact.getFixtureA() != null) {
-				if (contact.getFixtureA().getBody().getUserData() instanceof Ball) {
-					ball = (Ball) contact.getFixtureA().getBody().getUserData();
-					ball.endContact();
-				} 
+			FixtureData dataA = (FixtureData) contact.getFixtureA().getUserData();
+			FixtureData dataB = (FixtureData) contact.getFixtureB().getUserData();
+			if (isBallContact(dataA, dataB)) {
+				contactEvents.push(ContactEventQueue.BEGIN_CONTACT, dataA.entityId, dataB.entityId);
 			}
+		}
 
-			if (contact.getFixtureB() != null) {
-				if (contact.getFixtureB().getBody().getUserData() instanceof Ball) {
-					ball = (Ball) contact.getFixtureB().getBody().getUserData();
-					ball.endContact();
-				} 
+		@Override
+		public void endContact(Contact contact) {
+			if (contact.getFixtureA() == null || contact.getFixtureB() == null) return;
+			
+			// make sure that this collision is that of two balls
+			FixtureData dataA = (FixtureData) contact.getFixtureA().getUserData();
+			FixtureData dataB = (FixtureData) contact.getFixtureB().getUserData();
+			if (isBallContact(dataA, dataB)) {
+				contactEvents.push(ContactEventQueue.END_CONTACT, dataA.entityId, dataB.entityId);
 			}
 		}
+		
+		private boolean isBallContact(FixtureData dataA, FixtureData dataB) {
+			return dataA != null && dataB != null && 
+					dataA.type == EntityType.BALL && dataB.type == EntityType.BALL;
+		}
 
 		@Override
 		public void preSolve(Contact contact, Manifold oldManifold) {
@@ -879,22 +1395,284 @@ public class Level implements IGameManager {
 
 	}
 	
+	/**
+	 * Box2D's default category and mask filtering, plus the pass-through rules of flinged objects.
+	 * Flinged balls only collide with other balls, flinged items do not collide at all.
+	 * Entities refilter their fixture when they enter or leave the FLINGED state.
+	 */
+	class CollisionFilter implements ContactFilter {
+
+		@Override
+		public boolean shouldCollide(Fixture fixtureA, Fixture fixtureB) {
+			Filter filterA = fixtureA.getFilterData();
+			Filter filterB = fixtureB.getFilterData();
+			if (filterA.groupIndex == filterB.groupIndex && filterA.groupIndex != 0) {
+				return filterA.groupIndex > 0;
+			}
+			if ((filterA.maskBits & filterB.categoryBits) == 0 || 
+					(filterA.categoryBits & filterB.maskBits) == 0) {
+				return false;
+			}
+			
+			FixtureData dataA = (FixtureData) fixtureA.getUserData();
+			FixtureData dataB = (FixtureData) fixtureB.getUserData();
+			if (dataA == null || dataB == null) return true;
+			return !passesThrough(dataA, dataB) && !passesThrough(dataB, dataA);
+		}
+		
+		private boolean passesThrough(FixtureData data, FixtureData other) {
+			switch (data.type) {
+			case BALL:
+				return data.entity.getState() == Ball.FLINGED && other.type != EntityType.BALL;
+			case SPECIAL:
+				return data.entity.state == Item.FLINGED;
+			default:
+				return false;
+			}
+		}
+	}
+	
 	/**
 	 * Release all resources
 	 */
 	private void dispose() {
+		physicsCommands.clear();
+		contactEvents.clear();
+		ballPool.dispose();
+		itemFactory.dispose();
 		world.dispose();
 	}
 
+	/**
+	 * Captures the level into a snapshot and writes it to {@link LevelSnapshot#SAVE_FILE} in the
+	 * background. A finished round deletes the saved snapshot instead, there is nothing to resume.
+	 */
 	@Override
 	public void saveGame() {
-		// TODO Auto-generated method stub
+		if (snapshot == null) snapshot = new LevelSnapshot();
+		FileHandle file = Gdx.files.local(LevelSnapshot.SAVE_FILE);
+		if (exitCode != DEFAULT_EXIT) {
+			snapshot.waitForWrite();
+			file.delete();
+			return;
+		}
+		snapshot.capture(this);
+		snapshot.writeAsync(file);
+	}
+	
+	/**
+	 * Returns the snapshot used by {@link #saveGame()}, null if the game was never saved
+	 */
+	public LevelSnapshot getSnapshot() {
+		return snapshot;
+	}
+	
+	/**
+	 * Returns an upper bound of the bytes {@link #writeSnapshot(ByteBuffer)} writes
+	 */
+	int getSnapshotSize() {
+		return 256 + balls.size() * 64 + items.size * 64;
+	}
+	
+	/**
+	 * Writes the whole simulation state between two ticks: counters, timers, score, effects, the moveset,
+	 * the random streams, and every ball and item with its body's transform and velocities. Ongoing
+	 * drags are written as released, the finger is gone when the game is resumed.
+	 * 
+	 * Running item effects are written with the list of active effect types. The remaining duration of
+	 * each effect is kept by its item, which is written in the ACTIVE state with the time its effect
+	 * has already run, so the effect ends on the same tick after a restore.
+	 * @param out
+	 */
+	void writeSnapshot(ByteBuffer out) {
+		out.putLong(tickCount);
+		out.putLong(stateHash);
+		random.write(out);
+		out.putInt(exitCode);
+		out.putFloat(time);
+		out.putFloat(timeLeft);
+		out.putFloat(spawnTime);
+		out.putFloat(moveChangeTimer);
+		out.putFloat(comboTimer);
+		out.putFloat(respawnTime);
+		out.putFloat(moveChangeTime);
+		out.putInt(itemComboInterval);
+		out.putInt(score);
+		out.putInt(comboScore);
+		out.putInt(maxComboScore);
+		out.putInt(ballCount);
+		out.putInt(currBallType);
+		putBoolean(out, hasNotSpawnedItem);
+		putBoolean(out, spawnMoreBalls);
+		putBoolean(out, gravityEnabled);
+		putBoolean(out, itemGoldenTouchActive);
+		putBoolean(out, itemVacuumActive);
+		putBoolean(out, itemVacuumApplied);
+		out.putFloat(vacuumPos.x);
+		out.putFloat(vacuumPos.y);
+		out.putFloat(gravity.x);
+		out.putFloat(gravity.y);
+		out.put((byte) physicsQuality.getVelocityIterations());
+		out.put((byte) physicsQuality.getPositionIterations());
+		moveSet.write(out);
+		
+		out.put((byte) activeItemEffects.size);
+		for (int i = 0; i < activeItemEffects.size; i++) {
+			out.put((byte) activeItemEffects.get(i).ordinal());
+		}
+		
+		out.putInt(balls.size());
+		for (int row = 0; row < balls.size(); row++) {
+			Ball ball = balls.get(row);
+			out.putInt(ball.tag);
+			// a dragged ball is written as dropped: its joint and pointer do not survive the restore, 
+			// and a DRAGGED ball without a drag would never be let go of
+			int state = ball.getState();
+			out.putInt(state == Ball.DRAGGED ? Entity.INACTIVE : state);
+			out.putFloat(ball.getStateTime());
+			putBody(out, ball);
+			putBoolean(out, ball.hasCollidedCorrectly());
+			putBoolean(out, ball.isCorrectMove());
+			out.putInt(ball.collisionCount);
+		}
+		
+		int numItems = 0;
+		for (int i = 0; i < items.size; i++) {
+			if (!items.get(i).removed) numItems++;
+		}
+		out.putInt(numItems);
+		for (int i = 0; i < items.size; i++) {
+			Item item = items.get(i);
+			if (item.removed) continue;
+			int slot = -1;
+			for (int j = 0; j < itemSlot.getMaxSize(); j++) {
+				if (itemSlot.getItemAt(j) == item) slot = j;
+			}
+			out.put((byte) item.type.ordinal());
+			out.putInt(item.state);
+			out.putFloat(item.stateTime);
+			out.putFloat(item.getLifeTime());
+			putBoolean(out, item.beginActive);
+			putBoolean(out, item.slotted);
+			out.put((byte) slot);
+			putBody(out, item);
+		}
+		out.put((byte) itemSlot.getNextFillSlotIndex());
+	}
+	
+	/**
+	 * Restores what {@link #writeSnapshot(ByteBuffer)} wrote into this level, which must have been 
+	 * created with the same game mode and seed and initialized, but not updated yet. Balls and items 
+	 * get new bodies at their saved transforms, no history is replayed.
+	 * @param in
+	 */
+	void readSnapshot(ByteBuffer in) {
+		tickCount = in.getLong();
+		stateHash = in.getLong();
+		random.read(in);
+		exitCode = in.getInt();
+		time = in.getFloat();
+		timeLeft = in.getFloat();
+		spawnTime = in.getFloat();
+		moveChangeTimer = in.getFloat();
+		comboTimer = in.getFloat();
+		respawnTime = in.getFloat();
+		moveChangeTime = in.getFloat();
+		itemComboInterval = in.getInt();
+		score = in.getInt();
+		comboScore = in.getInt();
+		maxComboScore = in.getInt();
+		ballCount = in.getInt();
+		currBallType = in.getInt();
+		hasNotSpawnedItem = in.get() != 0;
+		spawnMoreBalls = in.get() != 0;
+		gravityEnabled = in.get() != 0;
+		itemGoldenTouchActive = in.get() != 0;
+		itemVacuumActive = in.get() != 0;
+		itemVacuumApplied = in.get() != 0;
+		vacuumPos.set(in.getFloat(), in.getFloat(), 0);
+		setGravity(in.getFloat(), in.getFloat());
+		physicsQuality.setIterations(in.get(), in.get());
+		moveSet.read(in);
 		
+		activeItemEffects.clear();
+		int numEffects = in.get();
+		for (int i = 0; i < numEffects; i++) {
+			activeItemEffects.add(ItemType.values()[in.get()]);
+		}
+		
+		int numBalls = in.getInt();
+		for (int i = 0; i < numBalls; i++) {
+			int tag = in.getInt();
+			int state = in.getInt();
+			float stateTime = in.getFloat();
+			Ball ball = spawnBall(Assets.getBallAnimationSet(tag), 0, 0, -1.0f, tag);
+			getBody(in, ball);
+			ball.setState(state);
+			ball.setStateTime(stateTime);
+			ball.setCollidedCorrectly(in.get() != 0);
+			ball.setCorrectMove(in.get() != 0);
+			ball.collisionCount = in.getInt();
+		}
+		
+		int numItems = in.getInt();
+		for (int i = 0; i < numItems; i++) {
+			ItemType type = ItemType.values()[in.get()];
+			int state = in.getInt();
+			float stateTime = in.getFloat();
+			float lifeTime = in.getFloat();
+			boolean beginActive = in.get() != 0;
+			boolean slotted = in.get() != 0;
+			int slot = in.get();
+			Item item = itemFactory.obtain(type, 0, 0);
+			addItem(item);
+			getBody(in, item);
+			item.restore(state, stateTime, lifeTime, beginActive, slotted);
+			if (slot >= 0) itemSlot.setItemAt(slot, item);
+		}
+		itemSlot.setNextFillSlotIndex(in.get());
+		
+		if (itemGoldenTouchActive && worldView != null) worldView.getHud().setScoreHighlighted(true);
+		physicsCommands.flush();
+	}
+	
+	private static void putBoolean(ByteBuffer out, boolean value) {
+		out.put((byte) (value ? 1 : 0));
+	}
+	
+	private static void putBody(ByteBuffer out, Entity entity) {
+		Body body = entity.getBody();
+		out.putFloat(entity.getX());
+		out.putFloat(entity.getY());
+		out.putFloat(entity.getPrevX());
+		out.putFloat(entity.getPrevY());
+		out.putFloat(body.getAngle());
+		out.putFloat(body.getLinearVelocity().x);
+		out.putFloat(body.getLinearVelocity().y);
+		out.putFloat(body.getAngularVelocity());
+	}
+	
+	private static void getBody(ByteBuffer in, Entity entity) {
+		Body body = entity.getBody();
+		float x = in.getFloat();
+		float y = in.getFloat();
+		entity.setPosition(x, y, in.getFloat(), in.getFloat());
+		body.setTransform(x * WORLD_TO_BOX, y * WORLD_TO_BOX, in.getFloat());
+		body.setLinearVelocity(in.getFloat(), in.getFloat());
+		body.setAngularVelocity(in.getFloat());
+	}
+
+	/**
+	 * Logs at debug level, which the game leaves off by default. Headless runs have no application
+	 * and log nothing, so that many levels on many threads never contend on stdout.
+	 */
+	private static void debug(String tag, String message) {
+		if (Gdx.app != null) Gdx.app.debug(tag, message);
 	}
 
 	@Override
 	public void exitGame() {
 		dispose();
-		System.out.println("Released level resources");
+		debug("DISPOSING", "Released level resources");
 	}
 }
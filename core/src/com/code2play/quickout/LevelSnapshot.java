@@ -0,0 +1,203 @@
+package com.code2play.quickout;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.code2play.quickout.GameMain.GameMode;
+
+/**
+ * Versioned binary snapshot of a level between two ticks. Capturing only encodes the level into a
+ * reused buffer on the render thread, the file is written by a background thread. Restoring
+ * rebuilds the bodies of a fresh level at their saved transforms, no history is replayed.
+ *
+ * Layout: magic, version, game mode, seed, then the level state, see {@link Level#writeSnapshot(ByteBuffer)}.
+ * @author Jitrapon
+ *
+ */
+public class LevelSnapshot {
+
+	/* HEADER */
+	public static final int MAGIC = 0x514F5353;						// "QOSS"
+	public static final int VERSION = 2;
+	private static final int HEADER_SIZE = 4 + 1 + 1 + 8;
+
+	/** Where the game is saved when it is paused, relative to the local storage */
+	public static final String SAVE_FILE = "saves/level.snapshot";
+
+	/** Writes every snapshot file, one at a time */
+	private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "SnapshotWriter");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private ByteBuffer buffer;
+	private GameMode gameMode;
+	private long seed;
+	private Future<?> pendingWrite;
+	private volatile IOException writeError;
+	private long captureNanos;
+	private volatile long writeNanos;
+
+	public LevelSnapshot() {
+		buffer = ByteBuffer.allocate(4096);
+	}
+
+	private LevelSnapshot(ByteBuffer data) {
+		buffer = data;
+		if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+			throw new GdxRuntimeException("Not a level snapshot");
+		}
+		int version = data.get();
+		if (version != VERSION) {
+			throw new GdxRuntimeException("Unsupported snapshot version " + version);
+		}
+		gameMode = GameMode.values()[data.get()];
+		seed = data.getLong();
+	}
+
+	/**
+	 * Reads a snapshot file
+	 * @param file
+	 * @throws GdxRuntimeException if the file is not a snapshot of a supported version
+	 */
+	public static LevelSnapshot load(FileHandle file) {
+		return new LevelSnapshot(ByteBuffer.wrap(file.readBytes()));
+	}
+
+	/**
+	 * Encodes the level's current state, waiting first for the previous write of this snapshot
+	 * @param level
+	 */
+	public void capture(Level level) {
+		waitForWrite();
+		long start = System.nanoTime();
+		int size = HEADER_SIZE + level.getSnapshotSize();
+		if (buffer.capacity() < size) buffer = ByteBuffer.allocate(Integer.highestOneBit(size) << 1);
+		gameMode = level.getGameMode();
+		seed = level.getRandom().getSeed();
+
+		buffer.clear();
+		buffer.putInt(MAGIC);
+		buffer.put((byte) VERSION);
+		buffer.put((byte) gameMode.ordinal());
+		buffer.putLong(seed);
+		level.writeSnapshot(buffer);
+		buffer.flip();
+		captureNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Writes the captured snapshot to a file on the background thread. The file is written
+	 * next to its destination first and then renamed, so it is never left half written.
+	 * @param file
+	 */
+	public void writeAsync(FileHandle file) {
+		final File destination = file.file();
+		final ByteBuffer data = buffer.duplicate();
+		pendingWrite = WRITER.submit(new Runnable() {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				File temp = new File(destination.getPath() + ".tmp");
+				try {
+					if (destination.getParentFile() != null) destination.getParentFile().mkdirs();
+					FileOutputStream out = new FileOutputStream(temp);
+					try {
+						FileChannel channel = out.getChannel();
+						while (data.hasRemaining()) channel.write(data);
+					}
+					finally {
+						out.close();
+					}
+					if (!temp.renameTo(destination)) {
+						destination.delete();
+						if (!temp.renameTo(destination)) throw new IOException("Cannot rename " + temp);
+					}
+					writeError = null;
+				}
+				catch (IOException e) {
+					writeError = e;
+				}
+				writeNanos = System.nanoTime() - start;
+			}
+		});
+	}
+
+	/**
+	 * Blocks until the last background write has finished
+	 */
+	public void waitForWrite() {
+		if (pendingWrite == null) return;
+		try {
+			pendingWrite.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new GdxRuntimeException(e.getCause());
+		}
+		pendingWrite = null;
+	}
+
+	/**
+	 * Restores the snapshot into a level created with {@link #getGameMode()} and {@link #getSeed()},
+	 * right after it was initialized
+	 * @param level
+	 */
+	public void restore(Level level) {
+		ByteBuffer data = buffer.duplicate();
+		data.position(HEADER_SIZE);
+		level.readSnapshot(data);
+	}
+
+	public GameMode getGameMode() {
+		return gameMode;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the size of the captured snapshot in bytes
+	 */
+	public int getSize() {
+		return buffer.limit();
+	}
+
+	/**
+	 * Returns how long the last capture took on the calling thread
+	 */
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+
+	/**
+	 * Returns how long the last write took on the background thread
+	 */
+	public long getWriteNanos() {
+		return writeNanos;
+	}
+
+	/**
+	 * Returns the error of the last write, null if it succeeded
+	 */
+	public IOException getWriteError() {
+		return writeError;
+	}
+}
@@ -1,11 +1,14 @@
 package com.code2play.quickout;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.code2play.quickout.GameMain.GameMode;
 
 public class MainMenuScreen implements Screen {
@@ -19,6 +22,8 @@ public class MainMenuScreen implements Screen {
 	private static final int VIRTUAL_HEIGHT = 1600;
 	
 	private int deltaFrame = 0;
+	private FileHandle replay;													// the last recorded session, null if there is none
+	private FileHandle savedRound;												// a round saved when the app was paused, null if there is none
 	
 	public MainMenuScreen(final GameMain game) {
 		this.game = game;
@@ -41,20 +46,49 @@ public class MainMenuScreen implements Screen {
         batch.begin();
         font.draw(batch, "Welcome to my first Android game!", 40, VIRTUAL_HEIGHT/2);
         if (deltaFrame > 75) {
-        	font.draw(batch, "Tap anywhere to begin", 40, VIRTUAL_HEIGHT/2 - 100);
+        	font.draw(batch, savedRound != null ? "Tap anywhere to resume" : "Tap anywhere to begin", 40, VIRTUAL_HEIGHT/2 - 100);
         	if (deltaFrame > 150) 
         		deltaFrame = 0;
         }
+        GameResult best = game.results.getBest(GameMode.NORMAL);
+        if (best != null) {
+        	font.draw(batch, "Best score: " + best.getScore() + ", " + best.getBallCount() + " balls", 40, VIRTUAL_HEIGHT/2 + 100);
+        }
+        if (replay != null) {
+        	font.draw(batch, "R: replay the last game, F: replay at max speed", 40, VIRTUAL_HEIGHT/2 - 200);
+        }
         batch.end();
 
         // TODO SELECT GAME MODE
         if (Gdx.input.isTouched()) {
-            game.setScreen(new GameScreen(game, GameMode.NORMAL));
+        	if (savedRound != null) resumeRound();
+        	else game.setScreen(new GameScreen(game, GameMode.NORMAL));
+        }
+        else if (replay != null && (Gdx.input.isKeyJustPressed(Input.Keys.R) || Gdx.input.isKeyJustPressed(Input.Keys.F))) {
+        	game.setScreen(new ReplayScreen(game, ReplayPlayer.load(replay), Gdx.input.isKeyJustPressed(Input.Keys.F)));
         }
         
         deltaFrame += 1;
 	}
 
+	/**
+	 * Continues the round saved when the app was paused, or starts a new one if it cannot be read
+	 */
+	private void resumeRound() {
+		LevelSnapshot snapshot;
+		try {
+			snapshot = LevelSnapshot.load(savedRound);
+		}
+		catch (GdxRuntimeException e) {
+			Gdx.app.error("SNAPSHOT", "Cannot resume the saved round", e);
+			savedRound.delete();
+			savedRound = null;
+			game.setScreen(new GameScreen(game, GameMode.NORMAL));
+			return;
+		}
+		game.setScreen(new GameScreen(game, snapshot));
+	}
+
 	@Override
 	public void resize(int width, int height) {
 		// TODO Auto-generated method stub
@@ -63,8 +97,10 @@ public class MainMenuScreen implements Screen {
 
 	@Override
 	public void show() {
-		// TODO Auto-generated method stub
-		
+		FileHandle file = Gdx.files.local(GameScreen.REPLAY_FILE);
+		replay = file.exists() ? file : null;
+		file = Gdx.files.local(LevelSnapshot.SAVE_FILE);
+		savedRound = file.exists() ? file : null;
 	}
 
 	@Override
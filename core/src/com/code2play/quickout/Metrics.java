@@ -0,0 +1,107 @@
+package com.code2play.quickout;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registry of the game's runtime metrics, each one a preallocated primitive slot.
+ * Counters only go up and are exported as a total and a rate per second, gauges hold the last
+ * value set, and timers keep the count, sum and max of the samples they record. Most timers record
+ * durations in nanoseconds, {@link #CONTACTS_PER_STEP} records the contacts that began in a step.
+ *
+ * The game thread updates the slots without locking or allocating, {@link MetricsExporter} reads them
+ * from its own thread. Each slot is written by a single thread, a timer's max is reset by the exporter
+ * and may miss a sample recorded at the same moment.
+ * @author Jitrapon
+ *
+ */
+public class Metrics {
+
+	/* ALL KINDS */
+	public static final int COUNTER = 0;
+	public static final int GAUGE = 1;
+	public static final int TIMER = 2;
+
+	/* ALL METRICS */
+	public static final int BALLS_SPAWNED = 0;
+	public static final int BALLS_REMOVED = 1;
+	public static final int SOUNDS_PLAYED = 2;
+	public static final int CONTACTS_PER_STEP = 3;
+	public static final int STEP_TIME = 4;								// world.step, in nanoseconds
+	public static final int BODIES = 5;									// active bodies in the World, walls included, pooled ones not
+	public static final int ITEMS_ACTIVE = 6;
+	public static final int SCORE_LABELS = 7;							// ScoreEffectLabel actors alive
+	public static final int ITEMS_RENEWED = 8;							// active items whose timer restarted on a duplicate
+	public static final int NUM_METRICS = 9;
+	private static final String[] NAMES = { "ballsSpawned", "ballsRemoved", "soundsPlayed", "contactsPerStep",
+		"stepTime", "bodies", "itemsActive", "scoreLabels", "itemsRenewed" };
+	private static final int[] KINDS = { COUNTER, COUNTER, COUNTER, TIMER, TIMER, GAUGE, GAUGE, GAUGE, COUNTER };
+
+	private final AtomicLongArray values = new AtomicLongArray(NUM_METRICS);		// counter totals, gauge values, timer sums
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_METRICS);		// timer sample counts
+	private final AtomicLongArray maxima = new AtomicLongArray(NUM_METRICS);		// timer maxima since the last export
+
+	/**
+	 * Adds to a counter
+	 * @param metric
+	 * @param amount
+	 */
+	public void add(int metric, long amount) {
+		values.lazySet(metric, values.get(metric) + amount);
+	}
+
+	public void increment(int metric) {
+		add(metric, 1);
+	}
+
+	/**
+	 * Sets a gauge
+	 * @param metric
+	 * @param value
+	 */
+	public void set(int metric, long value) {
+		values.lazySet(metric, value);
+	}
+
+	/**
+	 * Records a sample of a timer
+	 * @param metric
+	 * @param sample
+	 */
+	public void record(int metric, long sample) {
+		values.lazySet(metric, values.get(metric) + sample);
+		counts.lazySet(metric, counts.get(metric) + 1);
+		if (sample > maxima.get(metric)) maxima.lazySet(metric, sample);
+	}
+
+	/**
+	 * Returns a counter's total, a gauge's value or the sum of a timer's samples
+	 * @param metric
+	 */
+	public long getValue(int metric) {
+		return values.get(metric);
+	}
+
+	/**
+	 * Returns the number of samples a timer has recorded
+	 * @param metric
+	 */
+	public long getCount(int metric) {
+		return counts.get(metric);
+	}
+
+	/**
+	 * Returns the largest sample a timer has recorded since the last call, and starts over
+	 * @param metric
+	 */
+	public long takeMax(int metric) {
+		return maxima.getAndSet(metric, 0);
+	}
+
+	public static String getName(int metric) {
+		return NAMES[metric];
+	}
+
+	public static int getKind(int metric) {
+		return KINDS[metric];
+	}
+}
@@ -0,0 +1,205 @@
+package com.code2play.quickout;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Writes a snapshot of {@link Metrics} every {@link #EXPORT_INTERVAL_MS} from a background thread,
+ * one JSON object per line. The current file is metrics.0.jsonl, it is rolled over to metrics.1.jsonl
+ * and so on once it exceeds {@link #MAX_FILE_BYTES}, keeping {@link #MAX_FILES} files. The directory
+ * is local storage: the working directory on desktop and the app's internal storage on Android.
+ *
+ * Every line has the time in milliseconds since the exporter started, then per metric:
+ * a counter's total and its rate per second over the interval, a gauge's value, or a timer's
+ * number of samples, mean and max over the interval, e.g.
+ * <pre>
+ * {"time":2000,"ballsSpawned":41,"ballsSpawnedPerSec":5.0,...,"stepTimeCount":120,"stepTimeMean":310.5,"stepTimeMax":1420,...}
+ * </pre>
+ * @author Jitrapon
+ *
+ */
+public class MetricsExporter {
+
+	public static final long EXPORT_INTERVAL_MS = 1000;
+	public static final int MAX_FILE_BYTES = 256 * 1024;
+	public static final int MAX_FILES = 4;
+
+	private final Metrics metrics;
+	private final File directory;
+	private final Thread writer;
+	private final long startNanos = System.nanoTime();
+	private final StringBuilder line = new StringBuilder(512);
+
+	/* the previous snapshot, owned by the writer */
+	private final long[] lastValues = new long[Metrics.NUM_METRICS];
+	private final long[] lastCounts = new long[Metrics.NUM_METRICS];
+	private long lastNanos = startNanos;
+
+	private OutputStream out;
+	private long fileBytes;
+	private volatile long linesWritten;
+	private volatile IOException error;
+	private volatile boolean running = true;
+
+	/**
+	 * Starts the writer thread
+	 * @param metrics
+	 * @param directory where the rolling files are written
+	 */
+	public MetricsExporter(Metrics metrics, FileHandle directory) {
+		this.metrics = metrics;
+		this.directory = directory.file();
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running) {
+					LockSupport.parkNanos(EXPORT_INTERVAL_MS * 1000000L);
+					if (running) export();
+				}
+				export();
+				closeFile();
+			}
+		}, "MetricsExporter");
+		writer.setDaemon(true);
+		writer.setPriority(Thread.MIN_PRIORITY);
+		writer.start();
+	}
+
+	/**
+	 * Appends a snapshot of every metric
+	 */
+	private void export() {
+		long now = System.nanoTime();
+		double seconds = (now - lastNanos) / 1000000000.0;
+		lastNanos = now;
+
+		line.setLength(0);
+		line.append("{\"time\":").append((now - startNanos) / 1000000L);
+		for (int i = 0; i < Metrics.NUM_METRICS; i++) {
+			String name = Metrics.getName(i);
+			long value = metrics.getValue(i);
+			switch (Metrics.getKind(i)) {
+			case Metrics.COUNTER:
+				line.append(",\"").append(name).append("\":").append(value);
+				line.append(",\"").append(name).append("PerSec\":").append(seconds > 0 ? round((value - lastValues[i]) / seconds) : 0);
+				break;
+			case Metrics.GAUGE:
+				line.append(",\"").append(name).append("\":").append(value);
+				break;
+			case Metrics.TIMER:
+				long count = metrics.getCount(i);
+				long samples = count - lastCounts[i];
+				line.append(",\"").append(name).append("Count\":").append(samples);
+				line.append(",\"").append(name).append("Mean\":").append(samples > 0 ? round((value - lastValues[i]) / (double) samples) : 0);
+				line.append(",\"").append(name).append("Max\":").append(metrics.takeMax(i));
+				lastCounts[i] = count;
+				break;
+			}
+			lastValues[i] = value;
+		}
+		line.append("}\n");
+		write(line);
+	}
+
+	/**
+	 * Rounds to one decimal
+	 */
+	private static double round(double value) {
+		return Math.round(value * 10.0) / 10.0;
+	}
+
+	/**
+	 * Appends a line to the current file, starting a new file first if it is full.
+	 * A failed write drops the line, the next line starts a new file.
+	 * @param text
+	 */
+	private void write(CharSequence text) {
+		try {
+			byte[] bytes = text.toString().getBytes("UTF-8");
+			if (out != null && fileBytes + bytes.length > MAX_FILE_BYTES) closeFile();
+			if (out == null) openFile();
+			out.write(bytes);
+			out.flush();
+			fileBytes += bytes.length;
+			linesWritten++;
+			error = null;
+		}
+		catch (IOException e) {
+			error = e;
+			closeFile();
+		}
+	}
+
+	private void openFile() throws IOException {
+		directory.mkdirs();
+		// every session starts a file of its own
+		File file = getFile(0);
+		if (file.exists()) roll();
+		out = new FileOutputStream(file);
+		fileBytes = 0;
+	}
+
+	/**
+	 * Shifts every file one place back, deleting the oldest
+	 */
+	private void roll() {
+		getFile(MAX_FILES - 1).delete();
+		for (int i = MAX_FILES - 2; i >= 0; i--) {
+			File file = getFile(i);
+			if (file.exists()) file.renameTo(getFile(i + 1));
+		}
+	}
+
+	private void closeFile() {
+		if (out == null) return;
+		try {
+			out.close();
+		}
+		catch (IOException e) {
+			if (error == null) error = e;
+		}
+		out = null;
+	}
+
+	/**
+	 * Returns a rolling file, 0 being the current one
+	 * @param index
+	 */
+	public File getFile(int index) {
+		return new File(directory, "metrics." + index + ".jsonl");
+	}
+
+	/**
+	 * Returns the number of snapshots written so far
+	 */
+	public long getLinesWritten() {
+		return linesWritten;
+	}
+
+	/**
+	 * Returns the error of the last write, null if it succeeded
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Writes a last snapshot and stops the writer
+	 */
+	public void dispose() {
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -16,4 +16,15 @@ public class Move {
 		this.moveType = moveType;
 		this.isExcepted = isExcepted;
 	}
+	
+	public Move set(int ballType, MoveType moveType, boolean isExcepted) {
+		this.ballType = ballType;
+		this.moveType = moveType;
+		this.isExcepted = isExcepted;
+		return this;
+	}
+	
+	public Move set(Move move) {
+		return set(move.ballType, move.moveType, move.isExcepted);
+	}
 }
@@ -1,5 +1,8 @@
 package com.code2play.quickout;
 
+import java.nio.ByteBuffer;
+import java.util.Random;
+
 import com.badlogic.gdx.utils.Array;
 
 /**
@@ -20,6 +23,10 @@ public class MoveSet {
 	
 	/** Next correct move(s) **/
 	private Array<Move> nextMoves;
+	
+	/** The Move objects held by moves and nextMoves, reused by every new moveset **/
+	private Move[] moveSlots;
+	private Move[] nextMoveSlots;
 
 	/** Maximum number of ball types in a moveset **/
 	private static final int MAX_SIZE = 1;
@@ -35,9 +42,16 @@ public class MoveSet {
 	
 	/** Last correct move type **/
 	private int correctMoveType;
+	
+	/** Chooses the ball types of new moves **/
+	private Random random;
 
 
-	public MoveSet() {
+	/**
+	 * @param random the level's move stream, see {@link RandomService#getMoveRandom()}
+	 */
+	public MoveSet(Random random) {
+		this.random = random;
 		ballTypes = new Array<Integer>( new Integer[]{
 				Level.BLUE,
 				Level.GREEN,
@@ -47,6 +61,12 @@ public class MoveSet {
 		} );
 		moves = new Array<Move>(MAX_SIZE);
 		nextMoves = new Array<Move>(MAX_SIZE);
+		moveSlots = new Move[MAX_SIZE];
+		nextMoveSlots = new Move[MAX_SIZE];
+		for (int i = 0; i < MAX_SIZE; i++) {
+			moveSlots[i] = new Move(Level.ANY, MoveType.ANY, false);
+			nextMoveSlots[i] = new Move(Level.ANY, MoveType.ANY, false);
+		}
 		index = 0;
 		correct = true;
 		redraw = true;
@@ -120,9 +140,9 @@ public class MoveSet {
 
 			for (int i = 0; i < MAX_SIZE; i++) {
 				if (nextMoves.size == 0) 
-					moves.add( new Move(ballTypes.random(), MoveType.ANY, false) );
+					moves.add( moveSlots[i].set(getRandomBallType(), MoveType.ANY, false) );
 				else
-					moves.add(nextMoves.get(i));
+					moves.add( moveSlots[i].set(nextMoves.get(i)) );
 			} 
 			index = 0;
 			setNextMoveSet(forceChange);
@@ -142,11 +162,58 @@ public class MoveSet {
 			nextMoves.clear();
 			
 			for (int i = 0; i < MAX_SIZE; i++) {
-				nextMoves.add( new Move(ballTypes.random(), MoveType.ANY, false) );
+				nextMoves.add( nextMoveSlots[i].set(getRandomBallType(), MoveType.ANY, false) );
 			}
 		}
 	}
 
+	private int getRandomBallType() {
+		return ballTypes.get(random.nextInt(ballTypes.size));
+	}
+
+	/**
+	 * Writes the current and next moves and the validation progress, for a level snapshot
+	 * @param out
+	 */
+	public void write(ByteBuffer out) {
+		writeMoves(out, moves);
+		writeMoves(out, nextMoves);
+		out.putInt(index);
+		out.put((byte) (correct ? 1 : 0));
+		out.putInt(correctMoveType);
+	}
+	
+	/**
+	 * Restores what {@link #write(ByteBuffer)} wrote
+	 * @param in
+	 */
+	public void read(ByteBuffer in) {
+		readMoves(in, moves, moveSlots);
+		readMoves(in, nextMoves, nextMoveSlots);
+		index = in.getInt();
+		correct = in.get() != 0;
+		correctMoveType = in.getInt();
+		redraw = true;
+	}
+	
+	private static void writeMoves(ByteBuffer out, Array<Move> list) {
+		out.putInt(list.size);
+		for (int i = 0; i < list.size; i++) {
+			Move move = list.get(i);
+			out.putInt(move.ballType);
+			out.put((byte) move.moveType.ordinal());
+			out.put((byte) (move.isExcepted ? 1 : 0));
+		}
+	}
+	
+	private static void readMoves(ByteBuffer in, Array<Move> list, Move[] slots) {
+		list.clear();
+		int size = in.getInt();
+		for (int i = 0; i < size; i++) {
+			list.add(slots[i].set(in.getInt(), MoveType.values()[in.get()], in.get() != 0));
+		}
+	}
+
 	public Array<Move> getMoves() {
 		return moves;
 	}
@@ -0,0 +1,271 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.JointDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Collects every structural change to the Box2D world (body activation and destruction,
+ * joint creation and destruction, collision filter and continuous collision changes) while a tick runs, and applies
+ * them in one batch through {@link #flush()}. Level flushes once per tick after world.step,
+ * so the world is never mutated while it is locked or while entities are being iterated.
+ * 
+ * Pooled entities never create or destroy their bodies during play, activating and 
+ * deactivating a body takes the place of creating and destroying it.
+ * @author Jitrapon
+ *
+ */
+public class PhysicsCommandBuffer {
+	
+	/**
+	 * Receives joints created by a flush
+	 */
+	public interface JointCallback {
+		
+		/**
+		 * Called during the flush right after the joint has been created.
+		 * Commands queued from here are applied within the same flush.
+		 * @param joint
+		 */
+		public void onJointCreated(Joint joint);
+	}
+	
+	/* ALL COMMAND TYPES */
+	public static final int ACTIVATE_BODY = 0;
+	public static final int DEACTIVATE_BODY = 1;
+	public static final int DESTROY_BODY = 2;
+	public static final int CREATE_JOINT = 3;
+	public static final int DESTROY_JOINT = 4;
+	public static final int SET_MASK_BITS = 5;
+	public static final int REFILTER = 6;
+	public static final int SET_BULLET = 7;
+	public static final int NUM_COMMAND_TYPES = 8;
+
+	/** A single queued mutation, recycled after it has been applied */
+	private static class Command {
+		int type;
+		Body body;
+		Joint joint;
+		JointDef jointDef;
+		JointCallback callback;
+		Fixture fixture;
+		short maskBits;
+		boolean bullet;
+		
+		void clear() {
+			body = null;
+			joint = null;
+			jointDef = null;
+			callback = null;
+			fixture = null;
+		}
+	}
+	
+	private final World world;
+	private final Array<Command> commands;
+	private final Pool<Command> commandPool;
+	
+	/* counters of the last flush, for profiling */
+	private final int[] lastCounts;
+	private int lastFlushSize;
+	private long lastFlushNanos;
+	private long totalCommands;
+	
+	public PhysicsCommandBuffer(World world) {
+		this.world = world;
+		commands = new Array<Command>(32);
+		commandPool = new Pool<Command>(32) {
+			@Override
+			protected Command newObject() {
+				return new Command();
+			}
+		};
+		lastCounts = new int[NUM_COMMAND_TYPES];
+	}
+	
+	private Command queue(int type) {
+		Command command = commandPool.obtain();
+		command.type = type;
+		commands.add(command);
+		return command;
+	}
+	
+	/**
+	 * Puts a body back into the simulation
+	 * @param body
+	 */
+	public void activateBody(Body body) {
+		queue(ACTIVATE_BODY).body = body;
+	}
+	
+	/**
+	 * Takes a body out of the simulation without destroying it
+	 * @param body
+	 */
+	public void deactivateBody(Body body) {
+		queue(DEACTIVATE_BODY).body = body;
+	}
+	
+	/**
+	 * Destroys a body and every joint attached to it
+	 * @param body
+	 */
+	public void destroyBody(Body body) {
+		queue(DESTROY_BODY).body = body;
+	}
+	
+	/**
+	 * Creates a joint from the definition. The definition is read when the buffer is flushed,
+	 * so changes made to it until then (a drag target for example) are still applied.
+	 * @param jointDef
+	 * @param callback receives the created joint, may be null
+	 */
+	public void createJoint(JointDef jointDef, JointCallback callback) {
+		Command command = queue(CREATE_JOINT);
+		command.jointDef = jointDef;
+		command.callback = callback;
+	}
+	
+	/**
+	 * Destroys a joint
+	 * @param joint
+	 */
+	public void destroyJoint(Joint joint) {
+		queue(DESTROY_JOINT).joint = joint;
+	}
+	
+	/**
+	 * Changes the mask bits of a fixture's collision filter
+	 * @param fixture
+	 * @param maskBits
+	 */
+	public void setMaskBits(Fixture fixture, short maskBits) {
+		Command command = queue(SET_MASK_BITS);
+		command.fixture = fixture;
+		command.maskBits = maskBits;
+	}
+	
+	/**
+	 * Makes Box2D run the contact filter again for every contact of a fixture,
+	 * used when the state the contact filter depends on has changed
+	 * @param fixture
+	 */
+	public void refilter(Fixture fixture) {
+		queue(REFILTER).fixture = fixture;
+	}
+	
+	/**
+	 * Turns continuous collision of a body on or off
+	 * @param body
+	 * @param bullet
+	 */
+	public void setBullet(Body body, boolean bullet) {
+		Command command = queue(SET_BULLET);
+		command.body = body;
+		command.bullet = bullet;
+	}
+	
+	/**
+	 * Applies every queued command in the order they were queued. 
+	 * Must not be called during world.step.
+	 */
+	public void flush() {
+		long start = TimeUtils.nanoTime();
+		for (int i = 0; i < NUM_COMMAND_TYPES; i++) {
+			lastCounts[i] = 0;
+		}
+		
+		// commands queued by joint callbacks are appended and applied in this same loop
+		int i = 0;
+		for (; i < commands.size; i++) {
+			Command command = commands.get(i);
+			apply(command);
+			lastCounts[command.type]++;
+			command.clear();
+			commandPool.free(command);
+		}
+		commands.clear();
+		
+		lastFlushSize = i;
+		totalCommands += i;
+		lastFlushNanos = TimeUtils.nanoTime() - start;
+	}
+	
+	private void apply(Command command) {
+		switch (command.type) {
+		case ACTIVATE_BODY:
+			command.body.setActive(true);
+			command.body.setAwake(true);
+			break;
+		case DEACTIVATE_BODY:
+			command.body.setActive(false);
+			break;
+		case DESTROY_BODY:
+			world.destroyBody(command.body);
+			break;
+		case CREATE_JOINT:
+			Joint joint = world.createJoint(command.jointDef);
+			if (command.callback != null) command.callback.onJointCreated(joint);
+			break;
+		case DESTROY_JOINT:
+			world.destroyJoint(command.joint);
+			break;
+		case SET_MASK_BITS:
+			Filter filter = command.fixture.getFilterData();
+			if (filter.maskBits != command.maskBits) {
+				filter.maskBits = command.maskBits;
+				command.fixture.setFilterData(filter);
+			}
+			break;
+		case REFILTER:
+			command.fixture.refilter();
+			break;
+		case SET_BULLET:
+			command.body.setBullet(command.bullet);
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Drops every queued command without applying it, used when the world is disposed
+	 */
+	public void clear() {
+		for (int i = 0; i < commands.size; i++) {
+			commands.get(i).clear();
+		}
+		commandPool.freeAll(commands);
+		commands.clear();
+	}
+	
+	public int getPendingSize() {
+		return commands.size;
+	}
+	
+	/**
+	 * Returns the number of commands of a type applied by the last flush
+	 * @param type one of the command type constants
+	 */
+	public int getLastFlushCount(int type) {
+		return lastCounts[type];
+	}
+	
+	public int getLastFlushSize() {
+		return lastFlushSize;
+	}
+	
+	public long getLastFlushNanos() {
+		return lastFlushNanos;
+	}
+	
+	public long getTotalCommands() {
+		return totalCommands;
+	}
+}
@@ -0,0 +1,200 @@
+package com.code2play.quickout;
+
+/**
+ * Chooses the Box2D solver iteration counts from how long world.step actually takes on this device.
+ * Step times are averaged over a window of ticks. When the average is over the target budget the
+ * iterations are lowered, when it is well under the budget they are raised again, always within
+ * the configured bounds. Velocity iterations are traded first, position iterations last.
+ *
+ * Every change is reported to the listener together with its reason and the measured average.
+ * @author Jitrapon
+ *
+ */
+public class PhysicsQualityController {
+
+	/**
+	 * Receives every change of the iteration counts
+	 */
+	public interface QualityListener {
+
+		/**
+		 * Called right after the iteration counts changed. The controller's getters
+		 * return the new counts, the reason and the average step time behind the decision.
+		 * @param controller
+		 */
+		public void onQualityChanged(PhysicsQualityController controller);
+	}
+
+	/* ALL DECISION REASONS */
+	public static final int REASON_NONE = -1;
+	public static final int REASON_OVER_BUDGET = 0;				// steps took longer than the budget, quality lowered
+	public static final int REASON_UNDER_BUDGET = 1;			// steps took well under the budget, quality raised
+	private static final String[] REASON_NAMES = { "over budget", "under budget" };
+
+	/** Quality is only raised when the average step takes less than this fraction of the budget */
+	private static final float RAISE_FRACTION = 0.5f;
+
+	/* bounds and target */
+	private int minVelocityIterations = 3;
+	private int maxVelocityIterations = 8;
+	private int minPositionIterations = 1;
+	private int maxPositionIterations = 3;
+	private long targetStepNanos = 2000000L;					// 2 ms per step
+	private int windowTicks = 45;								// about one second of ticks
+
+	/* current quality */
+	private int velocityIterations;
+	private int positionIterations;
+
+	/* measurements */
+	private long windowNanos;
+	private int windowCount;
+	private long lastStepNanos;
+	private long averageStepNanos;
+
+	/* decisions */
+	private boolean adaptive = true;							// false keeps the counts fixed, e.g. for reproducible runs
+	private QualityListener listener;
+	private int lastReason = REASON_NONE;
+	private long lastDecisionTick;
+	private int numDecisions;
+	private long ticks;
+
+	public PhysicsQualityController(int velocityIterations, int positionIterations) {
+		this.velocityIterations = velocityIterations;
+		this.positionIterations = positionIterations;
+	}
+
+	/**
+	 * Sets the range the iteration counts are kept in. The current counts are clamped to it.
+	 */
+	public void setBounds(int minVelocityIterations, int maxVelocityIterations,
+			int minPositionIterations, int maxPositionIterations) {
+		this.minVelocityIterations = minVelocityIterations;
+		this.maxVelocityIterations = maxVelocityIterations;
+		this.minPositionIterations = minPositionIterations;
+		this.maxPositionIterations = maxPositionIterations;
+		velocityIterations = clamp(velocityIterations, minVelocityIterations, maxVelocityIterations);
+		positionIterations = clamp(positionIterations, minPositionIterations, maxPositionIterations);
+	}
+
+	/**
+	 * Sets the step time to hold
+	 * @param targetStepNanos budget of a single world.step in nanoseconds
+	 * @param windowTicks number of ticks averaged before each decision
+	 */
+	public void setTarget(long targetStepNanos, int windowTicks) {
+		this.targetStepNanos = targetStepNanos;
+		this.windowTicks = Math.max(1, windowTicks);
+	}
+
+	/**
+	 * Turns the adjustment of the iteration counts on or off. Step times are still measured
+	 * while it is off. Reproducible runs need it off, because step times differ between runs.
+	 * @param adaptive
+	 */
+	public void setAdaptive(boolean adaptive) {
+		this.adaptive = adaptive;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public void setListener(QualityListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Records how long the last world.step took, and adjusts the iterations once a window is complete
+	 * @param stepNanos
+	 */
+	public void recordStep(long stepNanos) {
+		ticks++;
+		lastStepNanos = stepNanos;
+		windowNanos += stepNanos;
+		if (++windowCount < windowTicks) return;
+
+		averageStepNanos = windowNanos / windowCount;
+		windowNanos = 0;
+		windowCount = 0;
+		if (!adaptive) return;
+
+		int reason = REASON_NONE;
+		if (averageStepNanos > targetStepNanos) {
+			if (velocityIterations > minVelocityIterations) velocityIterations--;
+			else if (positionIterations > minPositionIterations) positionIterations--;
+			else return;
+			reason = REASON_OVER_BUDGET;
+		}
+		else if (averageStepNanos < targetStepNanos * RAISE_FRACTION) {
+			if (velocityIterations < maxVelocityIterations) velocityIterations++;
+			else if (positionIterations < maxPositionIterations) positionIterations++;
+			else return;
+			reason = REASON_UNDER_BUDGET;
+		}
+		else return;
+
+		lastReason = reason;
+		lastDecisionTick = ticks;
+		numDecisions++;
+		if (listener != null) listener.onQualityChanged(this);
+	}
+
+	private static int clamp(int value, int min, int max) {
+		return value < min ? min : value > max ? max : value;
+	}
+
+	/**
+	 * Sets the iteration counts directly, e.g. to follow a replay. They are clamped to the bounds.
+	 */
+	public void setIterations(int velocityIterations, int positionIterations) {
+		this.velocityIterations = clamp(velocityIterations, minVelocityIterations, maxVelocityIterations);
+		this.positionIterations = clamp(positionIterations, minPositionIterations, maxPositionIterations);
+	}
+
+	public int getVelocityIterations() {
+		return velocityIterations;
+	}
+
+	public int getPositionIterations() {
+		return positionIterations;
+	}
+
+	public long getLastStepNanos() {
+		return lastStepNanos;
+	}
+
+	/**
+	 * Returns the average step time of the last complete window
+	 */
+	public long getAverageStepNanos() {
+		return averageStepNanos;
+	}
+
+	public long getTargetStepNanos() {
+		return targetStepNanos;
+	}
+
+	/**
+	 * Returns the reason of the last change, one of the REASON constants
+	 */
+	public int getLastReason() {
+		return lastReason;
+	}
+
+	public String getLastReasonName() {
+		return lastReason == REASON_NONE ? "none" : REASON_NAMES[lastReason];
+	}
+
+	/**
+	 * Returns the tick (counted from the first recorded step) of the last change
+	 */
+	public long getLastDecisionTick() {
+		return lastDecisionTick;
+	}
+
+	public int getNumDecisions() {
+		return numDecisions;
+	}
+}
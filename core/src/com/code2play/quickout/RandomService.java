@@ -0,0 +1,108 @@
+package com.code2play.quickout;
+
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * The only source of randomness of a level session. A single seed is split into independent
+ * streams, so that drawing more numbers from one stream (e.g. playing more sounds) never
+ * changes what another stream (e.g. where balls spawn) produces.
+ * @author Jitrapon
+ *
+ */
+public class RandomService {
+
+	/* ALL STREAMS */
+	private static final int SPAWN_STREAM = 0;
+	private static final int MOVE_STREAM = 1;
+	private static final int ITEM_STREAM = 2;
+	private static final int AUDIO_STREAM = 3;
+
+	/** Odd constant that spreads the stream seeds apart before RandomXS128 hashes them */
+	private static final long STREAM_SEED_STEP = 0x9E3779B97F4A7C15L;
+
+	private long seed;
+	private final RandomXS128 spawn = new RandomXS128();				// ball positions and velocities
+	private final RandomXS128 move = new RandomXS128();					// ball types of the moveset
+	private final RandomXS128 item = new RandomXS128();					// item types and positions
+	private final RandomXS128 audio = new RandomXS128();				// sound effect variations
+
+	/**
+	 * Creates the streams from a seed based on the current time
+	 */
+	public RandomService() {
+		this(TimeUtils.nanoTime());
+	}
+
+	public RandomService(long seed) {
+		setSeed(seed);
+	}
+
+	/**
+	 * Restarts every stream from the seed
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+		spawn.setSeed(getStreamSeed(seed, SPAWN_STREAM));
+		move.setSeed(getStreamSeed(seed, MOVE_STREAM));
+		item.setSeed(getStreamSeed(seed, ITEM_STREAM));
+		audio.setSeed(getStreamSeed(seed, AUDIO_STREAM));
+	}
+
+	private static long getStreamSeed(long seed, int stream) {
+		return seed + STREAM_SEED_STEP * (stream + 1);
+	}
+
+	/**
+	 * Returns the seed the streams started from, use it to reproduce the session
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Writes the current state of every stream, for a level snapshot
+	 * @param out
+	 */
+	public void write(ByteBuffer out) {
+		writeState(out, spawn);
+		writeState(out, move);
+		writeState(out, item);
+		writeState(out, audio);
+	}
+
+	/**
+	 * Continues every stream exactly where {@link #write(ByteBuffer)} left it
+	 * @param in
+	 */
+	public void read(ByteBuffer in) {
+		spawn.setState(in.getLong(), in.getLong());
+		move.setState(in.getLong(), in.getLong());
+		item.setState(in.getLong(), in.getLong());
+		audio.setState(in.getLong(), in.getLong());
+	}
+
+	private static void writeState(ByteBuffer out, RandomXS128 random) {
+		out.putLong(random.getState(0));
+		out.putLong(random.getState(1));
+	}
+
+	public RandomXS128 getSpawnRandom() {
+		return spawn;
+	}
+
+	public RandomXS128 getMoveRandom() {
+		return move;
+	}
+
+	public RandomXS128 getItemRandom() {
+		return item;
+	}
+
+	public RandomXS128 getAudioRandom() {
+		return audio;
+	}
+}
@@ -0,0 +1,180 @@
+package com.code2play.quickout;
+
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.code2play.quickout.GameMain.GameMode;
+
+/**
+ * Plays a stream written by {@link ReplayRecorder} back into a level. Create the level with the
+ * replay's game mode and seed, attach the player with {@link Level#setReplayPlayer(ReplayPlayer)},
+ * and every tick receives exactly the input it consumed when it was recorded.
+ * @author Jitrapon
+ *
+ */
+public class ReplayPlayer {
+
+	private final ByteBuffer data;
+	private final GameMode gameMode;
+	private final long seed;
+	private final float timeStep;
+
+	/* the next record, read ahead of the tick it belongs to */
+	private int nextType;
+	private long nextTick;
+	private long lastTime;
+	private boolean finished;
+
+	/* the end of the recording, if it was reached */
+	private boolean ended;
+	private long endTick;
+	private long endStateHash;
+	private long playedStateHash;
+
+	/**
+	 * @param data the whole stream, from its header
+	 * @throws GdxRuntimeException if the stream is not a replay of a supported version
+	 */
+	public ReplayPlayer(ByteBuffer data) {
+		this.data = data;
+		if (data.remaining() < 18 || data.getInt() != ReplayRecorder.MAGIC) {
+			throw new GdxRuntimeException("Not a replay");
+		}
+		int version = data.get();
+		if (version != ReplayRecorder.VERSION) {
+			throw new GdxRuntimeException("Unsupported replay version " + version);
+		}
+		gameMode = GameMode.values()[data.get()];
+		seed = data.getLong();
+		timeStep = data.getFloat();
+		readRecordHeader();
+	}
+
+	/**
+	 * Loads a whole replay file into memory
+	 * @param file
+	 */
+	public static ReplayPlayer load(FileHandle file) {
+		return new ReplayPlayer(ByteBuffer.wrap(file.readBytes()));
+	}
+
+	/**
+	 * Feeds the recorded input of the level's current tick. Called by Level at the start of every tick.
+	 * @param level
+	 */
+	public void playTick(Level level) {
+		long tick = level.getTickCount();
+		while (!finished && nextTick == tick) {
+			switch (nextType) {
+			case ReplayRecorder.RECORD_GRAVITY:
+				level.setGravity(data.getFloat(), data.getFloat());
+				break;
+			case ReplayRecorder.RECORD_ITERATIONS:
+				level.getPhysicsQuality().setIterations(data.get(), data.get());
+				break;
+			case ReplayRecorder.RECORD_END:
+				ended = true;
+				endTick = nextTick;
+				endStateHash = data.getLong();
+				playedStateHash = level.getStateHash();
+				finished = true;
+				return;
+			default:
+				int pointer = data.get();
+				float x = data.getFloat();
+				float y = data.getFloat();
+				lastTime += unZigZag(getVarLong(data));
+				level.getTouchEvents().push(nextType, pointer, x, y, lastTime);
+				break;
+			}
+			readRecordHeader();
+		}
+	}
+
+	/**
+	 * Reads the type and tick of the next record, a stream cut short simply finishes
+	 */
+	private void readRecordHeader() {
+		if (!data.hasRemaining()) {
+			finished = true;
+			return;
+		}
+		nextType = data.get() & 0xFF;
+		nextTick += getVarLong(data);
+	}
+
+	static long getVarLong(ByteBuffer data) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public GameMode getGameMode() {
+		return gameMode;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the fixed time step of the recorded level
+	 */
+	public float getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * Returns true once every record has been played
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Returns true if the recording was finished properly, the end tick and state hash are then known
+	 */
+	public boolean hasEnded() {
+		return ended;
+	}
+
+	/**
+	 * Returns the tick count of the level when the recording finished
+	 */
+	public long getEndTick() {
+		return endTick;
+	}
+
+	/**
+	 * Returns the state hash of the level when the recording finished
+	 */
+	public long getEndStateHash() {
+		return endStateHash;
+	}
+
+	/**
+	 * Returns the state hash of the playing level when it reached the end tick
+	 */
+	public long getPlayedStateHash() {
+		return playedStateHash;
+	}
+
+	/**
+	 * Returns true if the replay reached the end of the recording in exactly the recorded state.
+	 * Both levels must have had state hashing turned on from their first tick.
+	 */
+	public boolean isInSync() {
+		return ended && playedStateHash == endStateHash;
+	}
+}
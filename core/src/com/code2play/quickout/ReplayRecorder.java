@@ -0,0 +1,208 @@
+package com.code2play.quickout;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Records a level session as a compact binary stream: a header with the game mode and seed,
+ * then every input consumed by a tick, tagged with the tick it was consumed in. Replaying the
+ * stream into a level created with the same mode and seed reproduces the session exactly.
+ *
+ * Records are encoded into a preallocated direct buffer and written to the channel only when the
+ * buffer is nearly full, so a session costs a handful of writes. Ticks and times are stored as
+ * variable-length deltas from the previous record.
+ *
+ * Record layout, after the record type byte and the tick delta:
+ * touch events: pointer byte, x float, y float, time delta. Gravity: x float, y float.
+ * Iterations: velocity byte, position byte. End: state hash long.
+ * @author Jitrapon
+ *
+ */
+public class ReplayRecorder {
+
+	/* HEADER */
+	public static final int MAGIC = 0x514F5250;						// "QORP"
+	public static final int VERSION = 1;
+
+	/* ALL RECORD TYPES, touch events use the TouchEventQueue types */
+	public static final int RECORD_GRAVITY = 16;
+	public static final int RECORD_ITERATIONS = 17;
+	public static final int RECORD_END = 127;
+
+	/** Default size of the buffer, one write per this many bytes of records */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/** Largest possible record: type, tick and time varints, pointer and two floats */
+	private static final int MAX_RECORD_SIZE = 1 + 10 + 1 + 4 + 4 + 10;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private long lastTick;
+	private long lastTime;
+	private float gravityX = Float.NaN;
+	private float gravityY = Float.NaN;
+	private int velocityIterations = -1;
+	private int positionIterations = -1;
+	private long bytesWritten;
+	private boolean finished;
+	private IOException error;
+
+	/**
+	 * @param channel where the stream is written, closed when the recorder finishes
+	 * @param bufferSize size of the direct buffer
+	 */
+	public ReplayRecorder(WritableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, MAX_RECORD_SIZE * 2));
+	}
+
+	/**
+	 * Creates a recorder writing to a file, replacing it
+	 * @param file
+	 * @throws IOException if the file cannot be created
+	 */
+	public static ReplayRecorder create(FileHandle file) throws IOException {
+		file.parent().mkdirs();
+		return new ReplayRecorder(new FileOutputStream(file.file()).getChannel(), DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Writes the header of the session, call it right after the level is created
+	 * @param level
+	 */
+	public void begin(Level level) {
+		buffer.putInt(MAGIC);
+		buffer.put((byte) VERSION);
+		buffer.put((byte) level.getGameMode().ordinal());
+		buffer.putLong(level.getRandom().getSeed());
+		buffer.putFloat(level.getTimeStep());
+		lastTick = level.getTickCount();
+	}
+
+	/**
+	 * Records the input the level is about to consume in its current tick.
+	 * Called by Level at the start of every tick.
+	 * @param level
+	 */
+	public void recordTick(Level level) {
+		if (finished) return;
+		long tick = level.getTickCount();
+
+		Vector2 gravity = level.getGravity();
+		if (gravity.x != gravityX || gravity.y != gravityY) {
+			gravityX = gravity.x;
+			gravityY = gravity.y;
+			beginRecord(RECORD_GRAVITY, tick);
+			buffer.putFloat(gravityX);
+			buffer.putFloat(gravityY);
+		}
+
+		PhysicsQualityController quality = level.getPhysicsQuality();
+		if (quality.getVelocityIterations() != velocityIterations
+				|| quality.getPositionIterations() != positionIterations) {
+			velocityIterations = quality.getVelocityIterations();
+			positionIterations = quality.getPositionIterations();
+			beginRecord(RECORD_ITERATIONS, tick);
+			buffer.put((byte) velocityIterations);
+			buffer.put((byte) positionIterations);
+		}
+
+		TouchEventQueue events = level.getTouchEvents();
+		for (int i = 0; i < events.size(); i++) {
+			beginRecord(events.peekType(i), tick);
+			buffer.put((byte) events.peekPointer(i));
+			buffer.putFloat(events.peekX(i));
+			buffer.putFloat(events.peekY(i));
+			long time = events.peekTime(i);
+			putVarLong(buffer, zigZag(time - lastTime));
+			lastTime = time;
+		}
+	}
+
+	/**
+	 * Writes the end of the session with the level's state hash, flushes and closes the channel
+	 * @param level
+	 */
+	public void finish(Level level) {
+		if (!finished) {
+			beginRecord(RECORD_END, level.getTickCount());
+			buffer.putLong(level.getStateHash());
+			flush();
+			finished = true;
+		}
+		if (!channel.isOpen()) return;
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			if (error == null) error = e;
+		}
+	}
+
+	private void beginRecord(int type, long tick) {
+		if (buffer.remaining() < MAX_RECORD_SIZE) flush();
+		buffer.put((byte) type);
+		putVarLong(buffer, tick - lastTick);
+		lastTick = tick;
+	}
+
+	/**
+	 * Writes the buffered records to the channel. A failed write stops the recording,
+	 * the game keeps running and the error is available from {@link #getError()}.
+	 */
+	private void flush() {
+		buffer.flip();
+		try {
+			while (error == null && buffer.hasRemaining()) {
+				bytesWritten += channel.write(buffer);
+			}
+		}
+		catch (IOException e) {
+			error = e;
+			finished = true;
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes a value 7 bits at a time, lowest first, the high bit of each byte set if more follow.
+	 * Takes at most 10 bytes, read back by {@link ReplayPlayer#getVarLong(ByteBuffer)}.
+	 */
+	static void putVarLong(ByteBuffer out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	/**
+	 * Maps signed values to unsigned ones so that small negative deltas stay short as varints
+	 */
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Returns the number of bytes written to the channel so far
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Returns the error that stopped the recording, null if there was none
+	 */
+	public IOException getError() {
+		return error;
+	}
+}
@@ -0,0 +1,104 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Plays a recorded session back through a Level and renders it. The player's input is ignored,
+ * every tick receives the recorded input instead. At 1x the replay runs at the recorded speed,
+ * at max speed as many ticks as fit into a frame are simulated before each render.
+ * @author Jitrapon
+ *
+ */
+public class ReplayScreen implements Screen {
+
+	/** Simulation time spent per frame at max speed, in nanoseconds */
+	private static final long MAX_SPEED_FRAME_NANOS = 12000000L;
+
+	private GameMain game;
+	private Level level;
+	private WorldView worldView;
+	private ReplayPlayer player;
+	private boolean maxSpeed;
+	private boolean reported;
+
+	/**
+	 * @param g
+	 * @param player the recording to play
+	 * @param maxSpeed true to simulate as fast as possible instead of at 1x
+	 */
+	public ReplayScreen(GameMain g, ReplayPlayer player, boolean maxSpeed) {
+		game = g;
+		this.player = player;
+		this.maxSpeed = maxSpeed;
+		level = new Level(player.getGameMode(), player.getSeed());
+		level.setStateHashing(true);
+		level.setReplayPlayer(player);
+		worldView = new WorldView(level);
+		level.setWorldRenderer(worldView);
+		worldView.setInputEnabled(false);
+	}
+
+	@Override
+	public void render(float delta) {
+		if (!player.isFinished()) {
+			if (maxSpeed) {
+				long start = TimeUtils.nanoTime();
+				float step = level.getTimeStep();
+				do {
+					level.update(step);
+				} while (!player.isFinished() && TimeUtils.nanoTime() - start < MAX_SPEED_FRAME_NANOS);
+			}
+			else {
+				level.update(delta);
+			}
+		}
+		else if (!reported) {
+			reported = true;
+			if (!player.hasEnded()) Gdx.app.log("REPLAY", "Recording ended early at tick " + level.getTickCount());
+			else if (player.isInSync()) Gdx.app.log("REPLAY", "Replayed " + player.getEndTick() + " ticks in sync");
+			else Gdx.app.error("REPLAY", "Replay desynced, state hash " + Long.toHexString(player.getPlayedStateHash())
+					+ " instead of " + Long.toHexString(player.getEndStateHash()));
+		}
+
+		worldView.render(delta);
+
+		// return to main menu
+		if (Gdx.input.isKeyPressed(Input.Keys.BACK) || Gdx.input.isKeyPressed(Input.Keys.ESCAPE)) {
+			dispose();
+			game.setScreen(game.mainMenuScreen);
+		}
+	}
+
+	@Override
+	public void resize(int width, int height) {
+		worldView.resize(width, height);
+	}
+
+	@Override
+	public void show() {
+		Gdx.input.setCatchBackKey(true);
+	}
+
+	@Override
+	public void hide() {
+		Gdx.input.setCatchBackKey(false);
+	}
+
+	@Override
+	public void pause() {
+	}
+
+	@Override
+	public void resume() {
+	}
+
+	@Override
+	public void dispose() {
+		// never called automatically
+		worldView.dispose();
+		level.exitGame();
+	}
+}
@@ -0,0 +1,590 @@
+package com.code2play.quickout;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.code2play.quickout.GameMain.GameMode;
+
+/**
+ * Local store of round results. Every result is appended to a log file as a fixed-size record and is
+ * never rewritten, and the best {@link #TOP_COUNT} results of each game mode are kept in memory.
+ *
+ * Adding a result only updates the in-memory leaderboard and hands the record to a background
+ * writer, the render thread never touches the files. Once the log holds {@link #SEGMENT_RECORDS}
+ * records it is rolled over to results.1.log, results.2.log and so on, which are kept. After every
+ * append the writer also saves the leaderboard to an index file, results.top, together with the number
+ * of records it covers. Loading reads the index and only the records appended after it was saved,
+ * so it stays constant-time however many rounds have been played. A missing or corrupted index is
+ * rebuilt from the whole history. Loading also runs on the writer, the leaderboard is complete once
+ * {@link #isLoaded()} returns true.
+ *
+ * Log layout: magic, version, 3 bytes of padding, then records of {@link #RECORD_SIZE} bytes:
+ * mode byte, exit code byte, 2 bytes of padding, score, ball count, max combo, time left float,
+ * timestamp long, CRC32 of the preceding 28 bytes. A corrupted record is skipped and stays in the log,
+ * a torn record at the end of the log is cut off before anything is appended.
+ *
+ * Index layout: magic, version, 3 bytes of padding, records covered long, record count int, 4 bytes
+ * of padding, the leaderboard records best first, CRC32 of everything before it.
+ * @author Jitrapon
+ *
+ */
+public class ResultStore {
+
+	/* HEADER */
+	public static final int MAGIC = 0x514F5253;						// "QORS"
+	public static final int INDEX_MAGIC = 0x514F5249;				// "QORI"
+	public static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int INDEX_HEADER_SIZE = HEADER_SIZE + 16;
+
+	public static final int RECORD_SIZE = 32;
+	public static final int TOP_COUNT = 10;								// results kept per game mode
+	public static final int SEGMENT_RECORDS = 4096;						// the log is rolled over when it reaches this many records
+
+	/** Where the results are stored, relative to the local storage */
+	public static final String RESULTS_FILE = "saves/results.log";
+
+	private final File file;
+	private final File indexFile;
+	private final TopResults leaderboard;								// read and updated by the caller's thread
+	private final Array<GameResult> addedBeforeLoad;					// added by the caller while the log was loading
+	private boolean merged;												// the loaded results are on the caller's leaderboard
+	private volatile TopResults loaded;									// published by the writer once the log is loaded
+	private final TopResults persisted;									// what the index holds, owned by the writer
+	private final ExecutorService writer;
+	private FileChannel channel;										// appends to the log, owned by the writer
+	private int rolledSegments;											// number of rolled over logs, owned by the writer
+	private int logRecords;												// records in the current log, owned by the writer
+	private volatile int droppedRecords;
+	private volatile IOException error;
+	private final CRC32 crc = new CRC32();								// used by the caller's thread
+	private final CRC32 writerCrc = new CRC32();						// used by the writer, the threads never share one
+
+	/**
+	 * Starts loading the log in the background, it is created then if it does not exist
+	 * @param file
+	 */
+	public ResultStore(FileHandle file) {
+		this.file = file.file();
+		indexFile = getSiblingFile(".top");
+		leaderboard = new TopResults();
+		addedBeforeLoad = new Array<GameResult>();
+		persisted = new TopResults();
+		writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ResultWriter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		writer.execute(new Runnable() {
+			@Override
+			public void run() {
+				load();
+			}
+		});
+	}
+
+	/**
+	 * Reads the index and the records appended since it was saved, or every record if the index cannot be used
+	 */
+	private void load() {
+		try {
+			while (getSegmentFile(rolledSegments + 1).exists()) rolledSegments++;
+			openLog();
+			long total = getTotalRecords();
+			long covered = readIndex(total);
+			if (covered < 0) {
+				persisted.clear();
+				covered = 0;
+			}
+			replay(covered, total);
+			if (covered != total) writeIndex();
+		}
+		catch (IOException e) {
+			error = e;
+			closeChannel();
+		}
+		loaded = persisted.copy();
+	}
+
+	/**
+	 * Opens the current log for appending, creating it if needed. A torn record at its end is cut off,
+	 * a file that is not a log is moved aside to results.log.bad.
+	 */
+	private void openLog() throws IOException {
+		if (channel != null) return;
+		if (file.getParentFile() != null) file.getParentFile().mkdirs();
+		if (file.exists() && !hasHeader(file, MAGIC)) {
+			File bad = getSiblingFile(".log.bad");
+			bad.delete();
+			if (!file.renameTo(bad)) throw new IOException("Cannot move " + file + " aside");
+		}
+
+		channel = new RandomAccessFile(file, "rw").getChannel();
+		if (channel.size() < HEADER_SIZE) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.put((byte) VERSION);
+			header.position(0);
+			channel.truncate(0);
+			while (header.hasRemaining()) channel.write(header, header.position());
+		}
+		logRecords = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+		channel.truncate(HEADER_SIZE + (long) logRecords * RECORD_SIZE);
+		channel.position(channel.size());
+	}
+
+	/**
+	 * Reads the saved leaderboard into the writer's leaderboard
+	 * @param total records in the whole history
+	 * @return the number of records the index covers, -1 if it is missing, corrupted or ahead of the log
+	 */
+	private long readIndex(long total) throws IOException {
+		if (!indexFile.exists()) return -1;
+		byte[] bytes = readFully(indexFile);
+		ByteBuffer data = ByteBuffer.wrap(bytes);
+		if (bytes.length < INDEX_HEADER_SIZE + 4 || data.getInt() != INDEX_MAGIC || data.get() != VERSION) return -1;
+		writerCrc.reset();
+		writerCrc.update(bytes, 0, bytes.length - 4);
+		data.position(bytes.length - 4);
+		if (data.getInt() != (int) writerCrc.getValue()) return -1;
+
+		data.position(HEADER_SIZE);
+		long covered = data.getLong();
+		int count = data.getInt();
+		if (covered > total || count < 0 || bytes.length != INDEX_HEADER_SIZE + count * RECORD_SIZE + 4) return -1;
+		data.position(INDEX_HEADER_SIZE);
+		for (int i = 0; i < count; i++) {
+			GameResult result = decode(data, writerCrc);
+			if (result == null) return -1;
+			persisted.insert(result);
+		}
+		return covered;
+	}
+
+	/**
+	 * Inserts the valid records of a range of the history into the writer's leaderboard
+	 * @param from first record, counted from the start of the oldest log
+	 * @param to record after the last one
+	 */
+	private void replay(long from, long to) throws IOException {
+		while (from < to) {
+			int segment = (int) (from / SEGMENT_RECORDS);
+			int first = (int) (from % SEGMENT_RECORDS);
+			int count = (int) Math.min(to - from, SEGMENT_RECORDS - first);
+			ByteBuffer data = ByteBuffer.allocate(count * RECORD_SIZE);
+			if (segment == rolledSegments) {
+				readAt(channel, data, HEADER_SIZE + (long) first * RECORD_SIZE);
+			}
+			else {
+				FileInputStream in = new FileInputStream(getSegmentFile(segment + 1));
+				try {
+					readAt(in.getChannel(), data, HEADER_SIZE + (long) first * RECORD_SIZE);
+				}
+				finally {
+					in.close();
+				}
+			}
+
+			// a rolled log cut short counts its missing records as dropped
+			data.flip();
+			droppedRecords += count - data.remaining() / RECORD_SIZE;
+			while (data.remaining() >= RECORD_SIZE) {
+				GameResult result = decode(data, writerCrc);
+				if (result == null) droppedRecords++;
+				else persisted.insert(result);
+			}
+			from += count;
+		}
+	}
+
+	/**
+	 * Adds the result of a round. Returns immediately, the record is written in the background.
+	 * @param result
+	 */
+	public void add(final GameResult result) {
+		merge();
+		leaderboard.insert(result);
+		if (!merged) addedBeforeLoad.add(result);
+		final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		encode(result, record, crc);
+		record.flip();
+		writer.execute(new Runnable() {
+			@Override
+			public void run() {
+				persisted.insert(result);
+				if (append(record)) {
+					try {
+						writeIndex();
+					}
+					catch (IOException e) {
+						error = e;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Appends one record to the log, rolling the log over first if it is full.
+	 * A failed append is retried from a reopened log by the next write.
+	 * @param record
+	 * @return true if the record was written
+	 */
+	private boolean append(ByteBuffer record) {
+		try {
+			openLog();
+			if (logRecords >= SEGMENT_RECORDS) roll();
+			while (record.hasRemaining()) channel.write(record);
+			logRecords++;
+			error = null;
+			return true;
+		}
+		catch (IOException e) {
+			error = e;
+			closeChannel();
+			return false;
+		}
+	}
+
+	/**
+	 * Renames the full log to the next rolled over log and starts a new one
+	 */
+	private void roll() throws IOException {
+		closeChannel();
+		if (!file.renameTo(getSegmentFile(rolledSegments + 1))) throw new IOException("Cannot roll over " + file);
+		rolledSegments++;
+		openLog();
+	}
+
+	/**
+	 * Saves the writer's leaderboard and the number of records it covers. The index is written next to
+	 * its destination first and then renamed, so it is never left half written.
+	 */
+	private void writeIndex() throws IOException {
+		int count = 0;
+		for (GameMode mode : GameMode.values()) count += persisted.getCount(mode);
+		ByteBuffer data = ByteBuffer.allocate(INDEX_HEADER_SIZE + count * RECORD_SIZE + 4);
+		data.putInt(INDEX_MAGIC);
+		data.put((byte) VERSION);
+		data.position(HEADER_SIZE);
+		data.putLong(getTotalRecords());
+		data.putInt(count);
+		data.position(INDEX_HEADER_SIZE);
+		for (GameMode mode : GameMode.values()) {
+			for (int i = 0; i < persisted.getCount(mode); i++) encode(persisted.get(mode, i), data, writerCrc);
+		}
+		writerCrc.reset();
+		writerCrc.update(data.array(), 0, data.position());
+		data.putInt((int) writerCrc.getValue());
+		data.flip();
+
+		File temp = new File(indexFile.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			FileChannel tempChannel = out.getChannel();
+			while (data.hasRemaining()) tempChannel.write(data);
+		}
+		finally {
+			out.close();
+		}
+		if (!temp.renameTo(indexFile)) {
+			indexFile.delete();
+			if (!temp.renameTo(indexFile)) throw new IOException("Cannot rename " + temp);
+		}
+	}
+
+	private long getTotalRecords() {
+		return (long) rolledSegments * SEGMENT_RECORDS + logRecords;
+	}
+
+	private void closeChannel() {
+		if (channel == null) return;
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			if (error == null) error = e;
+		}
+		channel = null;
+	}
+
+	/**
+	 * Returns a rolled over log, 1 being the oldest
+	 * @param segment
+	 */
+	public File getSegmentFile(int segment) {
+		return getSiblingFile("." + segment + ".log");
+	}
+
+	/**
+	 * Returns the file named after the log, with its extension replaced by the suffix
+	 */
+	private File getSiblingFile(String suffix) {
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		return new File(file.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + suffix);
+	}
+
+	private static boolean hasHeader(File file, int magic) throws IOException {
+		if (file.length() < HEADER_SIZE) return false;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		FileInputStream in = new FileInputStream(file);
+		try {
+			readAt(in.getChannel(), header, 0);
+		}
+		finally {
+			in.close();
+		}
+		header.flip();
+		return header.remaining() == HEADER_SIZE && header.getInt() == magic && header.get() == VERSION;
+	}
+
+	private static byte[] readFully(File file) throws IOException {
+		ByteBuffer data = ByteBuffer.allocate((int) file.length());
+		FileInputStream in = new FileInputStream(file);
+		try {
+			readAt(in.getChannel(), data, 0);
+		}
+		finally {
+			in.close();
+		}
+		return data.array();
+	}
+
+	/**
+	 * Fills the buffer from a position of the file, or up to the end of the file
+	 */
+	private static void readAt(FileChannel fileChannel, ByteBuffer data, long position) throws IOException {
+		int start = data.position();
+		while (data.hasRemaining()) {
+			if (fileChannel.read(data, position + data.position() - start) < 0) break;
+		}
+	}
+
+	/**
+	 * Puts the record of a result into the buffer, the CRC is computed over the buffer's backing array
+	 * @param result
+	 * @param out
+	 * @param crc
+	 */
+	private static void encode(GameResult result, ByteBuffer out, CRC32 crc) {
+		int start = out.position();
+		out.put((byte) result.getGameMode().ordinal());
+		out.put((byte) result.getExitCode());
+		out.putShort((short) 0);
+		out.putInt(result.getScore());
+		out.putInt(result.getBallCount());
+		out.putInt(result.getMaxComboScore());
+		out.putFloat(result.getTimeLeft());
+		out.putLong(result.getTimestamp());
+		out.putInt(checksum(out, start, crc));
+	}
+
+	/**
+	 * Reads the next record, null if it is corrupted
+	 * @param in
+	 * @param crc
+	 */
+	private static GameResult decode(ByteBuffer in, CRC32 crc) {
+		int start = in.position();
+		in.position(start + RECORD_SIZE - 4);
+		if (in.getInt() != checksum(in, start, crc)) return null;
+		in.position(start);
+		int mode = in.get();
+		int exitCode = in.get();
+		in.getShort();
+		int score = in.getInt();
+		int ballCount = in.getInt();
+		int maxComboScore = in.getInt();
+		float timeLeft = in.getFloat();
+		long timestamp = in.getLong();
+		in.getInt();
+		if (mode < 0 || mode >= GameMode.values().length) return null;
+		return new GameResult(GameMode.values()[mode], exitCode, score, ballCount, maxComboScore, timeLeft, timestamp);
+	}
+
+	private static int checksum(ByteBuffer buffer, int start, CRC32 crc) {
+		crc.reset();
+		crc.update(buffer.array(), buffer.arrayOffset() + start, RECORD_SIZE - 4);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Puts the loaded results on the caller's leaderboard once the writer has published them,
+	 * together with the results added in the meantime
+	 */
+	private void merge() {
+		if (merged) return;
+		TopResults results = loaded;
+		if (results == null) return;
+		leaderboard.set(results);
+		for (int i = 0; i < addedBeforeLoad.size; i++) leaderboard.insert(addedBeforeLoad.get(i));
+		addedBeforeLoad.clear();
+		merged = true;
+	}
+
+	/**
+	 * Returns true once the log has been loaded, the leaderboard only holds the results added so far until then
+	 */
+	public boolean isLoaded() {
+		merge();
+		return merged;
+	}
+
+	/**
+	 * Returns the number of results on the leaderboard of a game mode, at most {@link #TOP_COUNT}
+	 * @param mode
+	 */
+	public int getResultCount(GameMode mode) {
+		merge();
+		return leaderboard.getCount(mode);
+	}
+
+	/**
+	 * Returns a result from the leaderboard of a game mode, the best at rank 0
+	 * @param mode
+	 * @param rank
+	 */
+	public GameResult getResult(GameMode mode, int rank) {
+		merge();
+		return leaderboard.get(mode, rank);
+	}
+
+	/**
+	 * Returns the best result of a game mode, null if no round has been played
+	 * @param mode
+	 */
+	public GameResult getBest(GameMode mode) {
+		merge();
+		return leaderboard.getCount(mode) == 0 ? null : leaderboard.get(mode, 0);
+	}
+
+	/**
+	 * Returns the number of corrupted records skipped while loading
+	 */
+	public int getDroppedRecords() {
+		return droppedRecords;
+	}
+
+	/**
+	 * Returns the error of the last write, null if it succeeded
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Blocks until the log has been loaded and every result added so far has been written
+	 */
+	public void waitForWrites() {
+		Future<?> done = writer.submit(new Runnable() {
+			@Override
+			public void run() {
+			}
+		});
+		try {
+			done.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new GdxRuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Writes the pending results and stops the writer
+	 */
+	public void dispose() {
+		writer.execute(new Runnable() {
+			@Override
+			public void run() {
+				closeChannel();
+			}
+		});
+		writer.shutdown();
+		try {
+			writer.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * The best results of every game mode, sorted best first
+	 */
+	private static class TopResults {
+
+		private final GameResult[][] results = new GameResult[GameMode.values().length][TOP_COUNT];
+		private final int[] counts = new int[GameMode.values().length];
+
+		/**
+		 * Inserts the result at its rank, dropping the last result of a full leaderboard
+		 * @param result
+		 */
+		void insert(GameResult result) {
+			int mode = result.getGameMode().ordinal();
+			GameResult[] top = results[mode];
+			int count = counts[mode];
+			int rank = count;
+			while (rank > 0 && result.ranksAbove(top[rank - 1])) rank--;
+			if (rank >= TOP_COUNT) return;
+			int last = Math.min(count, TOP_COUNT - 1);
+			System.arraycopy(top, rank, top, rank + 1, last - rank);
+			top[rank] = result;
+			if (count < TOP_COUNT) counts[mode]++;
+		}
+
+		/**
+		 * Replaces every result with those of another leaderboard
+		 * @param other
+		 */
+		void set(TopResults other) {
+			for (int mode = 0; mode < counts.length; mode++) {
+				System.arraycopy(other.results[mode], 0, results[mode], 0, TOP_COUNT);
+				counts[mode] = other.counts[mode];
+			}
+		}
+
+		TopResults copy() {
+			TopResults copy = new TopResults();
+			copy.set(this);
+			return copy;
+		}
+
+		void clear() {
+			for (int mode = 0; mode < counts.length; mode++) {
+				for (int i = 0; i < TOP_COUNT; i++) results[mode][i] = null;
+				counts[mode] = 0;
+			}
+		}
+
+		int getCount(GameMode mode) {
+			return counts[mode.ordinal()];
+		}
+
+		GameResult get(GameMode mode, int rank) {
+			return results[mode.ordinal()][rank];
+		}
+	}
+}
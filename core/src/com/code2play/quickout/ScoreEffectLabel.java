@@ -7,16 +7,35 @@ import static com.badlogic.gdx.scenes.scene2d.actions.Actions.fadeOut;
 
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.scenes.scene2d.Stage;
-import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.code2play.quickout.Level.ScoreIndicator;
 
-public class ScoreEffectLabel extends Label {
+/**
+ * Score that floats up and fades out where a ball was removed. Labels are pooled by GameHud,
+ * {@link #init(Stage, ScoreIndicator, LabelStyle)} starts a recycled one again.
+ * @author Jitrapon
+ *
+ */
+public class ScoreEffectLabel extends IntLabel implements Poolable {
 	
-	public ScoreEffectLabel(Stage stage, ScoreIndicator score, LabelStyle style) {
-		super(Integer.toString(score.score), style);
-		if (score.posX < 0) score.posX = 20;
-		if (score.posX > Level.MAX_VIRTUAL_WIDTH) score.posX = Level.MAX_VIRTUAL_WIDTH - 20;
-		this.setPosition(score.posX / (float)(Level.MAX_VIRTUAL_WIDTH/stage.getWidth()), 
+	public ScoreEffectLabel(LabelStyle style) {
+		super("", style);
+	}
+	
+	/**
+	 * Shows a score indicator and starts the float up effect
+	 * @param stage
+	 * @param score
+	 * @param style a new style costs a new font cache, labels keep theirs while it does not change
+	 */
+	public ScoreEffectLabel init(Stage stage, ScoreIndicator score, LabelStyle style) {
+		if (getStyle() != style) setStyle(style);
+		setInt(score.score);
+		setSize(getPrefWidth(), getPrefHeight());
+		float posX = score.posX;
+		if (posX < 0) posX = 20;
+		if (posX > Level.MAX_VIRTUAL_WIDTH) posX = Level.MAX_VIRTUAL_WIDTH - 20;
+		this.setPosition(posX / (float)(Level.MAX_VIRTUAL_WIDTH/stage.getWidth()), 
 				score.posY / (float)(Level.MAX_VIRTUAL_HEIGHT/stage.getHeight()));
 		this.addAction(
 				parallel(
@@ -24,12 +43,13 @@ public class ScoreEffectLabel extends Label {
 				scaleTo(0.1f, 0.1f, 2.50f, Interpolation.linear),
 				fadeOut(2.50f, Interpolation.linear)
 				));
+		return this;
 	}
 	
 	@Override
-    public void act(final float delta) {
-        super.act(delta);
-    }
+	public void reset() {
+		clearActions();
+		setScale(1f);
+		getColor().a = 1f;
+	}
 }
-
-
@@ -1,8 +1,6 @@
 package com.code2play.quickout;
 
-import com.badlogic.gdx.scenes.scene2d.ui.Label;
-
-public class ScoreLabel extends Label {
+public class ScoreLabel extends IntLabel {
 	
 	private Level level;
 	
@@ -13,7 +11,7 @@ public class ScoreLabel extends Label {
 	
 	@Override
     public void act(final float delta) {
-        this.setText( Integer.toString(level.getScore()) );
+        this.setInt( level.getScore() );
         super.act(delta);
     }
 }
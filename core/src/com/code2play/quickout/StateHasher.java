@@ -0,0 +1,44 @@
+package com.code2play.quickout;
+
+/**
+ * Folds simulation values into a 64-bit FNV-1a hash. Floats are hashed by their bits,
+ * so two runs only hash equal if they are bit-for-bit identical.
+ * @author Jitrapon
+ *
+ */
+public class StateHasher {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private long hash = FNV_OFFSET_BASIS;
+
+	public void reset() {
+		hash = FNV_OFFSET_BASIS;
+	}
+
+	public void add(int value) {
+		for (int i = 0; i < 4; i++) {
+			hash ^= value & 0xff;
+			hash *= FNV_PRIME;
+			value >>>= 8;
+		}
+	}
+
+	public void add(long value) {
+		add((int) value);
+		add((int) (value >>> 32));
+	}
+
+	public void add(float value) {
+		add(Float.floatToIntBits(value));
+	}
+
+	public void add(boolean value) {
+		add(value ? 1 : 0);
+	}
+
+	public long getHash() {
+		return hash;
+	}
+}
@@ -0,0 +1,283 @@
+package com.code2play.quickout;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Stream of gameplay events: reaction times, move outcomes, combo resets, item spawns and activations.
+ *
+ * The game thread records fixed-layout events into a preallocated single-producer single-consumer
+ * ring. Recording never locks, allocates or blocks, an event is dropped and counted if the ring is full.
+ * A background thread drains the ring every {@link #FLUSH_INTERVAL_MS} and writes what it found as
+ * one zlib-compressed block to a rolling file. The current file is telemetry.0.bin, it is rolled over
+ * to telemetry.1.bin and so on once it exceeds {@link #MAX_FILE_BYTES}, keeping {@link #MAX_FILES} files.
+ *
+ * File layout: magic, version, event size, then blocks of compressed length, raw length and zlib data.
+ * Every event in a block is {@link #EVENT_SIZE} bytes: type, tick, a, b, c as ints and a value float.
+ * @author Jitrapon
+ *
+ */
+public class Telemetry {
+
+	/* HEADER */
+	public static final int MAGIC = 0x514F544D;						// "QOTM"
+	public static final int VERSION = 1;
+	public static final int EVENT_SIZE = 24;
+
+	/* ALL EVENT TYPES, the meaning of a, b, c and value is given per type */
+	public static final int SESSION_STARTED = 1;						// game mode, seed high bits, seed low bits
+	public static final int BALL_REMOVED = 2;							// outcome, ball type, score added, reaction time
+	public static final int COMBO_RESET = 3;							// reason, combo lost
+	public static final int MOVE_CHANGED = 4;							// 1 if the move timed out, time spent on the move
+	public static final int ITEM_SPAWNED = 5;							// item type, combo score
+	public static final int ITEM_ACTIVATED = 6;							// item type, 1 if it came from the item slot
+	public static final int ROUND_ENDED = 7;							// exit code, score, ball count, time left
+
+	/* BALL_REMOVED OUTCOMES */
+	public static final int CORRECT_MOVE = 0;
+	public static final int WRONG_MOVE = 1;
+	public static final int CORRECT_COLLISION = 2;
+
+	/* COMBO_RESET REASONS */
+	public static final int RESET_WRONG_MOVE = 0;
+	public static final int RESET_TIMEOUT = 1;
+
+	public static final int DEFAULT_CAPACITY = 8192;					// events buffered between two flushes
+	public static final long FLUSH_INTERVAL_MS = 250;
+	public static final int MAX_FILE_BYTES = 1024 * 1024;
+	public static final int MAX_FILES = 4;
+	private static final int FILE_HEADER_SIZE = 9;
+	private static final int BLOCK_HEADER_SIZE = 8;
+
+	/* the ring, written by the game thread and read by the writer */
+	private final int mask;
+	private final int[] type;
+	private final int[] tick;
+	private final int[] a;
+	private final int[] b;
+	private final int[] c;
+	private final float[] value;
+	private final AtomicLong head = new AtomicLong();					// next event to record, published by the game thread
+	private final AtomicLong tail = new AtomicLong();					// next event to write, published by the writer
+	private long cachedTail;											// the game thread's last read of tail
+	private volatile long dropped;
+
+	/* owned by the writer */
+	private final File directory;
+	private final Thread writer;
+	private final ByteBuffer raw;
+	private final ByteBuffer compressed;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private FileChannel channel;
+	private long fileBytes;
+	private volatile long bytesWritten;
+	private volatile IOException error;
+	private volatile boolean running = true;
+
+	/**
+	 * Starts the writer thread
+	 * @param directory where the rolling files are written
+	 * @param capacity number of events the ring holds, rounded up to a power of two
+	 */
+	public Telemetry(FileHandle directory, int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		mask = size - 1;
+		type = new int[size];
+		tick = new int[size];
+		a = new int[size];
+		b = new int[size];
+		c = new int[size];
+		value = new float[size];
+		raw = ByteBuffer.allocate(size * EVENT_SIZE);
+		compressed = ByteBuffer.allocate(BLOCK_HEADER_SIZE + size * EVENT_SIZE + size * EVENT_SIZE / 100 + 64);
+		this.directory = directory.file();
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running) {
+					// not an interrupt, it would close the file channel in the middle of a write
+					LockSupport.parkNanos(FLUSH_INTERVAL_MS * 1000000L);
+					drain();
+				}
+				drain();
+				closeFile();
+			}
+		}, "TelemetryWriter");
+		writer.setDaemon(true);
+		writer.setPriority(Thread.MIN_PRIORITY);
+		writer.start();
+	}
+
+	/**
+	 * Records one event. Called by the game thread only, never blocks.
+	 * @param type
+	 * @param tick the level's tick when the event happened
+	 * @param a
+	 * @param b
+	 * @param c
+	 * @param value
+	 */
+	public void record(int type, long tick, int a, int b, int c, float value) {
+		long h = head.get();
+		if (h - cachedTail > mask) {
+			cachedTail = tail.get();
+			if (h - cachedTail > mask) {
+				dropped++;
+				return;
+			}
+		}
+		int i = (int) h & mask;
+		this.type[i] = type;
+		this.tick[i] = (int) tick;
+		this.a[i] = a;
+		this.b[i] = b;
+		this.c[i] = c;
+		this.value[i] = value;
+		head.lazySet(h + 1);
+	}
+
+	/**
+	 * Writes every event recorded so far as one compressed block
+	 */
+	private void drain() {
+		long t = tail.get();
+		long h = head.get();
+		if (h == t) return;
+
+		raw.clear();
+		for (long e = t; e < h; e++) {
+			int i = (int) e & mask;
+			raw.putInt(type[i]);
+			raw.putInt(tick[i]);
+			raw.putInt(a[i]);
+			raw.putInt(b[i]);
+			raw.putInt(c[i]);
+			raw.putFloat(value[i]);
+		}
+		tail.lazySet(h);
+
+		deflater.reset();
+		deflater.setInput(raw.array(), 0, raw.position());
+		deflater.finish();
+		compressed.clear();
+		compressed.position(BLOCK_HEADER_SIZE);
+		while (!deflater.finished()) {
+			int n = deflater.deflate(compressed.array(), compressed.position(), compressed.remaining());
+			compressed.position(compressed.position() + n);
+		}
+		int length = compressed.position() - BLOCK_HEADER_SIZE;
+		compressed.putInt(0, length);
+		compressed.putInt(4, raw.position());
+		compressed.flip();
+		write(compressed);
+	}
+
+	/**
+	 * Appends a block to the current file, starting a new file first if it is full.
+	 * A failed write drops the block, the next block starts a new file.
+	 * @param block
+	 */
+	private void write(ByteBuffer block) {
+		try {
+			if (channel != null && fileBytes + block.remaining() > MAX_FILE_BYTES) closeFile();
+			if (channel == null) openFile();
+			while (block.hasRemaining()) fileBytes += channel.write(block);
+			bytesWritten += block.limit();
+			error = null;
+		}
+		catch (IOException e) {
+			error = e;
+			closeFile();
+		}
+	}
+
+	private void openFile() throws IOException {
+		directory.mkdirs();
+		// every session starts a file of its own
+		File file = getFile(0);
+		if (file.exists()) roll();
+		channel = new FileOutputStream(file).getChannel();
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.put((byte) VERSION);
+		header.putInt(EVENT_SIZE);
+		header.flip();
+		while (header.hasRemaining()) channel.write(header);
+		fileBytes = FILE_HEADER_SIZE;
+	}
+
+	/**
+	 * Shifts every file one place back, deleting the oldest
+	 */
+	private void roll() {
+		getFile(MAX_FILES - 1).delete();
+		for (int i = MAX_FILES - 2; i >= 0; i--) {
+			File file = getFile(i);
+			if (file.exists()) file.renameTo(getFile(i + 1));
+		}
+	}
+
+	private void closeFile() {
+		if (channel == null) return;
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			if (error == null) error = e;
+		}
+		channel = null;
+	}
+
+	/**
+	 * Returns a rolling file, 0 being the current one
+	 * @param index
+	 */
+	public File getFile(int index) {
+		return new File(directory, "telemetry." + index + ".bin");
+	}
+
+	/**
+	 * Returns the number of events dropped because the ring was full
+	 */
+	public long getDroppedEvents() {
+		return dropped;
+	}
+
+	/**
+	 * Returns the number of compressed bytes written to the files so far
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Returns the error of the last write, null if it succeeded
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Writes the remaining events and stops the writer
+	 */
+	public void dispose() {
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		deflater.end();
+	}
+}
@@ -1,9 +1,8 @@
 package com.code2play.quickout;
 
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.scenes.scene2d.ui.Label;
 
-public class TimerLabel extends Label {
+public class TimerLabel extends IntLabel {
 
 	private Level level;
 
@@ -15,7 +14,7 @@ public class TimerLabel extends Label {
 	@Override
 	public void act(final float delta) {
 		int timeLeft = MathUtils.round(level.getTimeLeft());
-		this.setText( Integer.toString(timeLeft) );
+		this.setInt( timeLeft );
 		super.act(delta);
 	}
 }
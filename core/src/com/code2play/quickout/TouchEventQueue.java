@@ -0,0 +1,165 @@
+package com.code2play.quickout;
+
+/**
+ * Ring buffer of raw touch events, recorded by the renderer as they arrive and consumed by Level
+ * at the start of the next simulation tick. Events hold the pointer, the position in world
+ * coordinates and the time they were recorded, so the game reacts to input at a well defined
+ * point of the simulation and the same events always produce the same result.
+ *
+ * Taps on the item slots of the HUD are queued as ITEM_SLOT events, with the slot index as the
+ * pointer, so that every input that changes the game goes through this queue and can be replayed.
+ *
+ * Events are recorded and consumed on the render thread. The buffer doubles its capacity
+ * when it is full, so no event is ever dropped.
+ * @author Jitrapon
+ *
+ */
+public class TouchEventQueue {
+
+	/* ALL EVENT TYPES */
+	public static final int TOUCH_DOWN = 0;
+	public static final int TOUCH_DRAGGED = 1;
+	public static final int TOUCH_UP = 2;
+	public static final int ITEM_SLOT = 3;				// pointer is the index of the tapped slot
+
+	private int[] types;
+	private int[] pointers;
+	private float[] xs;
+	private float[] ys;
+	private long[] times;
+	private int head;									// index of the next event to be polled
+	private int size;									// number of events waiting to be polled
+
+	/* the event returned by the last poll */
+	private int type;
+	private int pointer;
+	private float x;
+	private float y;
+	private long time;
+
+	/**
+	 * @param capacity initial capacity, rounded up to a power of two
+	 */
+	public TouchEventQueue(int capacity) {
+		int pot = 1;
+		while (pot < capacity) pot <<= 1;
+		types = new int[pot];
+		pointers = new int[pot];
+		xs = new float[pot];
+		ys = new float[pot];
+		times = new long[pot];
+	}
+
+	/**
+	 * Records a touch event
+	 * @param type TOUCH_DOWN, TOUCH_DRAGGED or TOUCH_UP
+	 * @param pointer
+	 * @param posX World's x coordinate
+	 * @param posY World's y coordinate
+	 * @param timeNanos when the event happened, in nanoseconds
+	 */
+	public void push(int type, int pointer, float posX, float posY, long timeNanos) {
+		if (size == types.length) grow();
+		int tail = (head + size) & (types.length - 1);
+		types[tail] = type;
+		pointers[tail] = pointer;
+		xs[tail] = posX;
+		ys[tail] = posY;
+		times[tail] = timeNanos;
+		size++;
+	}
+
+	/**
+	 * Removes the oldest event, its values are then available from the getters
+	 * @return false if there was no event to poll
+	 */
+	public boolean poll() {
+		if (size == 0) return false;
+		type = types[head];
+		pointer = pointers[head];
+		x = xs[head];
+		y = ys[head];
+		time = times[head];
+		head = (head + 1) & (types.length - 1);
+		size--;
+		return true;
+	}
+
+	private void grow() {
+		int capacity = types.length;
+		int[] newTypes = new int[capacity << 1];
+		int[] newPointers = new int[capacity << 1];
+		float[] newXs = new float[capacity << 1];
+		float[] newYs = new float[capacity << 1];
+		long[] newTimes = new long[capacity << 1];
+
+		// unwrap the ring so that the oldest event is at index 0
+		for (int i = 0; i < size; i++) {
+			int index = (head + i) & (capacity - 1);
+			newTypes[i] = types[index];
+			newPointers[i] = pointers[index];
+			newXs[i] = xs[index];
+			newYs[i] = ys[index];
+			newTimes[i] = times[index];
+		}
+		types = newTypes;
+		pointers = newPointers;
+		xs = newXs;
+		ys = newYs;
+		times = newTimes;
+		head = 0;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public int getPointer() {
+		return pointer;
+	}
+
+	public float getX() {
+		return x;
+	}
+
+	public float getY() {
+		return y;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns the type of a waiting event without polling it
+	 * @param n 0 for the oldest waiting event, up to size()-1
+	 */
+	public int peekType(int n) {
+		return types[(head + n) & (types.length - 1)];
+	}
+
+	public int peekPointer(int n) {
+		return pointers[(head + n) & (types.length - 1)];
+	}
+
+	public float peekX(int n) {
+		return xs[(head + n) & (types.length - 1)];
+	}
+
+	public float peekY(int n) {
+		return ys[(head + n) & (types.length - 1)];
+	}
+
+	public long peekTime(int n) {
+		return times[(head + n) & (types.length - 1)];
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,87 @@
+package com.code2play.quickout;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Estimates the velocity of a pointer from its most recent samples, by fitting a straight line
+ * through position over time (least squares) for each axis. Samples are kept in a small ring buffer,
+ * and only the ones within {@link #WINDOW} of the newest sample are used, so a finger that stopped
+ * before it was lifted releases with little speed.
+ * @author Jitrapon
+ *
+ */
+public class VelocityTracker {
+
+	/** Number of samples kept */
+	private static final int CAPACITY = 8;
+
+	/** Age in seconds, relative to the newest sample, after which a sample is ignored */
+	private static final float WINDOW = 0.1f;
+
+	private final float[] xs = new float[CAPACITY];
+	private final float[] ys = new float[CAPACITY];
+	private final long[] times = new long[CAPACITY];
+	private int next;									// index the next sample is written to
+	private int size;
+
+	/**
+	 * Adds a sample, replacing the oldest one when the buffer is full
+	 * @param x
+	 * @param y
+	 * @param timeNanos
+	 */
+	public void addSample(float x, float y, long timeNanos) {
+		xs[next] = x;
+		ys[next] = y;
+		times[next] = timeNanos;
+		next = (next + 1) % CAPACITY;
+		if (size < CAPACITY) size++;
+	}
+
+	public void reset() {
+		next = 0;
+		size = 0;
+	}
+
+	/**
+	 * Computes the velocity in units per second
+	 * @param out receives the velocity
+	 * @return false if there are not enough recent samples, out is then set to zero
+	 */
+	public boolean getVelocity(Vector2 out) {
+		out.set(0, 0);
+		if (size < 2) return false;
+
+		// times are taken relative to the newest sample, in seconds
+		int newest = (next + CAPACITY - 1) % CAPACITY;
+		long newestTime = times[newest];
+		float sumT = 0, sumX = 0, sumY = 0;
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			int index = (newest + CAPACITY - i) % CAPACITY;
+			float t = (times[index] - newestTime) / 1000000000f;
+			if (t < -WINDOW) break;
+			sumT += t;
+			sumX += xs[index];
+			sumY += ys[index];
+			count++;
+		}
+		if (count < 2) return false;
+
+		float meanT = sumT / count;
+		float meanX = sumX / count;
+		float meanY = sumY / count;
+		float varT = 0, covX = 0, covY = 0;
+		for (int i = 0; i < count; i++) {
+			int index = (newest + CAPACITY - i) % CAPACITY;
+			float dt = (times[index] - newestTime) / 1000000000f - meanT;
+			varT += dt * dt;
+			covX += dt * (xs[index] - meanX);
+			covY += dt * (ys[index] - meanY);
+		}
+		if (varT <= 0) return false;
+
+		out.set(covX / varT, covY / varT);
+		return true;
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Iterator;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Peripheral;
+import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.graphics.FPSLogger;
 import com.badlogic.gdx.graphics.GL20;
@@ -12,14 +13,12 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.input.GestureDetector;
-import com.badlogic.gdx.input.GestureDetector.GestureListener;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.physics.box2d.joints.MouseJoint;
-import com.badlogic.gdx.physics.box2d.joints.MouseJointDef;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.code2play.game.IHud;
+import com.code2play.game.IWorldRenderer;
 
 /**
  * WorldView renders all the entities that belong to a World. 
@@ -28,27 +27,16 @@ import com.badlogic.gdx.utils.viewport.Viewport;
  * @author Jitrapon Tiachunpun
  *
  */
-public class WorldView implements GestureListener {
+public class WorldView implements IWorldRenderer {
 
 	private Level level;
 	private OrthographicCamera camera;
 	private Viewport viewport;
 	private SpriteBatch batch;
 	private FPSLogger fpsLogger;
-
-	public Ball draggedBall;					// specifies which ball is currently being dragged
-	public Item draggedItem;
-
-	/** Gesture detector **/
-	GestureDetector gestureDetector;
-	private float longPressDuration = 1.0f;
-
-	/** our mouse joint **/
-	protected MouseJoint mouseJoint = null;
-	
-	/** placeholder vectors **/
-	private Vector3 touchPos = new Vector3();
-	private Vector2 ballPos = new Vector2();
+	private BitmapFont profilerFont;							// draws the frame profiler's overlay
+	private InputMultiplexer inputMultiplexer;
+	private boolean inputEnabled = true;						// false while a replay drives the level
 
 	/** Game HUD, the game hud is an abstract representation of the Scene2D stage **/
 	private GameHud gameHud;	
@@ -66,6 +54,9 @@ public class WorldView implements GestureListener {
 	public WorldView(Level level) {
 		// debug: log fps in console
 		fpsLogger = new FPSLogger();
+		profilerFont = new BitmapFont();
+		profilerFont.getData().setScale(2);
+		profilerFont.setColor(1f, 0f, 0f, 1f);
 		this.level = level;
 
 		// create the camera with the coordinate specified
@@ -90,17 +81,36 @@ public class WorldView implements GestureListener {
 
 		// set up input listener
 		// multiplexer is used for handling HUD overlain the game
-		InputMultiplexer inMultiplexer = new InputMultiplexer();
-		gestureDetector = new GestureDetector(20, 0.5f, longPressDuration, 0.15f, this);
-		inMultiplexer.addProcessor(gestureDetector);
-		inMultiplexer.addProcessor(gameHud.getStage());
-		Gdx.input.setInputProcessor(inMultiplexer);
+		inputMultiplexer = new InputMultiplexer();
+		inputMultiplexer.addProcessor(new TouchInput());
+		inputMultiplexer.addProcessor(gameHud.getStage());
+		Gdx.input.setInputProcessor(inputMultiplexer);
+
+		// log every change of the physics quality, with the reason behind it
+		level.getPhysicsQuality().setListener(new PhysicsQualityController.QualityListener() {
+			@Override
+			public void onQualityChanged(PhysicsQualityController controller) {
+				Gdx.app.log("PHYSICS", "Iterations " + controller.getVelocityIterations() + "/" 
+						+ controller.getPositionIterations() + " (" + controller.getLastReasonName() 
+						+ ", average step " + controller.getAverageStepNanos() / 1000 + " us)");
+			}
+		});
 
 		// initialize level contents
 		//		level.debugInit();
 		level.init();
 	}
 
+	/**
+	 * Turns the player's input on or off. With input off, touches and the accelerometer
+	 * no longer reach the level, e.g. while a replay is playing.
+	 * @param enabled
+	 */
+	public void setInputEnabled(boolean enabled) {
+		inputEnabled = enabled;
+		Gdx.input.setInputProcessor(enabled ? inputMultiplexer : null);
+	}
+
 	public float getLevelToHUDRatio() {
 		return (float)Level.VIRTUAL_HEIGHT / HUD_HEIGHT;
 	}
@@ -108,6 +118,11 @@ public class WorldView implements GestureListener {
 	public GameHud getGameHUD() {
 		return gameHud;
 	}
+	
+	@Override
+	public IHud getHud() {
+		return gameHud;
+	}
 
 	/**
 	 * Resize the viewport to a specified resolution
@@ -169,10 +184,15 @@ public class WorldView implements GestureListener {
 		hillBackground.draw(batch);
 
 		// draw balls
+		FrameProfiler profiler = level.getProfiler();
+		if (profiler != null) profiler.begin(FrameProfiler.DRAW_BALLS);
 		drawBalls();
+		if (profiler != null) profiler.end(FrameProfiler.DRAW_BALLS);
 		
 		// draw unslotted items
+		if (profiler != null) profiler.begin(FrameProfiler.DRAW_ITEMS);
 		drawItems();
+		if (profiler != null) profiler.end(FrameProfiler.DRAW_ITEMS);
 		
 		//TODO draw other animations
 //		drawAnimations();
@@ -181,48 +201,46 @@ public class WorldView implements GestureListener {
 		 * END GAME ENTITIES DRAWING
 		 *******************************/
 		batch.end();
-		
-		// check game mode termination
-		if (level.getExitCode() != Level.DEFAULT_EXIT) {
-			gestureDetector.cancel();
-			if  (mouseJoint != null) {
-				level.getPhysicsWorld().destroyJoint(mouseJoint);
-				mouseJoint = null;
-			}
-		}
 
 		// draw game HUD
 		gameHud.draw(delta);
-
-		// process user input
-		// player has touched the screen
-		if (!Gdx.input.isTouched() && level.itemVacuumApplied) {
-			level.itemVacuumApplied = false;
+		
+		// the profiler's percentiles, on top of everything
+		if (profiler != null && profiler.isOverlayVisible()) {
+			batch.setProjectionMatrix(camera.combined);
+			batch.begin();
+			profilerFont.draw(batch, profiler.getOverlayText(), 20, Level.VIRTUAL_HEIGHT - 20);
+			batch.end();
 		}
 
+		// replays feed the recorded gravity themselves
+		if (!inputEnabled) return;
+
 		// for gravity-enabled levels
 		if (level.gravityEnabled) {
 			if (Gdx.input.isPeripheralAvailable(Peripheral.Accelerometer) == true) { 
-				processAccelerometer();
+				processAccelerometer(delta);
 			}
 		}
 		else {
-			level.getPhysicsWorld().setGravity( new Vector2(0, -2.0f) );
+			level.setGravity(0, -2.0f);
+			gravityFilter.reset();
 		}
 	}
 
-	float prevAccelX = 0.0f;
-	float prevAccelY = 0.0f;
+	/** smooths the accelerometer so that only real tilts change the gravity **/
+	private GravityFilter gravityFilter = new GravityFilter();
+	
 	/**
 	 * Process accelerometer values and apply gravity accordingly
 	 */
-	private void processAccelerometer() {
+	private void processAccelerometer(float delta) {
 		float y = Gdx.input.getAccelerometerY();
 		float x = Gdx.input.getAccelerometerX();
-		if ((prevAccelX != x) || prevAccelY != y) {
-			level.getPhysicsWorld().setGravity( new Vector2(-x, -y) );//Negative on the x, but not on the Y. Somewhat geocentric view.
-			prevAccelX = x;
-			prevAccelY = y;
+		
+		//Negative on the x, but not on the Y. Somewhat geocentric view.
+		if (gravityFilter.update(-x, -y, delta)) {
+			level.setGravity(gravityFilter.getGravityX(), gravityFilter.getGravityY());
 		}
 	}
 
@@ -230,42 +248,36 @@ public class WorldView implements GestureListener {
 	 * Draw all the balls onscreen
 	 */
 	public void drawBalls() {
-		Iterator<Ball> iter = level.getBalls().iterator();
-		while (iter.hasNext()) {
-			Ball ball = iter.next();
-			if (ball.removed) {
-				// play sound effect
-				if (ball.correctMove || ball.hasCollidedCorrectly) Assets.getCorrectBallPlopSoundEffect().play();
-				else Assets.getWrongBallPlopSoundEffect().play();
-				
-				//TODO draw burst 
-				//add to array of animations
-				
-				// remove this ball from list
-				iter.remove();
-			}
-			else {
-				batch.draw(ball.getCurrentAnimation().getKeyFrame(ball.stateTime), 
-						ball.x - ball.radius, ball.y - ball.radius, ball.radius*2, ball.radius*2);
-			}
+		float alpha = level.getInterpolationAlpha();
+		BallTable balls = level.getBalls();
+		for (int i = 0; i < balls.size(); i++) {
+			float radius = balls.radius[i];
+			float x = balls.prevX[i] + (balls.x[i] - balls.prevX[i]) * alpha;
+			float y = balls.prevY[i] + (balls.y[i] - balls.prevY[i]) * alpha;
+			batch.draw(balls.get(i).getAnimation(balls.state[i]).getKeyFrame(balls.stateTime[i]), 
+					x - radius, y - radius, radius*2, radius*2);
 		}
 	}
 	
+	@Override
+	public void onBallRemoved(Ball ball) {
+		// play sound effect
+		if (ball.isCorrectMove() || ball.hasCollidedCorrectly()) Assets.getCorrectBallPlopSoundEffect(level.getRandom().getAudioRandom()).play();
+		else Assets.getWrongBallPlopSoundEffect(level.getRandom().getAudioRandom()).play();
+		if (level.getMetrics() != null) level.getMetrics().increment(Metrics.SOUNDS_PLAYED);
+		
+		//TODO draw burst 
+		//add to array of animations
+	}
+	
 	public void drawItems() {
+		float alpha = level.getInterpolationAlpha();
 		Iterator<Item> iter = level.getItems().iterator();
 		while (iter.hasNext()) {
 			Item item = iter.next();
 			
-			// item's effect is out of duration, timed out, or flinged out of bounds
-			if (item.removed) {
-				// play sound effect
-				
-				//TODO draw burst animation
-				iter.remove();					
-			}
-			
 			// item's effect is active
-			else if (item.isActive()) {
+			if (item.isActive()) {
 				
 			}
 			
@@ -275,217 +287,49 @@ public class WorldView implements GestureListener {
 			
 			else {
 				batch.draw(item.getAnimation().getKeyFrame(item.stateTime), 
-						item.x - item.radius, item.y - item.radius, item.radius*2, item.radius*2);
+						item.getInterpolatedX(alpha) - item.radius, item.getInterpolatedY(alpha) - item.radius, 
+						item.radius*2, item.radius*2);
 			}
 		}
 	}
 
 	public void dispose() {
 		batch.dispose();
+		profilerFont.dispose();
 		gameHud.dispose();
 		Gdx.app.log("DISPOSING", "Released worldview resources");
 	}
 
-	@Override
-	public boolean touchDown(float x, float y, int pointer, int button) {
-		touchPos.set(x, y, 0);
-		camera.unproject(touchPos);
+	/**
+	 * Records every pointer's raw touch events, in world coordinates, into the level's touch queue.
+	 * Level classifies them into taps and drags at the start of its next tick.
+	 * Events are never consumed, so the HUD still receives them.
+	 */
+	class TouchInput extends InputAdapter {
 		
-		if (level.itemVacuumActive) {
-			if (!outWorldBoundary(touchPos)) {
-				level.itemVacuumApplied = true;
-				level.vacuumPos.set(touchPos);
-			}
-		}
-		return false;
-	}
-	
-	public boolean outWorldBoundary(Vector3 touchPos) {
-		return (touchPos.x < level.getMinX() || touchPos.x > level.getMaxX()
-				|| touchPos.y < level.getMinY() || touchPos.y > level.getMaxY());
-	}
-	
-	
-	@Override
-	public boolean tap(float x, float y, int count, int button) {
-//				Gdx.app.log("Tap", x + ", " + y);
-//		System.out.println("tap (" + x + ", " + y + ")");
-		touchPos.set(x, y, 0);
-		camera.unproject(touchPos);
-		for (Item item : level.getItems()) {
-			if (!item.isActive()) {
-				ballPos.set(item.x, item.y);
-				if (item.radius >= Math.abs(ballPos.dst(new Vector2(touchPos.x, touchPos.y))))  {
-					item.setActive(true);
-					return false;
-				}
-			}
-		}
+		private final Vector3 worldPos = new Vector3();
 		
-		for (Ball b : level.getBalls()) {
-			ballPos.set(b.x, b.y);
-			if (b.radius >= Math.abs(ballPos.dst(new Vector2(touchPos.x, touchPos.y))))  {
-				b.setState(Ball.TAPPED);
-				return false;
-			}
+		@Override
+		public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+			return record(TouchEventQueue.TOUCH_DOWN, screenX, screenY, pointer);
 		}
 		
-		return false;
-	}
-
-	@Override
-	public boolean longPress(float x, float y) {
-		//		Gdx.app.log("Long Press", x + ", " + y);
-//		touchPos.set(x, y, 0);
-//		camera.unproject(touchPos);
-//		System.out.println("Long Press");
-//		for (Ball b : level.getBalls()) {
-//			ballPos.set(b.x, b.y);
-//			if (b.radius >= Math.abs(ballPos.dst(new Vector2(touchPos.x, touchPos.y))))  {
-//				b.setState(Ball.LONG_TAPPED);
-//			}
-//		}
-		return false;
-	}
-
-	@Override
-	public boolean fling(float velocityX, float velocityY, int button) {
-		//		Gdx.app.log("FLING", "Flinging with velocity " + velocityX + " " + velocityY);
-		return false;
-	}
-
-	/** another temporary vector **/
-	Vector2 target = new Vector2();
-	@Override
-	public boolean pan(float x, float y, float deltaX, float deltaY) {
-		//		Gdx.app.log("pan", x + ", " + y + ", delta(" + deltaX + ", " + deltaY + ")");
-		
-		touchPos.set(x, y, 0);
-		camera.unproject(touchPos);
-		
-		// disable vacuum effect is move
-		if (level.itemVacuumActive && level.itemVacuumApplied) {
-			if (!outWorldBoundary(touchPos)) {
-				level.vacuumPos.set(touchPos);
-			}
-			return false;
+		@Override
+		public boolean touchDragged(int screenX, int screenY, int pointer) {
+			return record(TouchEventQueue.TOUCH_DRAGGED, screenX, screenY, pointer);
 		}
 		
-		if (mouseJoint == null) {
-			for (Item item : level.getItems()) {
-				
-				// we don't check for slotted items or active items that have been slotted
-				if (item.state == Item.SLOTTED ||
-						item.slotted) {
-					continue;
-				}
-
-				Vector2 ballPos = new Vector2(item.x, item.y);
-				if (item.bounds().radius >= Math.abs(ballPos.dst(new Vector2(touchPos.x, touchPos.y)))) {
-
-					if (item.getBody() != null) {
-						
-						// init mousejoint
-						MouseJointDef mJointDef = new MouseJointDef();
-						mJointDef.bodyA = level.getGroundBody();
-						mJointDef.bodyB = item.getBody();
-						mJointDef.dampingRatio = 0.0f;
-						//					mJointDef.frequencyHz = 0.2f;
-						mJointDef.collideConnected = true;
-						mJointDef.target.set(touchPos.x * level.getWorldToBoxMultiplier(), touchPos.y * level.getWorldToBoxMultiplier());
-						mJointDef.maxForce = 500.0f * item.getBody().getMass();
-
-						mouseJoint = (MouseJoint)level.getPhysicsWorld().createJoint(mJointDef);
-						item.getBody().setAwake(true);
-
-						draggedItem = item;
-						draggedItem.setState(Item.FLINGED);
-						break;
-					}
-				}
-			}
-			
-			// if we haven't started dragging yet
-			if (mouseJoint == null) {
-				for (Ball b : level.getBalls()) {
-					Vector2 ballPos = new Vector2(b.x, b.y);
-					if (b.bounds().radius >= Math.abs(ballPos.dst(new Vector2(touchPos.x, touchPos.y)))) {
-						b.setState(Ball.DRAGGED);
-						//				b.moveTo(touchPos.x, touchPos.y);
-
-						// init mousejoint
-						MouseJointDef mJointDef = new MouseJointDef();
-						mJointDef.bodyA = level.getGroundBody();
-						mJointDef.bodyB = b.getBody();
-						mJointDef.dampingRatio = 0.0f;
-						//					mJointDef.frequencyHz = 0.2f;
-						mJointDef.collideConnected = true;
-						mJointDef.target.set(touchPos.x * level.getWorldToBoxMultiplier(), touchPos.y * level.getWorldToBoxMultiplier());
-						mJointDef.maxForce = 500.0f * b.getBody().getMass();
-
-						mouseJoint = (MouseJoint)level.getPhysicsWorld().createJoint(mJointDef);
-						b.getBody().setAwake(true);
-
-						draggedBall = b;
-						break;
-					}
-				}
-			}
-			
-			//			Gdx.app.log("Drag", "Drag position is " + touchPos.x + ", " + touchPos.y);
-		}
-
-		// if a mouse joint exists we simply update
-		// the target of the joint based on the new
-		// mouse coordinates
-		else {
-			mouseJoint.setTarget(target.set(touchPos.x * level.getWorldToBoxMultiplier(), 
-					touchPos.y * level.getWorldToBoxMultiplier()));
-			//			Gdx.app.log("Drag", "Drag position is " + touchPos.x + ", " + touchPos.y);
-		}
-
-
-		return false;
-	}
-
-	@Override
-	public boolean panStop(float x, float y, int pointer, int button) {
-		//		Gdx.app.log("PAN STOP", "Panning stop at location " + x + " " + y);
-		//TODO check velocity
-		if (draggedBall != null) {
-			draggedBall.setState(Ball.FLINGED);
-			// if too slow -> set state to Ball.INACTIVE
-			draggedBall = null;
+		@Override
+		public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+			return record(TouchEventQueue.TOUCH_UP, screenX, screenY, pointer);
 		}
 		
-		if (draggedItem != null) {
-			draggedItem.setState(Item.FLINGED);
-			draggedItem = null;
-		}
-
-		// if a mouse joint exists we simply destroy it
-		if (mouseJoint != null) {
-			level.getPhysicsWorld().destroyJoint(mouseJoint);
-			mouseJoint = null;
+		private boolean record(int type, int screenX, int screenY, int pointer) {
+			worldPos.set(screenX, screenY, 0);
+			camera.unproject(worldPos);
+			level.getTouchEvents().push(type, pointer, worldPos.x, worldPos.y, TimeUtils.nanoTime());
+			return false;
 		}
-		return false;
-	}
-	
-	public MouseJoint getMouseJoint() {
-		return mouseJoint;
-	}
-
-	@Override
-	public boolean zoom(float initialDistance, float distance) {
-		// TODO Auto-generated method stub
-		return false;
-	}
-
-	@Override
-	public boolean pinch(Vector2 initialPointer1, Vector2 initialPointer2,
-			Vector2 pointer1, Vector2 pointer2) {
-		// TODO Auto-generated method stub
-		return false;
 	}
 
 }
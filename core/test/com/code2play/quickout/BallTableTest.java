@@ -0,0 +1,240 @@
+package com.code2play.quickout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks that swap-removal keeps rows, slots and the tag index consistent, and that balls
+ * read their values from their row while in the table.
+ * @author Jitrapon
+ *
+ */
+public class BallTableTest {
+
+	private static final int NUM_TAGS = 4;
+
+	private static Ball newBall(int tag, float x, float y) {
+		Ball ball = new Ball(10f);
+		ball.tag = tag;
+		ball.setPosition(x, y, x, y);
+		return ball;
+	}
+
+	@Test
+	public void removeMovesLastRowIntoPlace() {
+		BallTable table = new BallTable(8, NUM_TAGS);
+		Ball[] balls = new Ball[4];
+		for (int i = 0; i < balls.length; i++) {
+			balls[i] = newBall(i % NUM_TAGS, i * 10f, i * 20f);
+			table.add(balls[i]);
+		}
+		int removedSlot = balls[1].slot;
+		int lastSlot = balls[3].slot;
+
+		assertSame(balls[1], table.removeAt(1));
+		assertEquals(3, table.size());
+		assertSame(balls[3], table.get(1));
+		assertEquals(1, table.getRow(lastSlot));
+		assertEquals(lastSlot, table.getSlot(1));
+		assertEquals(-1, table.getRow(removedSlot));
+		assertEquals(30f, table.x[1], 0f);
+		assertEquals(60f, table.y[1], 0f);
+		assertEquals(3, table.tag[1]);
+		assertNull(table.body[3]);
+	}
+
+	@Test
+	public void ballReadsAndWritesItsRow() {
+		BallTable table = new BallTable(2, NUM_TAGS);
+		Ball ball = newBall(0, 1f, 2f);
+		table.add(ball);
+
+		// writes through the ball land in the row, writes to the row are seen by the ball
+		ball.setPosition(5f, 6f, 3f, 4f);
+		ball.setCollidedCorrectly(true);
+		assertEquals(5f, table.x[0], 0f);
+		assertEquals(4f, table.prevY[0], 0f);
+		assertEquals(BallTable.FLAG_COLLIDED_CORRECTLY, table.flags[0]);
+		table.stateTime[0] = 1.5f;
+		table.flags[0] |= BallTable.FLAG_CORRECT_MOVE;
+		assertEquals(1.5f, ball.getStateTime(), 0f);
+		assertTrue(ball.isCorrectMove());
+	}
+
+	@Test
+	public void removedBallKeepsItsValues() {
+		BallTable table = new BallTable(2, NUM_TAGS);
+		Ball first = newBall(0, 0f, 0f);
+		Ball ball = newBall(1, 0f, 0f);
+		table.add(first);
+		table.add(ball);
+		ball.setPosition(7f, 8f, 6f, 5f);
+		ball.setStateTime(2f);
+		ball.setCorrectMove(true);
+
+		// remove the first row so the ball's row moves before it is removed itself
+		table.removeAt(0);
+		table.removeAt(table.getRow(ball.slot));
+		assertEquals(-1, ball.slot);
+		assertEquals(0, table.size());
+		assertEquals(7f, ball.getX(), 0f);
+		assertEquals(8f, ball.getY(), 0f);
+		assertEquals(6f, ball.getPrevX(), 0f);
+		assertEquals(5f, ball.getPrevY(), 0f);
+		assertEquals(2f, ball.getStateTime(), 0f);
+		assertTrue(ball.isCorrectMove());
+		assertFalse(ball.hasCollidedCorrectly());
+
+		// the table no longer sees the ball's writes
+		table.add(first);
+		ball.setPosition(9f, 9f, 9f, 9f);
+		assertEquals(9f, ball.getX(), 0f);
+		assertEquals(0f, table.x[0], 0f);
+	}
+
+	@Test
+	public void freedSlotIsReused() {
+		BallTable table = new BallTable(4, NUM_TAGS);
+		Ball a = newBall(0, 0f, 0f);
+		Ball b = newBall(0, 0f, 0f);
+		table.add(a);
+		table.add(b);
+		int slot = a.slot;
+		table.removeAt(0);
+
+		Ball c = newBall(0, 0f, 0f);
+		assertEquals(slot, table.add(c));
+		assertEquals(1, table.getRow(c.slot));
+	}
+
+	@Test
+	public void growKeepsSlotsAndTags() {
+		BallTable table = new BallTable(1, NUM_TAGS);
+		Ball[] balls = new Ball[9];
+		for (int i = 0; i < balls.length; i++) {
+			balls[i] = newBall(i % 2, i, i);
+			table.add(balls[i]);
+		}
+		assertTrue(table.getCapacity() >= balls.length);
+		for (int i = 0; i < balls.length; i++) {
+			assertSame(balls[i], table.get(table.getRow(balls[i].slot)));
+			assertEquals(i, balls[i].getX(), 0f);
+		}
+		assertEquals(5, table.getTagCount(0));
+		assertEquals(4, table.getTagCount(1));
+		assertFalse(table.containsTag(2));
+	}
+
+	@Test
+	public void retagMovesBallBetweenTagLists() {
+		BallTable table = new BallTable(4, NUM_TAGS);
+		Ball a = newBall(0, 0f, 0f);
+		Ball b = newBall(0, 0f, 0f);
+		table.add(a);
+		table.add(b);
+
+		table.retag(a.slot, 2);
+		assertEquals(1, table.getTagCount(0));
+		assertEquals(b.slot, table.getTagSlot(0, 0));
+		assertEquals(1, table.getTagCount(2));
+		assertEquals(a.slot, table.getTagSlot(2, 0));
+		assertEquals(2, table.tag[table.getRow(a.slot)]);
+
+		table.removeAt(table.getRow(a.slot));
+		assertFalse(table.containsTag(2));
+		assertEquals(1, table.getTagCount(0));
+	}
+
+	@Test
+	public void tagsOutsideRangeAreNotIndexed() {
+		BallTable table = new BallTable(4, NUM_TAGS);
+		Ball ball = newBall(NUM_TAGS, 0f, 0f);
+		table.add(ball);
+		assertEquals(0, table.getTagCount(NUM_TAGS));
+		assertEquals(0, table.getTagCount(-1));
+
+		table.retag(ball.slot, 1);
+		assertEquals(1, table.getTagCount(1));
+		table.retag(ball.slot, -1);
+		assertFalse(table.containsTag(1));
+		table.removeAt(0);
+		assertEquals(0, table.size());
+	}
+
+	@Test
+	public void clearRemovesEveryBall() {
+		BallTable table = new BallTable(4, NUM_TAGS);
+		for (int i = 0; i < 6; i++) {
+			table.add(newBall(i % NUM_TAGS, 0f, 0f));
+		}
+		table.clear();
+		assertEquals(0, table.size());
+		for (int tag = 0; tag < NUM_TAGS; tag++) {
+			assertEquals(0, table.getTagCount(tag));
+		}
+	}
+
+	/**
+	 * Adds, removes and retags at random and checks the whole table against a plain list after every step
+	 */
+	@Test
+	public void randomOperationsKeepIndexConsistent() {
+		Random random = new Random(7);
+		BallTable table = new BallTable(2, NUM_TAGS);
+		List<Ball> expected = new ArrayList<Ball>();
+		for (int step = 0; step < 5000; step++) {
+			int op = random.nextInt(3);
+			if (op == 0 || expected.isEmpty()) {
+				Ball ball = newBall(random.nextInt(NUM_TAGS + 1), random.nextFloat(), random.nextFloat());
+				table.add(ball);
+				expected.add(ball);
+			}
+			else if (op == 1) {
+				Ball ball = expected.remove(random.nextInt(expected.size()));
+				assertSame(ball, table.removeAt(table.getRow(ball.slot)));
+				assertEquals(-1, ball.slot);
+			}
+			else {
+				Ball ball = expected.get(random.nextInt(expected.size()));
+				ball.tag = random.nextInt(NUM_TAGS + 1);
+				table.retag(ball.slot, ball.tag);
+			}
+			checkTable(table, expected);
+		}
+	}
+
+	private static void checkTable(BallTable table, List<Ball> expected) {
+		assertEquals(expected.size(), table.size());
+		for (Ball ball : expected) {
+			int row = table.getRow(ball.slot);
+			assertSame(ball, table.get(row));
+			assertEquals(ball.slot, table.getSlot(row));
+			assertEquals(ball.tag, table.tag[row]);
+			assertEquals(ball.getX(), table.x[row], 0f);
+		}
+
+		for (int tag = 0; tag < NUM_TAGS; tag++) {
+			Set<Integer> slots = new HashSet<Integer>();
+			for (Ball ball : expected) {
+				if (ball.tag == tag) slots.add(ball.slot);
+			}
+			assertEquals(slots.size(), table.getTagCount(tag));
+			Set<Integer> indexed = new HashSet<Integer>();
+			for (int n = 0; n < table.getTagCount(tag); n++) {
+				indexed.add(table.getTagSlot(tag, n));
+			}
+			assertEquals(slots, indexed);
+		}
+	}
+}
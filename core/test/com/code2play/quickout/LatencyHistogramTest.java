@@ -0,0 +1,114 @@
+package com.code2play.quickout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the bucket bounds behind the reported percentiles.
+ * @author Jitrapon
+ *
+ */
+public class LatencyHistogramTest {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	/**
+	 * Returns the upper bound reported for the bucket holding a value, recorded next to a larger
+	 * value so that the bound is not capped by the maximum
+	 */
+	private static long upperBoundOf(long nanos) {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(nanos);
+		histogram.record(LatencyHistogram.MAX_NANOS);
+		return histogram.getPercentile(0.5);
+	}
+
+	@Test
+	public void emptyReportsZero() {
+		assertEquals(0, histogram.getPercentile(0.99));
+		assertEquals(0, histogram.getCount());
+	}
+
+	@Test
+	public void smallValuesAreExact() {
+		for (long nanos = 0; nanos < 8; nanos++) {
+			assertEquals(nanos, upperBoundOf(nanos));
+		}
+	}
+
+	@Test
+	public void bucketEdges() {
+		assertEquals(8, upperBoundOf(8));
+		assertEquals(17, upperBoundOf(16));
+		assertEquals(17, upperBoundOf(17));
+		assertEquals(19, upperBoundOf(18));
+		assertEquals(1023, upperBoundOf(960));
+		assertEquals(1023, upperBoundOf(1023));
+		assertEquals(1151, upperBoundOf(1024));
+	}
+
+	@Test
+	public void boundIsWithinAnEighth() {
+		Random random = new Random(3);
+		for (int i = 0; i < 10000; i++) {
+			long nanos = (long) (Math.pow(2, random.nextDouble() * 34)) - 1;
+			if (nanos < 0) nanos = 0;
+			long bound = upperBoundOf(nanos);
+			assertTrue(nanos + " -> " + bound, bound >= nanos);
+			assertTrue(nanos + " -> " + bound, bound <= nanos + nanos / 8);
+		}
+	}
+
+	@Test
+	public void percentileIsCappedByMax() {
+		histogram.record(1000);
+		assertEquals(1000, histogram.getPercentile(1.0));
+
+		// past the last bucket only the maximum is known
+		histogram.record(LatencyHistogram.MAX_NANOS * 4);
+		assertEquals(LatencyHistogram.MAX_NANOS * 4, histogram.getPercentile(1.0));
+		assertEquals(1023, histogram.getPercentile(0.5));
+	}
+
+	@Test
+	public void percentilesFollowTheRanks() {
+		for (int micros = 1; micros <= 100; micros++) {
+			histogram.record(micros * 1000L);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		long p50 = histogram.getPercentile(0.5);
+		long p99 = histogram.getPercentile(0.99);
+		assertTrue(p50 >= 50000 && p50 <= 50000 * 9 / 8);
+		assertTrue(p99 >= 99000 && p99 <= 100000);
+		assertEquals(upperBoundOf(1000), histogram.getPercentile(0));
+	}
+
+	@Test
+	public void negativeDurationsCountAsZero() {
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(1.0));
+	}
+
+	@Test
+	public void addMergesAndResetClears() {
+		LatencyHistogram other = new LatencyHistogram();
+		histogram.record(10);
+		other.record(5000);
+		other.record(7000);
+		histogram.add(other);
+		assertEquals(3, histogram.getCount());
+		assertEquals(7000, histogram.getMax());
+		assertEquals(upperBoundOf(5000), histogram.getPercentile(0.5));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(0.5));
+	}
+}
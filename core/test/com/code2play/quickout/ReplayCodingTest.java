@@ -0,0 +1,120 @@
+package com.code2play.quickout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the variable-length and zigzag encodings used by replays read back what was written.
+ * @author Jitrapon
+ *
+ */
+public class ReplayCodingTest {
+
+	private static final long[] EDGES = {
+		0, 1, -1, 2, -2, 63, -64, 64, -65, 127, 128, 8191, 8192, 16383, 16384,
+		Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 56, (1L << 63) - 1, Long.MAX_VALUE, Long.MIN_VALUE
+	};
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+	private long roundTrip(long value) {
+		buffer.clear();
+		ReplayRecorder.putVarLong(buffer, value);
+		assertEquals(encodedLength(value), buffer.position());
+		buffer.flip();
+		long read = ReplayPlayer.getVarLong(buffer);
+		assertFalse(buffer.hasRemaining());
+		return read;
+	}
+
+	/**
+	 * Number of bytes a value takes: one per started group of 7 bits
+	 */
+	private static int encodedLength(long value) {
+		int bits = 64 - Long.numberOfLeadingZeros(value);
+		return bits == 0 ? 1 : (bits + 6) / 7;
+	}
+
+	@Test
+	public void varLongRoundTrips() {
+		for (long value : EDGES) {
+			assertEquals(value, roundTrip(value));
+		}
+		Random random = new Random(11);
+		for (int i = 0; i < 10000; i++) {
+			long value = random.nextLong() >>> random.nextInt(64);
+			assertEquals(value, roundTrip(value));
+		}
+	}
+
+	@Test
+	public void varLongLengths() {
+		buffer.clear();
+		ReplayRecorder.putVarLong(buffer, 127);
+		assertEquals(1, buffer.position());
+
+		buffer.clear();
+		ReplayRecorder.putVarLong(buffer, 128);
+		assertEquals(2, buffer.position());
+
+		// negative values have their top bit set, they take the longest encoding
+		buffer.clear();
+		ReplayRecorder.putVarLong(buffer, -1);
+		assertEquals(10, buffer.position());
+	}
+
+	@Test
+	public void zigZagRoundTrips() {
+		for (long value : EDGES) {
+			assertEquals(value, ReplayPlayer.unZigZag(ReplayRecorder.zigZag(value)));
+		}
+		Random random = new Random(13);
+		for (int i = 0; i < 10000; i++) {
+			long value = random.nextLong() >> random.nextInt(64);
+			assertEquals(value, ReplayPlayer.unZigZag(ReplayRecorder.zigZag(value)));
+		}
+	}
+
+	@Test
+	public void zigZagKeepsSmallDeltasShort() {
+		assertEquals(0, ReplayRecorder.zigZag(0));
+		assertEquals(1, ReplayRecorder.zigZag(-1));
+		assertEquals(2, ReplayRecorder.zigZag(1));
+		assertEquals(127, ReplayRecorder.zigZag(-64));
+		assertEquals(-1L, ReplayRecorder.zigZag(Long.MIN_VALUE));
+		assertEquals(1, encodedLength(ReplayRecorder.zigZag(-64)));
+		assertEquals(2, encodedLength(ReplayRecorder.zigZag(64)));
+	}
+
+	@Test
+	public void signedDeltasRoundTripThroughBothEncodings() {
+		Random random = new Random(17);
+		long[] times = new long[1000];
+		long time = 0;
+		for (int i = 0; i < times.length; i++) {
+			// mostly increasing, sometimes going back, as input timestamps from different sources may
+			time += random.nextInt(40000000) - 5000000;
+			times[i] = time;
+		}
+
+		ByteBuffer stream = ByteBuffer.allocate(times.length * 10);
+		long last = 0;
+		for (int i = 0; i < times.length; i++) {
+			ReplayRecorder.putVarLong(stream, ReplayRecorder.zigZag(times[i] - last));
+			last = times[i];
+		}
+		stream.flip();
+
+		last = 0;
+		for (int i = 0; i < times.length; i++) {
+			last += ReplayPlayer.unZigZag(ReplayPlayer.getVarLong(stream));
+			assertEquals(times[i], last);
+		}
+		assertFalse(stream.hasRemaining());
+	}
+}
@@ -0,0 +1,242 @@
+package com.code2play.quickout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.code2play.quickout.GameMain.GameMode;
+
+/**
+ * Checks that the result log and its index recover from corrupted, torn and missing files
+ * without losing the results that are still readable.
+ * @author Jitrapon
+ *
+ */
+public class ResultStoreTest {
+
+	private static final int HEADER_SIZE = 8;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File log;
+	private File index;
+	private ResultStore store;
+
+	@Before
+	public void setUp() {
+		log = new File(folder.getRoot(), "results.log");
+		index = new File(folder.getRoot(), "results.top");
+	}
+
+	@After
+	public void tearDown() {
+		if (store != null) store.dispose();
+	}
+
+	private ResultStore reopen() {
+		if (store != null) store.dispose();
+		store = new ResultStore(new FileHandle(log));
+		store.waitForWrites();
+		return store;
+	}
+
+	private static GameResult result(int score) {
+		return new GameResult(GameMode.NORMAL, 0, score, 1, 1, 0f, score);
+	}
+
+	/**
+	 * Adds results scored 1 to count
+	 */
+	private void addResults(int count) {
+		for (int score = 1; score <= count; score++) {
+			store.add(result(score));
+		}
+		store.waitForWrites();
+	}
+
+	private static void flipByte(File file, long position) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(position);
+			int b = raf.read();
+			raf.seek(position);
+			raf.write(b ^ 0x55);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	private static byte[] read(File file) throws IOException {
+		byte[] bytes = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int n = 0;
+			while (n < bytes.length) n += in.read(bytes, n, bytes.length - n);
+		}
+		finally {
+			in.close();
+		}
+		return bytes;
+	}
+
+	private static void write(File file, byte[] bytes) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static long recordOffset(int record) {
+		return HEADER_SIZE + (long) record * ResultStore.RECORD_SIZE;
+	}
+
+	@Test
+	public void reloadKeepsBestResults() {
+		reopen();
+		addResults(25);
+		reopen();
+
+		assertTrue(store.isLoaded());
+		assertNull(store.getError());
+		assertEquals(ResultStore.TOP_COUNT, store.getResultCount(GameMode.NORMAL));
+		for (int rank = 0; rank < ResultStore.TOP_COUNT; rank++) {
+			assertEquals(25 - rank, store.getResult(GameMode.NORMAL, rank).getScore());
+		}
+		assertEquals(HEADER_SIZE + 25 * ResultStore.RECORD_SIZE, log.length());
+	}
+
+	@Test
+	public void corruptedRecordIsSkipped() throws IOException {
+		reopen();
+		addResults(5);
+		store.dispose();
+		store = null;
+
+		// the best result is the last record, drop the index so the log is read again
+		flipByte(log, recordOffset(4) + 4);
+		assertTrue(index.delete());
+		reopen();
+
+		assertEquals(1, store.getDroppedRecords());
+		assertEquals(4, store.getResultCount(GameMode.NORMAL));
+		assertEquals(4, store.getBest(GameMode.NORMAL).getScore());
+
+		// the corrupted record stays in the log, new records go after it
+		store.add(result(9));
+		store.waitForWrites();
+		assertEquals(recordOffset(6), log.length());
+		reopen();
+		assertEquals(9, store.getBest(GameMode.NORMAL).getScore());
+	}
+
+	@Test
+	public void tornRecordIsCutOff() throws IOException {
+		reopen();
+		addResults(3);
+		store.dispose();
+		store = null;
+
+		RandomAccessFile raf = new RandomAccessFile(log, "rw");
+		raf.setLength(log.length() - 7);
+		raf.close();
+		reopen();
+
+		// the index covers a record the log no longer has, so the leaderboard is rebuilt without it
+		assertEquals(recordOffset(2), log.length());
+		assertEquals(2, store.getResultCount(GameMode.NORMAL));
+		assertEquals(2, store.getBest(GameMode.NORMAL).getScore());
+
+		store.add(result(7));
+		store.waitForWrites();
+		reopen();
+		assertEquals(3, store.getResultCount(GameMode.NORMAL));
+		assertEquals(7, store.getBest(GameMode.NORMAL).getScore());
+		assertEquals(0, store.getDroppedRecords());
+	}
+
+	@Test
+	public void corruptedIndexIsRebuilt() throws IOException {
+		reopen();
+		addResults(12);
+		store.dispose();
+		store = null;
+
+		flipByte(index, index.length() / 2);
+		reopen();
+		assertEquals(ResultStore.TOP_COUNT, store.getResultCount(GameMode.NORMAL));
+		assertEquals(12, store.getBest(GameMode.NORMAL).getScore());
+		assertEquals(3, store.getResult(GameMode.NORMAL, ResultStore.TOP_COUNT - 1).getScore());
+	}
+
+	@Test
+	public void staleIndexReadsTheNewerRecords() throws IOException {
+		reopen();
+		addResults(3);
+		byte[] staleIndex = read(index);
+		store.add(result(50));
+		store.waitForWrites();
+		store.dispose();
+		store = null;
+
+		// as if the writer stopped between appending a record and saving the index
+		write(index, staleIndex);
+		reopen();
+		assertEquals(4, store.getResultCount(GameMode.NORMAL));
+		assertEquals(50, store.getBest(GameMode.NORMAL).getScore());
+	}
+
+	@Test
+	public void rolledLogsAreKeptAndReadOnRebuild() {
+		reopen();
+		store.add(result(1000000));
+		addResults(ResultStore.SEGMENT_RECORDS + 10);
+
+		assertTrue(store.getSegmentFile(1).exists());
+		assertFalse(store.getSegmentFile(2).exists());
+		assertEquals(recordOffset(ResultStore.SEGMENT_RECORDS), store.getSegmentFile(1).length());
+		assertEquals(recordOffset(11), log.length());
+
+		// the best result is only in the rolled log
+		store.dispose();
+		store = null;
+		assertTrue(index.delete());
+		reopen();
+		assertEquals(1000000, store.getBest(GameMode.NORMAL).getScore());
+		assertEquals(ResultStore.SEGMENT_RECORDS + 10, store.getResult(GameMode.NORMAL, 1).getScore());
+		assertEquals(0, store.getDroppedRecords());
+	}
+
+	@Test
+	public void unreadableLogIsMovedAside() throws IOException {
+		write(log, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		reopen();
+
+		assertTrue(new File(folder.getRoot(), "results.log.bad").exists());
+		assertNull(store.getError());
+		assertEquals(0, store.getResultCount(GameMode.NORMAL));
+
+		store.add(result(5));
+		store.waitForWrites();
+		reopen();
+		assertEquals(5, store.getBest(GameMode.NORMAL).getScore());
+	}
+}
@@ -0,0 +1,99 @@
+package com.code2play.quickout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Checks the least-squares velocity estimate and which samples it uses.
+ * @author Jitrapon
+ *
+ */
+public class VelocityTrackerTest {
+
+	private static final long MILLIS = 1000000L;
+
+	private final VelocityTracker tracker = new VelocityTracker();
+	private final Vector2 velocity = new Vector2();
+
+	@Test
+	public void constantVelocityIsExact() {
+		for (int i = 0; i < 6; i++) {
+			float t = i * 0.016f;
+			tracker.addSample(100 + 300 * t, -50 * t, i * 16 * MILLIS);
+		}
+		assertTrue(tracker.getVelocity(velocity));
+		assertEquals(300f, velocity.x, 0.01f);
+		assertEquals(-50f, velocity.y, 0.01f);
+	}
+
+	@Test
+	public void unevenSamplesAreFitByLeastSquares() {
+		// times -20, -10 and 0 ms: mean x is 2, covariance 0.05 and variance 0.0002 give 250
+		tracker.addSample(0, 0, 0);
+		tracker.addSample(1, 0, 10 * MILLIS);
+		tracker.addSample(5, 0, 20 * MILLIS);
+		assertTrue(tracker.getVelocity(velocity));
+		assertEquals(250f, velocity.x, 0.01f);
+		assertEquals(0f, velocity.y, 0f);
+	}
+
+	@Test
+	public void needsTwoSamples() {
+		assertFalse(tracker.getVelocity(velocity));
+		tracker.addSample(10, 10, 0);
+		velocity.set(1, 1);
+		assertFalse(tracker.getVelocity(velocity));
+		assertEquals(0f, velocity.len(), 0f);
+	}
+
+	@Test
+	public void samplesAtTheSameTimeHaveNoVelocity() {
+		tracker.addSample(0, 0, 5 * MILLIS);
+		tracker.addSample(10, 20, 5 * MILLIS);
+		assertFalse(tracker.getVelocity(velocity));
+	}
+
+	@Test
+	public void samplesOutsideWindowAreIgnored() {
+		// a fast swipe that stopped well before the pointer was lifted
+		for (int i = 0; i < 4; i++) {
+			tracker.addSample(i * 100, 0, i * 10 * MILLIS);
+		}
+		tracker.addSample(300, 0, 200 * MILLIS);
+		tracker.addSample(300, 0, 250 * MILLIS);
+		assertTrue(tracker.getVelocity(velocity));
+		assertEquals(0f, velocity.x, 0f);
+
+		// only the newest sample is recent
+		tracker.addSample(400, 0, 500 * MILLIS);
+		assertFalse(tracker.getVelocity(velocity));
+	}
+
+	@Test
+	public void oldestSamplesAreOverwritten() {
+		// moving left first, then right at 100 units per second for more samples than are kept
+		for (int i = 0; i < 12; i++) {
+			tracker.addSample(-i * 50, 0, i * 5 * MILLIS);
+		}
+		float x = -11 * 50;
+		for (int i = 12; i < 24; i++) {
+			x += 100 * 0.005f;
+			tracker.addSample(x, 0, i * 5 * MILLIS);
+		}
+		assertTrue(tracker.getVelocity(velocity));
+		assertEquals(100f, velocity.x, 0.1f);
+	}
+
+	@Test
+	public void resetDropsSamples() {
+		tracker.addSample(0, 0, 0);
+		tracker.addSample(10, 0, 10 * MILLIS);
+		tracker.reset();
+		assertFalse(tracker.getVelocity(velocity));
+	}
+}
@@ -0,0 +1,164 @@
+package com.code2play.quickout.desktop;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.JsonWriter.OutputType;
+import com.code2play.game.IBenchmarkListener;
+import com.code2play.quickout.BenchmarkScenario;
+import com.code2play.quickout.FrameProfiler;
+import com.code2play.quickout.LatencyHistogram;
+import com.code2play.quickout.Level;
+
+/**
+ * Writes the results of a benchmark run to a JSON file and exits: frame-time percentiles, the percentiles
+ * of every profiled phase, the collections of every garbage collector and the bytes allocated by the
+ * render thread during the measured frames. Times are in microseconds.
+ * @author Jitrapon
+ *
+ */
+public class BenchmarkReport implements IBenchmarkListener {
+
+	/** Quantiles reported for frame times and phases */
+	private static final double[] QUANTILES = { 0.50, 0.90, 0.95, 0.99 };
+	private static final String[] QUANTILE_NAMES = { "p50", "p90", "p95", "p99" };
+
+	private final File file;
+	private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+	private final long[] startCounts = new long[collectors.size()];
+	private final long[] startTimes = new long[collectors.size()];
+	private long startAllocated = -1;
+
+	/**
+	 * @param file where the report is written
+	 */
+	public BenchmarkReport(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public void started(BenchmarkScenario scenario) {
+		for (int i = 0; i < collectors.size(); i++) {
+			startCounts[i] = collectors.get(i).getCollectionCount();
+			startTimes[i] = collectors.get(i).getCollectionTime();
+		}
+		startAllocated = getAllocatedBytes();
+	}
+
+	@Override
+	public void finished(BenchmarkScenario scenario, FrameProfiler profiler, LatencyHistogram frameTimes,
+			long elapsedNanos, Level level) {
+		long allocated = startAllocated < 0 ? -1 : getAllocatedBytes() - startAllocated;
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			JsonWriter json = new JsonWriter(new FileWriter(temp));
+			json.setOutputType(OutputType.json);
+			try {
+				write(json, scenario, profiler, frameTimes, elapsedNanos, level, allocated);
+			}
+			finally {
+				json.close();
+			}
+			if (file.exists() && !file.delete()) throw new IOException("Cannot replace " + file);
+			if (!temp.renameTo(file)) throw new IOException("Cannot rename " + temp + " to " + file);
+			Gdx.app.log("BENCHMARK", scenario.getName() + ": " + scenario.getFrames() + " frames, p50 "
+					+ frameTimes.getPercentile(0.50) / 1000 + " us, p99 " + frameTimes.getPercentile(0.99) / 1000
+					+ " us, report written to " + file.getAbsolutePath());
+		}
+		catch (IOException e) {
+			Gdx.app.error("BENCHMARK", "Cannot write the report", e);
+		}
+		Gdx.app.exit();
+	}
+
+	private void write(JsonWriter json, BenchmarkScenario scenario, FrameProfiler profiler, LatencyHistogram frameTimes,
+			long elapsedNanos, Level level, long allocated) throws IOException {
+		json.object();
+		json.set("scenario", scenario.getName());
+		json.set("mode", scenario.getGameMode().name());
+		json.set("seed", scenario.getSeed());
+		json.set("frames", scenario.getFrames());
+		json.set("warmupFrames", scenario.getWarmupFrames());
+		json.set("skippedActions", scenario.getSkippedActions());
+		json.set("elapsedMs", elapsedNanos / 1000000);
+		json.set("fps", elapsedNanos == 0 ? 0 : (float) (scenario.getFrames() * 1000000000.0 / elapsedNanos));
+
+		json.object("frameTimeUs");
+		writePercentiles(json, frameTimes);
+		json.pop();
+
+		json.object("phasesUs");
+		for (int phase = 0; phase < FrameProfiler.NUM_PHASES; phase++) {
+			json.object(FrameProfiler.getPhaseName(phase));
+			writePercentiles(json, profiler.getRunHistogram(phase));
+			json.pop();
+		}
+		json.pop();
+
+		long gcCount = 0;
+		long gcTime = 0;
+		json.object("gc");
+		json.array("collectors");
+		for (int i = 0; i < collectors.size(); i++) {
+			GarbageCollectorMXBean collector = collectors.get(i);
+			long count = collector.getCollectionCount() - startCounts[i];
+			long time = collector.getCollectionTime() - startTimes[i];
+			gcCount += count;
+			gcTime += time;
+			json.object();
+			json.set("name", collector.getName());
+			json.set("count", count);
+			json.set("timeMs", time);
+			json.pop();
+		}
+		json.pop();
+		json.set("count", gcCount);
+		json.set("timeMs", gcTime);
+		json.set("allocatedBytes", allocated);
+		json.set("allocatedBytesPerFrame", allocated < 0 ? -1 : allocated / scenario.getFrames());
+		json.pop();
+
+		json.object("round");
+		json.set("exitCode", level.getExitCode());
+		json.set("ticks", level.getTickCount());
+		json.set("score", level.getScore());
+		json.pop();
+
+		json.object("platform");
+		json.set("java", System.getProperty("java.version"));
+		json.set("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+		json.set("cpus", Runtime.getRuntime().availableProcessors());
+		json.set("glRenderer", Gdx.gl.glGetString(GL20.GL_RENDERER));
+		json.set("width", Gdx.graphics.getWidth());
+		json.set("height", Gdx.graphics.getHeight());
+		json.pop();
+		json.pop();
+	}
+
+	private static void writePercentiles(JsonWriter json, LatencyHistogram histogram) throws IOException {
+		json.set("count", histogram.getCount());
+		for (int i = 0; i < QUANTILES.length; i++) {
+			json.set(QUANTILE_NAMES[i], histogram.getPercentile(QUANTILES[i]) / 1000.0);
+		}
+		json.set("max", histogram.getMax() / 1000.0);
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the calling thread, -1 if the JVM does not count them
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+		com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+		if (!counter.isThreadAllocatedMemorySupported() || !counter.isThreadAllocatedMemoryEnabled()) return -1;
+		return counter.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -1,12 +1,34 @@
 package com.code2play.quickout.desktop;
 
+import java.io.File;
+
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.code2play.quickout.BenchmarkScenario;
 import com.code2play.quickout.GameMain;
 
+/**
+ * Starts the game, or a benchmark run with vsync and the frame cap off.
+ * Usage: DesktopLauncher [--benchmark scenario.json [report.json]]
+ */
 public class DesktopLauncher {
 	public static void main (String[] arg) {
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
+		if (arg.length > 0 && arg[0].equals("--benchmark")) {
+			if (arg.length < 2) {
+				System.err.println("Usage: DesktopLauncher --benchmark scenario.json [report.json]");
+				System.exit(2);
+			}
+			BenchmarkScenario scenario = BenchmarkScenario.load(new FileHandle(new File(arg[1])));
+			File report = new File(arg.length > 2 ? arg[2] : "benchmark-" + scenario.getName() + ".json");
+			config.vSyncEnabled = false;
+			config.foregroundFPS = 0;
+			config.backgroundFPS = 0;
+			config.title = "QuickOut benchmark: " + scenario.getName();
+			new LwjglApplication(new GameMain(scenario, new BenchmarkReport(report)), config);
+			return;
+		}
 		new LwjglApplication(new GameMain(), config);
 	}
 }
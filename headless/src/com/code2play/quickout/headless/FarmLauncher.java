@@ -0,0 +1,36 @@
+package com.code2play.quickout.headless;
+
+import com.code2play.quickout.GameMain.GameMode;
+
+/**
+ * Plays many rounds on every core and prints percentile reports, for balancing.
+ * Usage: FarmLauncher [rounds] [NORMAL|TIMED] [random|scripted] [threads] [seed]
+ *                     [respawnTime] [moveChangeTime] [itemComboInterval]
+ * A thread count of 0 uses every core, negative balancing values keep the level's defaults.
+ * @author Jitrapon
+ *
+ */
+public class FarmLauncher {
+
+	public static void main (String[] arg) {
+		int rounds = arg.length > 0 ? Integer.parseInt(arg[0]) : 1000;
+		GameMode mode = arg.length > 1 ? GameMode.valueOf(arg[1]) : GameMode.NORMAL;
+		String policy = arg.length > 2 ? arg[2] : SimulationFarm.SCRIPTED_POLICY;
+		int threads = arg.length > 3 ? Integer.parseInt(arg[3]) : 0;
+		long seed = arg.length > 4 ? Long.parseLong(arg[4]) : 0;
+		float respawnTime = arg.length > 5 ? Float.parseFloat(arg[5]) : -1;
+		float moveChangeTime = arg.length > 6 ? Float.parseFloat(arg[6]) : -1;
+		int itemComboInterval = arg.length > 7 ? Integer.parseInt(arg[7]) : -1;
+
+		SimulationFarm farm = new SimulationFarm(mode, policy, threads);
+		farm.setBaseSeed(seed);
+		farm.setBalancing(respawnTime, moveChangeTime, itemComboInterval);
+		FarmReport report = farm.run(rounds);
+		System.out.print(report);
+
+		// the exit status tells scripts whether every round ended by the game's own rules
+		for (int exitCode : report.getExitCodes()) {
+			if (exitCode < 0) System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.code2play.quickout.headless;
+
+import java.util.Arrays;
+
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.Level;
+
+/**
+ * Results of a simulation farm run: one entry per round for score, ball count, highest combo
+ * and exit code, summarized as percentiles.
+ * @author Jitrapon
+ *
+ */
+public class FarmReport {
+
+	/** Percentiles printed for every metric */
+	private static final double[] PERCENTILES = { 1, 5, 25, 50, 75, 95, 99 };
+
+	private final GameMode gameMode;
+	private final String policyName;
+	private final int rounds;
+	private final int[] exitCodes;
+	private final int[] scores;
+	private final int[] ballCounts;
+	private final int[] maxCombos;
+
+	/* totals */
+	private long ticks;
+	private long elapsedNanos;
+	private int threads;
+
+	public FarmReport(GameMode mode, String policyName, int rounds) {
+		gameMode = mode;
+		this.policyName = policyName;
+		this.rounds = rounds;
+		exitCodes = new int[rounds];
+		scores = new int[rounds];
+		ballCounts = new int[rounds];
+		maxCombos = new int[rounds];
+	}
+
+	/**
+	 * Stores the results of a round. Every round is stored by the one thread that played it.
+	 */
+	void setRound(int round, int exitCode, int score, int ballCount, int maxCombo) {
+		exitCodes[round] = exitCode;
+		scores[round] = score;
+		ballCounts[round] = ballCount;
+		maxCombos[round] = maxCombo;
+	}
+
+	void setTotals(long ticks, long elapsedNanos, int threads) {
+		this.ticks = ticks;
+		this.elapsedNanos = elapsedNanos;
+		this.threads = threads;
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	public int[] getScores() {
+		return scores;
+	}
+
+	public int[] getBallCounts() {
+		return ballCounts;
+	}
+
+	public int[] getMaxCombos() {
+		return maxCombos;
+	}
+
+	public int[] getExitCodes() {
+		return exitCodes;
+	}
+
+	/**
+	 * Returns the value at a percentile of the values, using the nearest rank
+	 * @param sorted values in ascending order
+	 * @param percentile from 0 to 100
+	 */
+	public static int percentile(int[] sorted, double percentile) {
+		if (sorted.length == 0) return 0;
+		int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+
+	private static void appendDistribution(StringBuilder sb, String name, int[] values) {
+		int[] sorted = values.clone();
+		Arrays.sort(sorted);
+		long sum = 0;
+		for (int value : sorted) {
+			sum += value;
+		}
+
+		sb.append(name).append(": mean ").append(sorted.length == 0 ? 0 : sum / (double) sorted.length);
+		sb.append(", min ").append(sorted.length == 0 ? 0 : sorted[0]);
+		for (double p : PERCENTILES) {
+			sb.append(", p").append((int) p).append(' ').append(percentile(sorted, p));
+		}
+		sb.append(", max ").append(sorted.length == 0 ? 0 : sorted[sorted.length - 1]).append('\n');
+	}
+
+	private static String getExitCodeName(int exitCode) {
+		switch (exitCode) {
+		case Level.NORMAL_MODE_EXIT:
+			return "normal end";
+		case Level.TIME_MODE_TIMEOUT:
+			return "timeout";
+		case Level.TIME_MODE_ACHIEVED:
+			return "count achieved";
+		case Level.FORCED_EXIT:
+			return "forced";
+		case Level.DEFAULT_EXIT:
+			return "tick limit";
+		default:
+			return "unknown";
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(rounds).append(" rounds of ").append(gameMode).append(" with the ").append(policyName)
+			.append(" policy on ").append(threads).append(" threads\n");
+		if (elapsedNanos > 0) {
+			double seconds = elapsedNanos / 1000000000.0;
+			sb.append("Elapsed ").append((long) (seconds * 1000)).append(" ms, ")
+				.append((long) (rounds / seconds)).append(" rounds/sec, ")
+				.append((long) (ticks / seconds)).append(" ticks/sec\n");
+		}
+
+		appendDistribution(sb, "Score", scores);
+		appendDistribution(sb, "Ball count", ballCounts);
+		appendDistribution(sb, "Max combo", maxCombos);
+
+		int[] sortedCodes = exitCodes.clone();
+		Arrays.sort(sortedCodes);
+		sb.append("Exit codes:");
+		for (int i = 0; i < sortedCodes.length; ) {
+			int j = i;
+			while (j < sortedCodes.length && sortedCodes[j] == sortedCodes[i]) j++;
+			sb.append(' ').append(sortedCodes[i]).append(" (").append(getExitCodeName(sortedCodes[i]))
+				.append(") ").append(j - i).append(';');
+			i = j;
+		}
+		sb.append('\n');
+		return sb.toString();
+	}
+}
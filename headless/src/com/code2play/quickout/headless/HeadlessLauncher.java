@@ -0,0 +1,50 @@
+package com.code2play.quickout.headless;
+
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.Level;
+
+/**
+ * Plays a number of rounds without a GPU and prints the simulation speed.
+ * Round i is seeded with seed + i, and its final state hash is printed so that
+ * two builds can be checked for playing out identically.
+ * Usage: HeadlessLauncher [rounds] [NORMAL|TIMED] [seed]
+ * @author Jitrapon
+ *
+ */
+public class HeadlessLauncher {
+	
+	private static final int MAX_TICKS_PER_ROUND = 100000;
+
+	public static void main (String[] arg) {
+		int rounds = arg.length > 0 ? Integer.parseInt(arg[0]) : 100;
+		GameMode mode = arg.length > 1 ? GameMode.valueOf(arg[1]) : GameMode.NORMAL;
+		long seed = arg.length > 2 ? Long.parseLong(arg[2]) : 0;
+		
+		HeadlessSimulation simulation = new HeadlessSimulation(mode, MAX_TICKS_PER_ROUND);
+		simulation.setStateHashing(true);
+		long totalTicks = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < rounds; i++) {
+			int exitCode = simulation.runRound(seed + i);
+			totalTicks += simulation.getTicks();
+			totalNanos += simulation.getElapsedNanos();
+			
+			Level level = simulation.getLevel();
+			System.out.println("Round " + (i+1) + ": exit " + exitCode + ", score " + level.getScore() 
+					+ ", balls " + level.getBallCount() + ", ticks " + simulation.getTicks() 
+					+ ", " + (int) simulation.getTicksPerSecond() + " ticks/sec"
+					+ ", ball pool " + level.getBallPool().getHits() + " hits / " 
+					+ level.getBallPool().getMisses() + " misses"
+					+ ", iterations " + level.getPhysicsQuality().getVelocityIterations() + "/" 
+					+ level.getPhysicsQuality().getPositionIterations() 
+					+ " after " + level.getPhysicsQuality().getNumDecisions() + " changes"
+					+ " (last: " + level.getPhysicsQuality().getLastReasonName() + ")"
+					+ ", state hash " + Long.toHexString(simulation.getStateHash()));
+		}
+		
+		if (totalNanos > 0) {
+			System.out.println("Total: " + totalTicks + " ticks in " + (totalNanos / 1000000) + " ms, " 
+					+ (long) (totalTicks / (totalNanos / 1000000000.0)) + " ticks/sec");
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package com.code2play.quickout.headless;
+
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.Level;
+import com.code2play.quickout.ReplayPlayer;
+import com.code2play.quickout.ReplayRecorder;
+
+/**
+ * Runs one round of a Level without rendering, as fast as the simulation allows.
+ * Every call to {@link Level#update(float)} is fed exactly one fixed time step, 
+ * so one update is one simulation tick. An optional policy plays the round by
+ * queuing touch events before every tick, timestamped with the simulated time.
+ * Every round is seeded and the solver iterations are fixed, so a round with the
+ * same seed, policy and balancing plays out identically.
+ * @author Jitrapon
+ *
+ */
+public class HeadlessSimulation {
+
+	private static boolean nativesLoaded = false;
+	
+	private final GameMode gameMode;
+	private Level level;
+	private HeadlessWorldRenderer renderer;
+	private int maxTicks;
+	private IPlayerPolicy policy;
+	private boolean stateHashing = false;
+	private ReplayRecorder recorder;
+	
+	/* balancing values, negative values keep the level's defaults */
+	private float respawnTime = -1;
+	private float moveChangeTime = -1;
+	private int itemComboInterval = -1;
+	
+	/* results of the last round */
+	private int ticks;
+	private long elapsedNanos;
+	
+	/**
+	 * @param mode the game mode to play
+	 * @param maxTicks safety limit on the number of ticks a round may take
+	 */
+	public HeadlessSimulation(GameMode mode, int maxTicks) {
+		gameMode = mode;
+		this.maxTicks = maxTicks;
+		loadNatives();
+	}
+	
+	/**
+	 * Loads the Box2D natives once per process, no Gdx application is required
+	 */
+	public static synchronized void loadNatives() {
+		if (!nativesLoaded) {
+			Box2D.init();
+			nativesLoaded = true;
+		}
+	}
+	
+	/**
+	 * Sets the player, null leaves the round unplayed
+	 * @param policy
+	 */
+	public void setPolicy(IPlayerPolicy policy) {
+		this.policy = policy;
+	}
+	
+	/**
+	 * Turns hashing of the simulation state after every tick on or off for the following rounds
+	 * @param enabled
+	 */
+	public void setStateHashing(boolean enabled) {
+		stateHashing = enabled;
+	}
+	
+	/**
+	 * Records the next round. The recorder is finished, and its channel closed, when the round ends.
+	 * Rounds with balancing overrides do not replay identically, the overrides are not recorded.
+	 * @param recorder
+	 */
+	public void setRecorder(ReplayRecorder recorder) {
+		this.recorder = recorder;
+	}
+	
+	/**
+	 * Overrides the level's balancing values for the following rounds, negative values keep the defaults
+	 */
+	public void setBalancing(float respawnTime, float moveChangeTime, int itemComboInterval) {
+		this.respawnTime = respawnTime;
+		this.moveChangeTime = moveChangeTime;
+		this.itemComboInterval = itemComboInterval;
+	}
+	
+	/**
+	 * Plays one full round from a fresh Level until it reports an exit code
+	 * @return the exit code of the round
+	 */
+	public int runRound() {
+		return runRound(0);
+	}
+	
+	/**
+	 * Plays one full round from a fresh Level until it reports an exit code
+	 * @param seed seed of the level's randomness and of the policy's decisions in this round
+	 * @return the exit code of the round
+	 */
+	public int runRound(long seed) {
+		level = new Level(gameMode, seed);
+		level.getPhysicsQuality().setAdaptive(false);
+		level.setStateHashing(stateHashing || recorder != null);
+		if (recorder != null) {
+			recorder.begin(level);
+			level.setReplayRecorder(recorder);
+		}
+		renderer = new HeadlessWorldRenderer();
+		level.setWorldRenderer(renderer);
+		level.init();
+		if (respawnTime >= 0 || moveChangeTime >= 0 || itemComboInterval > 0) {
+			level.setBalancing(respawnTime >= 0 ? respawnTime : level.getRespawnTime(), 
+					moveChangeTime >= 0 ? moveChangeTime : level.getMoveChangeTime(), 
+					itemComboInterval > 0 ? itemComboInterval : level.getItemComboInterval());
+		}
+		if (policy != null) policy.reset(seed);
+		
+		float step = level.getTimeStep();
+		long stepNanos = (long) (step * 1000000000.0);
+		ticks = 0;
+		long start = System.nanoTime();
+		while (level.getExitCode() == Level.DEFAULT_EXIT && ticks < maxTicks) {
+			if (policy != null) policy.act(level, ticks * stepNanos);
+			level.update(step);
+			ticks++;
+		}
+		elapsedNanos = System.nanoTime() - start;
+		
+		if (recorder != null) {
+			recorder.finish(level);
+			recorder = null;
+		}
+		int exitCode = level.getExitCode();
+		level.exitGame();
+		return exitCode;
+	}
+	
+	/**
+	 * Plays a recorded session from a fresh Level, as fast as possible, until the recording ends.
+	 * The policy and the balancing overrides are not used.
+	 * @param player
+	 * @return the exit code of the level when the recording ended
+	 */
+	public int runReplay(ReplayPlayer player) {
+		level = new Level(player.getGameMode(), player.getSeed());
+		level.setStateHashing(true);
+		level.setReplayPlayer(player);
+		renderer = new HeadlessWorldRenderer();
+		level.setWorldRenderer(renderer);
+		level.init();
+		
+		float step = level.getTimeStep();
+		ticks = 0;
+		long start = System.nanoTime();
+		while (!player.isFinished() && ticks < maxTicks) {
+			level.update(step);
+			
+			// reading the end marker does not step the level
+			if (player.hasEnded()) break;
+			ticks++;
+		}
+		elapsedNanos = System.nanoTime() - start;
+		
+		int exitCode = level.getExitCode();
+		level.exitGame();
+		return exitCode;
+	}
+	
+	public Level getLevel() {
+		return level;
+	}
+	
+	public HeadlessWorldRenderer getRenderer() {
+		return renderer;
+	}
+	
+	/**
+	 * Returns the state hash at the end of the last round, 0 if hashing is off
+	 */
+	public long getStateHash() {
+		return level == null ? 0 : level.getStateHash();
+	}
+	
+	public int getTicks() {
+		return ticks;
+	}
+	
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+	
+	/**
+	 * Returns the simulation speed of the last round
+	 */
+	public double getTicksPerSecond() {
+		return elapsedNanos == 0 ? 0 : ticks / (elapsedNanos / 1000000000.0);
+	}
+}
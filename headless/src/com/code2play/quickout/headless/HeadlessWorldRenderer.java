@@ -0,0 +1,40 @@
+package com.code2play.quickout.headless;
+
+import com.code2play.game.IHud;
+import com.code2play.game.IWorldRenderer;
+import com.code2play.quickout.Ball;
+
+/**
+ * Stands in for WorldView when a Level runs without a GL context.
+ * Nothing is drawn, removals are only counted.
+ * @author Jitrapon
+ *
+ */
+public class HeadlessWorldRenderer implements IWorldRenderer, IHud {
+
+	private int ballsRemoved;
+	private int correctBallsRemoved;
+	
+	@Override
+	public IHud getHud() {
+		return this;
+	}
+
+	@Override
+	public void onBallRemoved(Ball ball) {
+		ballsRemoved++;
+		if (ball.isCorrectMove() || ball.hasCollidedCorrectly()) correctBallsRemoved++;
+	}
+
+	@Override
+	public void setScoreHighlighted(boolean highlighted) {
+	}
+	
+	public int getBallsRemoved() {
+		return ballsRemoved;
+	}
+	
+	public int getCorrectBallsRemoved() {
+		return correctBallsRemoved;
+	}
+}
@@ -0,0 +1,25 @@
+package com.code2play.quickout.headless;
+
+import com.code2play.quickout.Level;
+
+/**
+ * Plays a headless round. Before every tick the policy may queue touch events into the
+ * level's touch queue, exactly as WorldView does for a real player.
+ * @author Jitrapon
+ *
+ */
+public interface IPlayerPolicy {
+
+	/**
+	 * Called at the start of every round
+	 * @param seed seed for the policy's decisions in this round
+	 */
+	public void reset(long seed);
+
+	/**
+	 * Called before every tick of the round
+	 * @param level
+	 * @param timeNanos simulated time since the start of the round, use it to timestamp events
+	 */
+	public void act(Level level, long timeNanos);
+}
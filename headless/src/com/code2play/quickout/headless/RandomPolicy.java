@@ -0,0 +1,46 @@
+package com.code2play.quickout.headless;
+
+import com.code2play.quickout.BallTable;
+import com.code2play.quickout.Item;
+import com.code2play.quickout.Level;
+
+/**
+ * Plays without looking at the current move: touches a random ball (or now and then a random item),
+ * and either taps it or flings it in a random direction.
+ * @author Jitrapon
+ *
+ */
+public class RandomPolicy extends TouchPolicy {
+
+	private static final float MIN_FLING_SPEED = 1500f;
+	private static final float MAX_FLING_SPEED = 3000f;
+
+	public RandomPolicy() {
+		super(0.25f, 0.8f);
+	}
+
+	@Override
+	protected boolean decide(Level level, long timeNanos) {
+		if (level.getItems().size > 0 && random.nextInt(4) == 0) {
+			Item item = level.getItems().get(random.nextInt(level.getItems().size));
+			if (!item.isActive() && !item.slotted) {
+				tap(level, item.x, item.y, timeNanos);
+				return true;
+			}
+		}
+
+		BallTable balls = level.getBalls();
+		if (balls.size() == 0) return false;
+		int row = random.nextInt(balls.size());
+		if (random.nextBoolean()) {
+			tap(level, balls.x[row], balls.y[row], timeNanos);
+		}
+		else {
+			double angle = random.nextDouble() * Math.PI * 2;
+			float speed = MIN_FLING_SPEED + random.nextFloat() * (MAX_FLING_SPEED - MIN_FLING_SPEED);
+			fling(level, balls.x[row], balls.y[row], (float) Math.cos(angle) * speed, 
+					(float) Math.sin(angle) * speed, timeNanos);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,62 @@
+package com.code2play.quickout.headless;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.ReplayPlayer;
+import com.code2play.quickout.ReplayRecorder;
+
+/**
+ * Records headless rounds and plays recordings back as fast as possible, e.g. to profile
+ * recorded sessions of real players.
+ * Usage: ReplayLauncher record [file] [NORMAL|TIMED] [random|scripted] [seed]
+ *        ReplayLauncher play [file] [repeat]
+ * @author Jitrapon
+ *
+ */
+public class ReplayLauncher {
+
+	private static final int MAX_TICKS_PER_ROUND = 100000;
+
+	public static void main (String[] arg) throws IOException {
+		String command = arg.length > 0 ? arg[0] : "play";
+		File file = new File(arg.length > 1 ? arg[1] : "last.replay");
+
+		if ("record".equals(command)) {
+			GameMode mode = arg.length > 2 ? GameMode.valueOf(arg[2]) : GameMode.NORMAL;
+			String policy = arg.length > 3 ? arg[3] : SimulationFarm.SCRIPTED_POLICY;
+			long seed = arg.length > 4 ? Long.parseLong(arg[4]) : 0;
+
+			HeadlessSimulation simulation = new HeadlessSimulation(mode, MAX_TICKS_PER_ROUND);
+			simulation.setPolicy(SimulationFarm.SCRIPTED_POLICY.equals(policy) ? new ScriptedPolicy() : new RandomPolicy());
+			ReplayRecorder recorder = new ReplayRecorder(new FileOutputStream(file).getChannel(),
+					ReplayRecorder.DEFAULT_BUFFER_SIZE);
+			simulation.setRecorder(recorder);
+			int exitCode = simulation.runRound(seed);
+			if (recorder.getError() != null) throw recorder.getError();
+			System.out.println("Recorded " + simulation.getTicks() + " ticks in " + recorder.getBytesWritten()
+					+ " bytes, exit " + exitCode + ", score " + simulation.getLevel().getScore()
+					+ ", state hash " + Long.toHexString(simulation.getStateHash()));
+		}
+		else {
+			int repeat = arg.length > 2 ? Integer.parseInt(arg[2]) : 1;
+			HeadlessSimulation simulation = new HeadlessSimulation(GameMode.NORMAL, MAX_TICKS_PER_ROUND);
+			FileHandle handle = new FileHandle(file);
+			boolean inSync = true;
+			for (int i = 0; i < repeat; i++) {
+				ReplayPlayer player = ReplayPlayer.load(handle);
+				int exitCode = simulation.runReplay(player);
+				inSync &= player.isInSync();
+				System.out.println("Replay " + (i+1) + ": exit " + exitCode + ", score " + simulation.getLevel().getScore()
+						+ ", ticks " + simulation.getTicks() + ", " + (int) simulation.getTicksPerSecond() + " ticks/sec"
+						+ (player.hasEnded() ? ", " + (player.isInSync() ? "in sync" : "DESYNCED, state hash "
+								+ Long.toHexString(player.getPlayedStateHash()) + " instead of "
+								+ Long.toHexString(player.getEndStateHash())) : ", recording ended early"));
+			}
+			if (!inSync) System.exit(1);
+		}
+	}
+}
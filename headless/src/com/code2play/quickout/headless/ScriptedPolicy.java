@@ -0,0 +1,51 @@
+package com.code2play.quickout.headless;
+
+import com.code2play.quickout.BallTable;
+import com.code2play.quickout.Item;
+import com.code2play.quickout.Level;
+
+/**
+ * Plays the current move like a good player would: uses any item that is lying around,
+ * flings a ball of the move's colour into another one of the same colour when there are two,
+ * and taps the ball otherwise. Waits when no ball of the move's colour is onscreen.
+ * @author Jitrapon
+ *
+ */
+public class ScriptedPolicy extends TouchPolicy {
+
+	private static final float FLING_SPEED = 2500f;
+
+	public ScriptedPolicy() {
+		super(0.3f, 0.5f);
+	}
+
+	@Override
+	protected boolean decide(Level level, long timeNanos) {
+		for (int i = 0; i < level.getItems().size; i++) {
+			Item item = level.getItems().get(i);
+			if (!item.isActive() && !item.slotted && item.state == Item.INACTIVE) {
+				tap(level, item.x, item.y, timeNanos);
+				return true;
+			}
+		}
+
+		BallTable balls = level.getBalls();
+		int ballType = level.getMoveSet().getMoves().first().ballType;
+		int count = balls.getTagCount(ballType);
+		if (count == 0) return false;
+
+		int row = balls.getRow(balls.getTagSlot(ballType, 0));
+		if (count >= 2) {
+			int other = balls.getRow(balls.getTagSlot(ballType, 1));
+			float dx = balls.x[other] - balls.x[row];
+			float dy = balls.y[other] - balls.y[row];
+			float length = (float) Math.sqrt(dx * dx + dy * dy);
+			if (length > 0) {
+				fling(level, balls.x[row], balls.y[row], dx / length * FLING_SPEED, dy / length * FLING_SPEED, timeNanos);
+				return true;
+			}
+		}
+		tap(level, balls.x[row], balls.y[row], timeNanos);
+		return true;
+	}
+}
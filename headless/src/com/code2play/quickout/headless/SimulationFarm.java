@@ -0,0 +1,132 @@
+package com.code2play.quickout.headless;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.Level;
+
+/**
+ * Plays many independent headless rounds on several threads. Every worker thread owns its
+ * simulation and its policy, and every round creates its own Level and Box2D World, so workers
+ * share nothing but the round counter and the result arrays (each round writes its own index).
+ * Round i is played with seed baseSeed + i, whichever thread plays it.
+ * @author Jitrapon
+ *
+ */
+public class SimulationFarm {
+
+	/** Policies the farm can play with */
+	public static final String RANDOM_POLICY = "random";
+	public static final String SCRIPTED_POLICY = "scripted";
+
+	private static final int MAX_TICKS_PER_ROUND = 100000;
+
+	private final GameMode gameMode;
+	private final String policyName;
+	private final int threads;
+	private long baseSeed = 0;
+
+	/* balancing values, negative values keep the level's defaults */
+	private float respawnTime = -1;
+	private float moveChangeTime = -1;
+	private int itemComboInterval = -1;
+
+	/**
+	 * @param mode game mode of every round
+	 * @param policyName RANDOM_POLICY or SCRIPTED_POLICY
+	 * @param threads number of worker threads, 0 uses every available core
+	 */
+	public SimulationFarm(GameMode mode, String policyName, int threads) {
+		gameMode = mode;
+		this.policyName = policyName;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		createPolicy(policyName);
+	}
+
+	public void setBaseSeed(long baseSeed) {
+		this.baseSeed = baseSeed;
+	}
+
+	/**
+	 * Overrides the level's balancing values in every round, negative values keep the defaults
+	 */
+	public void setBalancing(float respawnTime, float moveChangeTime, int itemComboInterval) {
+		this.respawnTime = respawnTime;
+		this.moveChangeTime = moveChangeTime;
+		this.itemComboInterval = itemComboInterval;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	private static IPlayerPolicy createPolicy(String name) {
+		if (RANDOM_POLICY.equals(name)) return new RandomPolicy();
+		if (SCRIPTED_POLICY.equals(name)) return new ScriptedPolicy();
+		throw new IllegalArgumentException("Unknown policy: " + name);
+	}
+
+	/**
+	 * Plays the rounds and blocks until all of them are done
+	 * @param rounds
+	 * @return the results of every round
+	 */
+	public FarmReport run(final int rounds) {
+		HeadlessSimulation.loadNatives();
+
+		final FarmReport report = new FarmReport(gameMode, policyName, rounds);
+		final AtomicInteger nextRound = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Long>> workers = new ArrayList<Future<Long>>(threads);
+		long start = System.nanoTime();
+
+		for (int i = 0; i < threads; i++) {
+			workers.add(executor.submit(new Callable<Long>() {
+				@Override
+				public Long call() {
+					HeadlessSimulation simulation = new HeadlessSimulation(gameMode, MAX_TICKS_PER_ROUND);
+					simulation.setPolicy(createPolicy(policyName));
+					simulation.setBalancing(respawnTime, moveChangeTime, itemComboInterval);
+
+					long ticks = 0;
+					int round;
+					while ((round = nextRound.getAndIncrement()) < rounds) {
+						int exitCode = simulation.runRound(baseSeed + round);
+						Level level = simulation.getLevel();
+						report.setRound(round, exitCode, level.getScore(), level.getBallCount(),
+								level.getMaxComboScore());
+						ticks += simulation.getTicks();
+					}
+					return ticks;
+				}
+			}));
+		}
+
+		long ticks = 0;
+		try {
+			for (Future<Long> worker : workers) {
+				ticks += worker.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Simulation farm interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException("Simulation farm worker failed", e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		report.setTotals(ticks, System.nanoTime() - start, threads);
+		return report;
+	}
+}
@@ -0,0 +1,181 @@
+package com.code2play.quickout.headless;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import com.code2play.quickout.GameMain.GameMode;
+import com.code2play.quickout.Level;
+
+/**
+ * Plays rounds back to back for hours of simulated time and checks two budgets:
+ * the bytes allocated per tick by the simulating thread, and the heap retained after a full GC.
+ *
+ * Allocations are read from the JVM's per-thread counter around the ticks of a round only,
+ * so creating and disposing of a level is not counted. The first round warms up the JIT and the
+ * pools and is not measured. The retained heap is sampled after every {@link #HEAP_CHECK_ROUNDS}
+ * rounds, and its growth over the first sample is checked against the budget.
+ * @author Jitrapon
+ *
+ */
+public class SoakHarness {
+
+	private static final int WARMUP_ROUNDS = 1;
+	private static final int HEAP_CHECK_ROUNDS = 10;
+	private static final int MAX_TICKS_PER_ROUND = 100000;
+
+	private final GameMode gameMode;
+	private final IPlayerPolicy policy;
+	private final com.sun.management.ThreadMXBean threads;
+	private final MemoryMXBean memory;
+	private double bytesPerTickBudget;
+	private long retainedBytesBudget;
+
+	/* results of the last run */
+	private int rounds;
+	private long ticks;
+	private long allocatedBytes;
+	private double worstBytesPerTick;
+	private int worstRound;
+	private long baselineHeap = -1;
+	private long retainedGrowth;
+
+	/**
+	 * @param mode
+	 * @param policy plays every round
+	 * @throws UnsupportedOperationException if the JVM does not count allocations per thread
+	 */
+	public SoakHarness(GameMode mode, IPlayerPolicy policy) {
+		gameMode = mode;
+		this.policy = policy;
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			throw new UnsupportedOperationException("Per-thread allocation counters are not available");
+		}
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		threads.setThreadAllocatedMemoryEnabled(true);
+		memory = ManagementFactory.getMemoryMXBean();
+		HeadlessSimulation.loadNatives();
+	}
+
+	/**
+	 * @param bytesPerTick most bytes a measured round may allocate per tick
+	 * @param retainedBytes most the heap may grow, after a full GC, over the first sample
+	 */
+	public void setBudgets(double bytesPerTick, long retainedBytes) {
+		bytesPerTickBudget = bytesPerTick;
+		retainedBytesBudget = retainedBytes;
+	}
+
+	/**
+	 * Plays rounds until the given simulated time has passed, round i seeded with seed + i
+	 * @param simulatedHours
+	 * @param seed
+	 * @return true if both budgets were kept
+	 */
+	public boolean run(double simulatedHours, long seed) {
+		rounds = 0;
+		ticks = 0;
+		allocatedBytes = 0;
+		worstBytesPerTick = 0;
+		baselineHeap = -1;
+		retainedGrowth = 0;
+		long threadId = Thread.currentThread().getId();
+		double simulatedSeconds = simulatedHours * 3600.0;
+		double elapsedSeconds = 0;
+
+		while (elapsedSeconds < simulatedSeconds) {
+			Level level = new Level(gameMode, seed + rounds);
+			level.getPhysicsQuality().setAdaptive(false);
+			level.setWorldRenderer(new HeadlessWorldRenderer());
+			level.init();
+			policy.reset(seed + rounds);
+			float step = level.getTimeStep();
+			long stepNanos = (long) (step * 1000000000.0);
+
+			int roundTicks = 0;
+			long before = threads.getThreadAllocatedBytes(threadId);
+			while (level.getExitCode() == Level.DEFAULT_EXIT && roundTicks < MAX_TICKS_PER_ROUND) {
+				policy.act(level, roundTicks * stepNanos);
+				level.update(step);
+				roundTicks++;
+			}
+			long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+			level.exitGame();
+			elapsedSeconds += roundTicks * step;
+
+			if (rounds >= WARMUP_ROUNDS && roundTicks > 0) {
+				ticks += roundTicks;
+				allocatedBytes += allocated;
+				double bytesPerTick = (double) allocated / roundTicks;
+				if (bytesPerTick > worstBytesPerTick) {
+					worstBytesPerTick = bytesPerTick;
+					worstRound = rounds;
+				}
+			}
+			rounds++;
+			if (rounds % HEAP_CHECK_ROUNDS == 0) checkHeap();
+		}
+		return isWithinBudgets();
+	}
+
+	private void checkHeap() {
+		long used = getRetainedHeap();
+		if (baselineHeap < 0) baselineHeap = used;
+		else retainedGrowth = Math.max(retainedGrowth, used - baselineHeap);
+	}
+
+	/**
+	 * Returns the heap in use after a full GC
+	 */
+	private long getRetainedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	public boolean isWithinBudgets() {
+		return worstBytesPerTick <= bytesPerTickBudget && retainedGrowth <= retainedBytesBudget;
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * Returns the number of measured ticks, warm-up rounds excluded
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the bytes allocated per measured tick over the whole run
+	 */
+	public double getBytesPerTick() {
+		return ticks == 0 ? 0 : (double) allocatedBytes / ticks;
+	}
+
+	/**
+	 * Returns the bytes allocated per tick in the worst measured round
+	 */
+	public double getWorstBytesPerTick() {
+		return worstBytesPerTick;
+	}
+
+	public int getWorstRound() {
+		return worstRound;
+	}
+
+	/**
+	 * Returns the largest growth of the retained heap over its first sample, in bytes
+	 */
+	public long getRetainedGrowth() {
+		return retainedGrowth;
+	}
+}
@@ -0,0 +1,36 @@
+package com.code2play.quickout.headless;
+
+import com.code2play.quickout.GameMain.GameMode;
+
+/**
+ * Runs a scripted soak session and exits with status 1 if it went over its allocation
+ * or retained heap budget, so it can guard a build.
+ * Usage: SoakLauncher [simulated hours] [bytes per tick] [retained KB] [seed] [NORMAL|TIMED]
+ * @author Jitrapon
+ *
+ */
+public class SoakLauncher {
+
+	public static void main (String[] arg) {
+		double hours = arg.length > 0 ? Double.parseDouble(arg[0]) : 2.0;
+		double bytesPerTick = arg.length > 1 ? Double.parseDouble(arg[1]) : 32.0;
+		long retainedKB = arg.length > 2 ? Long.parseLong(arg[2]) : 1024;
+		long seed = arg.length > 3 ? Long.parseLong(arg[3]) : 0;
+		GameMode mode = arg.length > 4 ? GameMode.valueOf(arg[4]) : GameMode.NORMAL;
+
+		SoakHarness harness = new SoakHarness(mode, new ScriptedPolicy());
+		harness.setBudgets(bytesPerTick, retainedKB * 1024);
+		long start = System.nanoTime();
+		boolean pass = harness.run(hours, seed);
+		long seconds = (System.nanoTime() - start) / 1000000000L;
+
+		System.out.println("Soaked " + hours + " simulated hours in " + seconds + " s: " + harness.getRounds()
+				+ " rounds, " + harness.getTicks() + " measured ticks");
+		System.out.println("Allocated " + String.format("%.1f", harness.getBytesPerTick()) + " bytes/tick, worst round "
+				+ (harness.getWorstRound() + 1) + " at " + String.format("%.1f", harness.getWorstBytesPerTick())
+				+ " (budget " + bytesPerTick + ")");
+		System.out.println("Retained heap grew " + harness.getRetainedGrowth() / 1024 + " KB (budget " + retainedKB + " KB)");
+		System.out.println(pass ? "PASS" : "FAIL");
+		if (!pass) System.exit(1);
+	}
+}
@@ -0,0 +1,88 @@
+package com.code2play.quickout.headless;
+
+import java.util.Random;
+
+import com.code2play.quickout.Level;
+import com.code2play.quickout.TouchEventQueue;
+
+/**
+ * Base of the policies that play by touching the screen. A policy acts once per reaction time,
+ * and its gestures are queued as complete touch sequences within a single tick.
+ * @author Jitrapon
+ *
+ */
+public abstract class TouchPolicy implements IPlayerPolicy {
+
+	/** Pointer used for every gesture */
+	private static final int POINTER = 0;
+
+	/** Time between the samples of a fling, in nanoseconds */
+	private static final long FLING_SAMPLE_NANOS = 10000000L;
+
+	/** Number of drag samples of a fling */
+	private static final int FLING_SAMPLES = 5;
+
+	protected final Random random = new Random();
+	private final float minReactionTime;
+	private final float maxReactionTime;
+	private long nextActionNanos;
+
+	/**
+	 * @param minReactionTime shortest time in seconds between two actions
+	 * @param maxReactionTime longest time in seconds between two actions
+	 */
+	public TouchPolicy(float minReactionTime, float maxReactionTime) {
+		this.minReactionTime = minReactionTime;
+		this.maxReactionTime = maxReactionTime;
+	}
+
+	@Override
+	public void reset(long seed) {
+		random.setSeed(seed);
+		nextActionNanos = 0;
+	}
+
+	@Override
+	public void act(Level level, long timeNanos) {
+		if (timeNanos < nextActionNanos) return;
+		if (decide(level, timeNanos)) {
+			float reaction = minReactionTime + random.nextFloat() * (maxReactionTime - minReactionTime);
+			nextActionNanos = timeNanos + (long) (reaction * 1000000000.0);
+		}
+	}
+
+	/**
+	 * Chooses and queues the next action
+	 * @param level
+	 * @param timeNanos
+	 * @return true if an action was taken, the policy then waits for its reaction time
+	 */
+	protected abstract boolean decide(Level level, long timeNanos);
+
+	/**
+	 * Queues a tap at the world coordinate
+	 */
+	protected void tap(Level level, float x, float y, long timeNanos) {
+		TouchEventQueue events = level.getTouchEvents();
+		events.push(TouchEventQueue.TOUCH_DOWN, POINTER, x, y, timeNanos);
+		events.push(TouchEventQueue.TOUCH_UP, POINTER, x, y, timeNanos + FLING_SAMPLE_NANOS);
+	}
+
+	/**
+	 * Queues a drag starting at the world coordinate that is released while moving
+	 * @param speedX release speed in world units per second
+	 * @param speedY release speed in world units per second
+	 */
+	protected void fling(Level level, float x, float y, float speedX, float speedY, long timeNanos) {
+		TouchEventQueue events = level.getTouchEvents();
+		float stepX = speedX * FLING_SAMPLE_NANOS / 1000000000f;
+		float stepY = speedY * FLING_SAMPLE_NANOS / 1000000000f;
+		events.push(TouchEventQueue.TOUCH_DOWN, POINTER, x, y, timeNanos);
+		for (int i = 1; i <= FLING_SAMPLES; i++) {
+			events.push(TouchEventQueue.TOUCH_DRAGGED, POINTER, x + stepX * i, y + stepY * i,
+					timeNanos + FLING_SAMPLE_NANOS * i);
+		}
+		events.push(TouchEventQueue.TOUCH_UP, POINTER, x + stepX * FLING_SAMPLES, y + stepY * FLING_SAMPLES,
+				timeNanos + FLING_SAMPLE_NANOS * FLING_SAMPLES);
+	}
+}